@@ -0,0 +1,179 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * The input for the benchmarks. This is either one of the matrices that
+ * are bundled with the test resources, or a generated matrix with a
+ * given number of entries. The data is kept in memory, and written into
+ * a temporary file for the benchmarks that read from a path. 
+ */
+@State(Scope.Benchmark)
+public class BenchmarkInput
+{
+    /**
+     * The prefix for the names of generated inputs. The prefix is 
+     * followed by the number of entries.
+     */
+    private static final String GENERATED_PREFIX = "generated-";
+    
+    /**
+     * The name of the input
+     */
+    @Param({
+        "gr_900_900_crg.mtx", 
+        "lap2D_5pt_n100.mtx", 
+        "lap3D_7pt_n20.mtx",
+        "generated-1000000",
+        "generated-10000000"
+    })
+    public String name;
+    
+    /**
+     * The data of the file
+     */
+    byte data[];
+    
+    /**
+     * The temporary file that contains the data
+     */
+    Path path;
+    
+    /**
+     * The number of entries in the file
+     */
+    long numEntries;
+    
+    /**
+     * Load or generate the data, and write it into a temporary file
+     * 
+     * @throws IOException If an IO-error occurs
+     */
+    @Setup(Level.Trial)
+    public void setup() throws IOException
+    {
+        if (name.startsWith(GENERATED_PREFIX))
+        {
+            int n = Integer.parseInt(
+                name.substring(GENERATED_PREFIX.length()));
+            data = generate(n);
+        }
+        else
+        {
+            data = load(name);
+        }
+        path = Files.createTempFile("matrixmarketreader-", ".mtx");
+        Files.write(path, data);
+        
+        CoordinateCallback callback = new CoordinateCallback();
+        MatrixMarketReader.read(path, callback);
+        numEntries = callback.getMatrixDescription().getNumNonZerosLong();
+    }
+    
+    /**
+     * Delete the temporary file
+     * 
+     * @throws IOException If an IO-error occurs
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException
+    {
+        Files.deleteIfExists(path);
+    }
+    
+    /**
+     * Load the resource with the given name
+     * 
+     * @param resourceName The resource name
+     * @return The data
+     * @throws IOException If an IO-error occurs
+     */
+    private static byte[] load(String resourceName) throws IOException
+    {
+        try (InputStream inputStream = 
+            BenchmarkInput.class.getResourceAsStream("/" + resourceName))
+        {
+            if (inputStream == null)
+            {
+                throw new IOException("Resource not found: " + resourceName);
+            }
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            byte buffer[] = new byte[65536];
+            while (true)
+            {
+                int read = inputStream.read(buffer);
+                if (read < 0)
+                {
+                    break;
+                }
+                baos.write(buffer, 0, read);
+            }
+            return baos.toByteArray();
+        }
+    }
+    
+    /**
+     * Generate a general, real matrix in MatrixMarket format, with the
+     * given number of randomly distributed entries
+     * 
+     * @param numEntries The number of entries
+     * @return The data
+     */
+    private static byte[] generate(int numEntries)
+    {
+        Random random = new Random(0);
+        int size = Math.max(1, numEntries / 10);
+        StringBuilder sb = new StringBuilder();
+        sb.append("%%MatrixMarket matrix coordinate real general\n");
+        sb.append("% Generated with " + numEntries + " random entries\n");
+        sb.append(size + " " + size + " " + numEntries + "\n");
+        for (int i = 0; i < numEntries; i++)
+        {
+            int r = 1 + random.nextInt(size);
+            int c = 1 + random.nextInt(size);
+            double value = random.nextGaussian();
+            sb.append(r).append(' ').append(c).append(' ');
+            sb.append(value).append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+}
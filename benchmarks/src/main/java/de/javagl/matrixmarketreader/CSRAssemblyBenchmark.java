@@ -0,0 +1,92 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the creation of a {@link CSR} from coordinate data, 
+ * with {@link CSRs#createCSR(MatrixDescription, java.util.List)}. The
+ * benchmark is in the same package as the library, in order to access
+ * the package-private assembly methods.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class CSRAssemblyBenchmark
+{
+    /**
+     * The coordinate data that was read from the input
+     */
+    private CoordinateCallback coordinates;
+    
+    /**
+     * Read the coordinate data from the input
+     * 
+     * @param input The {@link BenchmarkInput}
+     * @throws IOException If an IO-error occurs
+     */
+    @Setup(Level.Trial)
+    public void setup(BenchmarkInput input) throws IOException
+    {
+        coordinates = new CoordinateCallback();
+        MatrixMarketReader.read(input.path, coordinates);
+    }
+    
+    /**
+     * Create a {@link CSR} from the coordinate data
+     * 
+     * @param input The {@link BenchmarkInput}
+     * @param counters The {@link ThroughputCounters}
+     * @return The {@link CSR}
+     */
+    @Benchmark
+    public CSR createCSR(BenchmarkInput input, ThroughputCounters counters)
+    {
+        CSR csr = CSRs.createCSR(coordinates.getMatrixDescription(), 
+            Collections.singletonList(coordinates));
+        counters.count(input);
+        return csr;
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for reading MatrixMarket data with the 
+ * {@link MatrixMarketReader} and the {@link MatrixMarketCSR} methods
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class ReaderBenchmark
+{
+    /**
+     * Read the data from an input stream, with a {@link BatchCallback}
+     * that does nothing with the elements
+     * 
+     * @param input The {@link BenchmarkInput}
+     * @param counters The {@link ThroughputCounters}
+     * @param blackhole The blackhole
+     * @throws IOException If an IO-error occurs
+     */
+    @Benchmark
+    public void readStreamBatchCallback(BenchmarkInput input, 
+        ThroughputCounters counters, Blackhole blackhole) throws IOException
+    {
+        MatrixMarketReader.read(new ByteArrayInputStream(input.data), 
+            createBatchCallback(blackhole));
+        counters.count(input);
+    }
+    
+    /**
+     * Read the data from an input stream, with a {@link Callback}
+     * that does nothing with the elements
+     * 
+     * @param input The {@link BenchmarkInput}
+     * @param counters The {@link ThroughputCounters}
+     * @param blackhole The blackhole
+     * @throws IOException If an IO-error occurs
+     */
+    @Benchmark
+    public void readStreamCallback(BenchmarkInput input, 
+        ThroughputCounters counters, Blackhole blackhole) throws IOException
+    {
+        MatrixMarketReader.read(new ByteArrayInputStream(input.data), 
+            createCallback(blackhole));
+        counters.count(input);
+    }
+    
+    /**
+     * Read the data from a file, with a {@link BatchCallback} that does 
+     * nothing with the elements
+     * 
+     * @param input The {@link BenchmarkInput}
+     * @param counters The {@link ThroughputCounters}
+     * @param blackhole The blackhole
+     * @throws IOException If an IO-error occurs
+     */
+    @Benchmark
+    public void readPathBatchCallback(BenchmarkInput input, 
+        ThroughputCounters counters, Blackhole blackhole) throws IOException
+    {
+        MatrixMarketReader.read(input.path, createBatchCallback(blackhole));
+        counters.count(input);
+    }
+    
+    /**
+     * Read a {@link CSR} from an input stream
+     * 
+     * @param input The {@link BenchmarkInput}
+     * @param counters The {@link ThroughputCounters}
+     * @return The {@link CSR}
+     * @throws IOException If an IO-error occurs
+     */
+    @Benchmark
+    public CSR readCSRStream(BenchmarkInput input, 
+        ThroughputCounters counters) throws IOException
+    {
+        CSR csr = MatrixMarketCSR.readCSR(
+            new ByteArrayInputStream(input.data));
+        counters.count(input);
+        return csr;
+    }
+    
+    /**
+     * Read a {@link CSR} from a file
+     * 
+     * @param input The {@link BenchmarkInput}
+     * @param counters The {@link ThroughputCounters}
+     * @return The {@link CSR}
+     * @throws IOException If an IO-error occurs
+     */
+    @Benchmark
+    public CSR readCSRPath(BenchmarkInput input, 
+        ThroughputCounters counters) throws IOException
+    {
+        CSR csr = MatrixMarketCSR.readCSR(input.path);
+        counters.count(input);
+        return csr;
+    }
+    
+    /**
+     * Read a {@link CSR} from a file, in parallel
+     * 
+     * @param input The {@link BenchmarkInput}
+     * @param counters The {@link ThroughputCounters}
+     * @return The {@link CSR}
+     * @throws IOException If an IO-error occurs
+     */
+    @Benchmark
+    public CSR readCSRParallel(BenchmarkInput input, 
+        ThroughputCounters counters) throws IOException
+    {
+        CSR csr = MatrixMarketCSR.readCSRParallel(input.path);
+        counters.count(input);
+        return csr;
+    }
+    
+    /**
+     * Creates a {@link BatchCallback} that only passes the number of 
+     * elements to the given blackhole
+     * 
+     * @param blackhole The blackhole
+     * @return The {@link BatchCallback}
+     */
+    private static BatchCallback createBatchCallback(Blackhole blackhole)
+    {
+        return new BatchCallback()
+        {
+            @Override
+            public void startMatrix(MatrixDescription matrixDescription)
+            {
+                blackhole.consume(matrixDescription);
+            }
+            
+            @Override
+            public void setMatrixElements(
+                int rowIndicesZeroBased[], int columnIndicesZeroBased[], 
+                double values[], int count)
+            {
+                blackhole.consume(count);
+            }
+            
+            @Override
+            public void finishMatrix()
+            {
+                // Nothing to do here
+            }
+        };
+    }
+    
+    /**
+     * Creates a {@link Callback} that passes all elements to the 
+     * given blackhole
+     * 
+     * @param blackhole The blackhole
+     * @return The {@link Callback}
+     */
+    private static Callback createCallback(Blackhole blackhole)
+    {
+        return new Callback()
+        {
+            private MatrixDescription matrixDescription;
+            
+            @Override
+            public void startMatrix(MatrixDescription matrixDescription)
+            {
+                this.matrixDescription = matrixDescription;
+            }
+            
+            @Override
+            public MatrixDescription getMatrixDescription()
+            {
+                return matrixDescription;
+            }
+            
+            @Override
+            public void setMatrixElement(
+                int rowIndexZeroBased, int columnIndexZeroBased, 
+                double value0, double value1)
+            {
+                blackhole.consume(rowIndexZeroBased);
+                blackhole.consume(columnIndexZeroBased);
+                blackhole.consume(value0);
+            }
+            
+            @Override
+            public void finishMatrix()
+            {
+                // Nothing to do here
+            }
+        };
+    }
+}
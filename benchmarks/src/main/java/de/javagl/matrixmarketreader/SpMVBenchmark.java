@@ -0,0 +1,208 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the matrix-vector multiplications in {@link SpMV}, 
+ * with the matrices that are read from the input
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class SpMVBenchmark
+{
+    /**
+     * The matrix
+     */
+    private CSR csr;
+    
+    /**
+     * The matrix, with single precision
+     */
+    private FloatCSR floatCSR;
+    
+    /**
+     * The partition of the rows of the matrix
+     */
+    private RowPartition partition;
+    
+    /**
+     * The input vector
+     */
+    private double x[];
+    
+    /**
+     * The output vector
+     */
+    private double y[];
+    
+    /**
+     * The input vector, with single precision
+     */
+    private float xFloat[];
+    
+    /**
+     * The output vector, with single precision
+     */
+    private float yFloat[];
+    
+    /**
+     * Read the matrices from the input, and create the vectors
+     * 
+     * @param input The {@link BenchmarkInput}
+     * @throws IOException If an IO-error occurs
+     */
+    @Setup(Level.Trial)
+    public void setup(BenchmarkInput input) throws IOException
+    {
+        csr = MatrixMarketCSR.readCSR(input.path);
+        floatCSR = MatrixMarketCSR.readFloatCSR(input.path);
+        partition = SpMV.createPartition(csr);
+        int n = Math.max(csr.numRows, csr.numCols);
+        x = new double[n];
+        y = new double[n];
+        xFloat = new float[n];
+        yFloat = new float[n];
+        Arrays.fill(x, 1.0);
+        Arrays.fill(xFloat, 1.0f);
+    }
+    
+    /**
+     * Compute <code>y = A * x</code>
+     * 
+     * @param input The {@link BenchmarkInput}
+     * @param counters The {@link ThroughputCounters}
+     * @return The result vector
+     */
+    @Benchmark
+    public double[] multiply(BenchmarkInput input, 
+        ThroughputCounters counters)
+    {
+        SpMV.multiply(csr, x, y);
+        counters.count(input);
+        return y;
+    }
+    
+    /**
+     * Compute <code>y = A * x</code> in parallel
+     * 
+     * @param input The {@link BenchmarkInput}
+     * @param counters The {@link ThroughputCounters}
+     * @return The result vector
+     */
+    @Benchmark
+    public double[] multiplyParallel(BenchmarkInput input, 
+        ThroughputCounters counters)
+    {
+        SpMV.multiplyParallel(csr, x, y, partition);
+        counters.count(input);
+        return y;
+    }
+    
+    /**
+     * Compute <code>y = A<sup>T</sup> * x</code>
+     * 
+     * @param input The {@link BenchmarkInput}
+     * @param counters The {@link ThroughputCounters}
+     * @return The result vector
+     */
+    @Benchmark
+    public double[] multiplyTransposed(BenchmarkInput input, 
+        ThroughputCounters counters)
+    {
+        SpMV.multiplyTransposed(csr, x, y);
+        counters.count(input);
+        return y;
+    }
+    
+    /**
+     * Compute <code>y = A<sup>T</sup> * x</code> in parallel
+     * 
+     * @param input The {@link BenchmarkInput}
+     * @param counters The {@link ThroughputCounters}
+     * @return The result vector
+     */
+    @Benchmark
+    public double[] multiplyTransposedParallel(BenchmarkInput input, 
+        ThroughputCounters counters)
+    {
+        SpMV.multiplyTransposedParallel(csr, x, y, partition);
+        counters.count(input);
+        return y;
+    }
+    
+    /**
+     * Compute <code>y = A * x</code> with single precision
+     * 
+     * @param input The {@link BenchmarkInput}
+     * @param counters The {@link ThroughputCounters}
+     * @return The result vector
+     */
+    @Benchmark
+    public float[] multiplyFloat(BenchmarkInput input, 
+        ThroughputCounters counters)
+    {
+        SpMV.multiply(floatCSR, xFloat, yFloat);
+        counters.count(input);
+        return yFloat;
+    }
+    
+    /**
+     * Compute <code>y = A * x</code> with single precision, in parallel
+     * 
+     * @param input The {@link BenchmarkInput}
+     * @param counters The {@link ThroughputCounters}
+     * @return The result vector
+     */
+    @Benchmark
+    public float[] multiplyFloatParallel(BenchmarkInput input, 
+        ThroughputCounters counters)
+    {
+        SpMV.multiplyParallel(floatCSR, xFloat, yFloat, partition);
+        counters.count(input);
+        return yFloat;
+    }
+}
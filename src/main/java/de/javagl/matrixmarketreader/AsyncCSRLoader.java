@@ -0,0 +1,359 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A class for reading {@link CSR} instances from MatrixMarket files 
+ * asynchronously.<br>
+ * <br>
+ * The files are read and parsed in the threads of an executor. The 
+ * number of threads that read from the disk at the same time is limited 
+ * by a number of read permits, independent of the number of threads 
+ * that are parsing: A permit is only held while a block of bytes is 
+ * read from a file. The parsing (and the decompression, for gzip 
+ * files) happens without holding a permit.<br>
+ * <br>
+ * The returned futures may be cancelled. A load that was cancelled will 
+ * stop reading and parsing after the current segment of the file, and 
+ * release all its buffers. Cancelling a load while the {@link CSR} is 
+ * already being assembled will not stop the assembly, but the result 
+ * will be discarded.
+ */
+public final class AsyncCSRLoader
+{
+    /**
+     * The default maximum number of concurrent reads
+     */
+    static final int DEFAULT_MAX_CONCURRENT_READS = 2;
+    
+    /**
+     * The time, in milliseconds, after which a load that is waiting for 
+     * a read permit checks whether it was cancelled
+     */
+    private static final long PERMIT_POLL_MILLIS = 10;
+    
+    /**
+     * The counter for the names of the threads of the default executor
+     */
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+    
+    /**
+     * The default executor. This is a cached thread pool with daemon 
+     * threads, which is created lazily.
+     */
+    private static ExecutorService defaultExecutor;
+    
+    /**
+     * The executor that the loads are run in
+     */
+    private final Executor executor;
+    
+    /**
+     * The permits for reading from the disk
+     */
+    private final Semaphore readPermits;
+    
+    /**
+     * The maximum number of concurrent reads
+     */
+    private final int maxConcurrentReads;
+    
+    /**
+     * Creates a new instance that runs the loads in a default executor,
+     * and allows two concurrent reads. The default executor is a 
+     * thread pool with daemon threads that is shared by all instances.
+     */
+    public AsyncCSRLoader()
+    {
+        this(getDefaultExecutor(), DEFAULT_MAX_CONCURRENT_READS);
+    }
+    
+    /**
+     * Creates a new instance that runs the loads in the given executor.
+     * <br>
+     * <br>
+     * Each load occupies one thread of the executor until it is done. 
+     * The given executor should therefore not be the common 
+     * <code>ForkJoinPool</code>, because the loads may block while they 
+     * are waiting for a read permit. 
+     * 
+     * @param executor The executor
+     * @param maxConcurrentReads The maximum number of loads that may 
+     * read from the disk at the same time
+     * @throws NullPointerException If the executor is <code>null</code>
+     * @throws IllegalArgumentException If the maximum number of 
+     * concurrent reads is not positive
+     */
+    public AsyncCSRLoader(Executor executor, int maxConcurrentReads)
+    {
+        Objects.requireNonNull(executor, "The executor may not be null");
+        if (maxConcurrentReads <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The maximum number of concurrent reads must be positive, "
+                + "but is " + maxConcurrentReads);
+        }
+        this.executor = executor;
+        this.maxConcurrentReads = maxConcurrentReads;
+        this.readPermits = new Semaphore(maxConcurrentReads, true);
+    }
+    
+    /**
+     * Returns the default executor, creating it if necessary
+     * 
+     * @return The default executor
+     */
+    private static synchronized Executor getDefaultExecutor()
+    {
+        if (defaultExecutor == null)
+        {
+            defaultExecutor = Executors.newCachedThreadPool(runnable -> 
+            {
+                Thread thread = new Thread(runnable, 
+                    "AsyncCSRLoader-" + THREAD_COUNTER.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return defaultExecutor;
+    }
+    
+    /**
+     * Read the MatrixMarket file with the given path asynchronously. 
+     * <br>
+     * <br>
+     * The returned future will be completed with the {@link CSR}, as 
+     * it would be returned by {@link MatrixMarketCSR#readCSR(Path)}.
+     * If reading the file fails, then the future will be completed 
+     * exceptionally, with the <code>IOException</code> that caused 
+     * the failure. If the future is cancelled, then the load will
+     * be stopped.
+     * 
+     * @param path The path of the file
+     * @return The future that provides the {@link CSR}
+     * @throws NullPointerException If the path is <code>null</code>
+     */
+    public CompletableFuture<CSR> readCSR(Path path)
+    {
+        Objects.requireNonNull(path, "The path may not be null");
+        CompletableFuture<CSR> future = new CompletableFuture<CSR>();
+        Runnable task = () ->
+        {
+            if (future.isDone())
+            {
+                return;
+            }
+            try
+            {
+                future.complete(load(path, future));
+            }
+            catch (Throwable t)
+            {
+                future.completeExceptionally(t);
+            }
+        };
+        try
+        {
+            executor.execute(task);
+        }
+        catch (RejectedExecutionException e)
+        {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+    
+    /**
+     * Returns the maximum number of loads that may read from the disk 
+     * at the same time
+     * 
+     * @return The maximum number of concurrent reads
+     */
+    public int getMaxConcurrentReads()
+    {
+        return maxConcurrentReads;
+    }
+    
+    /**
+     * Read the {@link CSR} from the given file, stopping with a 
+     * <code>CancellationException</code> when the given future is
+     * cancelled.
+     * 
+     * @param path The path of the file
+     * @param future The future
+     * @return The {@link CSR}
+     * @throws IOException If an IO-error occurs
+     * @throws CancellationException If the future was cancelled
+     */
+    private CSR load(Path path, CompletableFuture<?> future) 
+        throws IOException
+    {
+        try (FileChannel fileChannel = 
+            FileChannel.open(path, StandardOpenOption.READ))
+        {
+            InputStream inputStream = new PermitInputStream(
+                Channels.newInputStream(fileChannel), future);
+            InputStream input = 
+                GzipInputStreams.decompressIfNecessary(inputStream);
+            CSRCallback callback = new CSRCallback();
+            MatrixMarketParser parser = new MatrixMarketParser(callback);
+            SegmentSource segmentSource = new StreamSegmentSource(input);
+            while (true)
+            {
+                checkCancelled(future);
+                ByteBuffer segment = segmentSource.nextSegment();
+                if (segment == null)
+                {
+                    break;
+                }
+                parser.parse(segment);
+            }
+            parser.finish();
+            return CSRs.canonicalize(callback.getCSR(), DuplicatePolicy.LAST);
+        }
+    }
+    
+    /**
+     * Throws a <code>CancellationException</code> if the given future 
+     * was cancelled
+     * 
+     * @param future The future
+     * @throws CancellationException If the future was cancelled
+     */
+    private static void checkCancelled(CompletableFuture<?> future)
+    {
+        if (future.isCancelled())
+        {
+            throw new CancellationException("The load was cancelled");
+        }
+    }
+    
+    /**
+     * An input stream that acquires one of the read permits for each 
+     * read operation of the underlying stream
+     */
+    private final class PermitInputStream extends InputStream
+    {
+        /**
+         * The delegate
+         */
+        private final InputStream delegate;
+        
+        /**
+         * The future of the load, to check for cancellation
+         */
+        private final CompletableFuture<?> future;
+        
+        /**
+         * Creates a new instance
+         * 
+         * @param delegate The delegate
+         * @param future The future of the load
+         */
+        PermitInputStream(InputStream delegate, CompletableFuture<?> future)
+        {
+            this.delegate = delegate;
+            this.future = future;
+        }
+        
+        @Override
+        public int read() throws IOException
+        {
+            byte b[] = new byte[1];
+            int n = read(b, 0, 1);
+            if (n <= 0)
+            {
+                return -1;
+            }
+            return b[0] & 0xFF;
+        }
+        
+        @Override
+        public int read(byte b[], int off, int len) throws IOException
+        {
+            acquire();
+            try
+            {
+                return delegate.read(b, off, len);
+            }
+            finally
+            {
+                readPermits.release();
+            }
+        }
+        
+        /**
+         * Acquire a read permit, checking periodically whether the
+         * load was cancelled
+         * 
+         * @throws InterruptedIOException If the thread was interrupted
+         * @throws CancellationException If the load was cancelled
+         */
+        private void acquire() throws InterruptedIOException
+        {
+            try
+            {
+                while (!readPermits.tryAcquire(
+                    PERMIT_POLL_MILLIS, TimeUnit.MILLISECONDS))
+                {
+                    checkCancelled(future);
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(
+                    "Interrupted while waiting for a read permit");
+            }
+        }
+        
+        @Override
+        public void close() throws IOException
+        {
+            delegate.close();
+        }
+    }
+}
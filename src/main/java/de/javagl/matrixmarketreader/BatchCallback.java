@@ -0,0 +1,72 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+/**
+ * Interface for classes that may receive the data that is read by
+ * a {@link MatrixMarketReader} in blocks of elements.<br>
+ * <br>
+ * The arrays that are passed to 
+ * {@link #setMatrixElements(int[], int[], double[], int)} are owned
+ * by the reader, and will be reused for the next block. Implementations
+ * may not store references to these arrays.<br>
+ * <br>
+ * Existing {@link Callback} implementations can be used as a 
+ * <code>BatchCallback</code> via {@link BatchCallbacks#fromCallback}.
+ */
+public interface BatchCallback
+{
+    /**
+     * Will be called when the parsing process started for a matrix
+     * with the given {@link MatrixDescription}
+     * 
+     * @param matrixDescription The {@link MatrixDescription}
+     */
+    void startMatrix(MatrixDescription matrixDescription);
+    
+    /**
+     * Set the specified elements of the matrix
+     * 
+     * @param rowIndicesZeroBased The (zero-based) row indices
+     * @param columnIndicesZeroBased The (zero-based) column indices
+     * @param values The values. If the matrix is a {@link Field#COMPLEX}
+     * matrix, then this contains the real and imaginary parts of the
+     * values in an interleaved form, i.e. <code>2 * count</code> 
+     * elements. Otherwise, it contains <code>count</code> elements.
+     * For {@link Field#PATTERN} matrices, all values are 
+     * <code>1.0</code>.
+     * @param count The number of elements
+     */
+    void setMatrixElements(
+        int rowIndicesZeroBased[], int columnIndicesZeroBased[], 
+        double values[], int count);
+    
+    /**
+     * Will be called when reading the matrix finished
+     */
+    void finishMatrix();
+}
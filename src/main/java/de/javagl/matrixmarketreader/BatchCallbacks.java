@@ -0,0 +1,107 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.util.Objects;
+
+/**
+ * Methods related to {@link BatchCallback} instances
+ */
+public class BatchCallbacks
+{
+    /**
+     * Creates a {@link BatchCallback} that passes all elements to the 
+     * given {@link Callback}, one by one. For {@link Field#REAL} and 
+     * {@link Field#PATTERN} matrices, the imaginary value that is passed
+     * to the callback will be <code>NaN</code>. For {@link Field#INTEGER}
+     * matrices, it will be <code>0.0</code>. For {@link Field#PATTERN}
+     * matrices, the real value will be <code>1.0</code>.
+     * 
+     * @param callback The {@link Callback}
+     * @return The {@link BatchCallback}
+     * @throws NullPointerException If the given callback is <code>null</code>
+     */
+    public static BatchCallback fromCallback(Callback callback)
+    {
+        Objects.requireNonNull(callback, "The callback may not be null");
+        return new BatchCallback()
+        {
+            /**
+             * The {@link Field} of the matrix
+             */
+            private Field field;
+            
+            @Override
+            public void startMatrix(MatrixDescription matrixDescription)
+            {
+                field = matrixDescription.getField();
+                callback.startMatrix(matrixDescription);
+            }
+
+            @Override
+            public void setMatrixElements(
+                int rowIndicesZeroBased[], int columnIndicesZeroBased[], 
+                double values[], int count)
+            {
+                if (field == Field.COMPLEX)
+                {
+                    for (int i = 0; i < count; i++)
+                    {
+                        callback.setMatrixElement(
+                            rowIndicesZeroBased[i], columnIndicesZeroBased[i],
+                            values[i + i + 0], values[i + i + 1]);
+                    }
+                }
+                else
+                {
+                    double value1 = 
+                        (field == Field.INTEGER) ? 0.0 : Double.NaN;
+                    for (int i = 0; i < count; i++)
+                    {
+                        callback.setMatrixElement(
+                            rowIndicesZeroBased[i], columnIndicesZeroBased[i],
+                            values[i], value1);
+                    }
+                }
+            }
+
+            @Override
+            public void finishMatrix()
+            {
+                callback.finishMatrix();
+            }
+        };
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private BatchCallbacks()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+/**
+ * Implementation of a {@link TwoPassCSRCallback} that creates a 
+ * {@link BigCSR}. The same input has to be passed to this callback 
+ * twice.
+ */
+class BigCSRCallback extends TwoPassCSRCallback
+{
+    /**
+     * The column indices
+     */
+    private BigIntArray columnIndices;
+    
+    /**
+     * The values
+     */
+    private BigDoubleArray values;
+    
+    /**
+     * The {@link BigCSR} that was created at the end of the second pass
+     */
+    private BigCSR bigCSR;
+    
+    @Override
+    protected void allocate(long numEntries)
+    {
+        columnIndices = new BigIntArray(numEntries);
+        if (!isPattern())
+        {
+            values = new BigDoubleArray(
+                isComplex() ? numEntries + numEntries : numEntries);
+        }
+        bigCSR = null;
+    }
+    
+    @Override
+    protected void setColumnIndex(long position, int columnIndex)
+    {
+        columnIndices.set(position, columnIndex);
+    }
+    
+    @Override
+    protected void setValue(long index, double value)
+    {
+        values.set(index, value);
+    }
+    
+    @Override
+    protected void finish(int numRows, int numCols, long rowPointers[])
+    {
+        bigCSR = new BigCSR();
+        bigCSR.numRows = numRows;
+        bigCSR.numCols = numCols;
+        bigCSR.values = values;
+        bigCSR.columnIndices = columnIndices;
+        bigCSR.rowPointers = rowPointers;
+        values = null;
+        columnIndices = null;
+    }
+    
+    /**
+     * Returns the {@link BigCSR} that was created at the end of the 
+     * second pass, or <code>null</code> if this callback did not yet 
+     * receive the appropriate calls
+     *  
+     * @return The {@link BigCSR}
+     */
+    BigCSR getBigCSR()
+    {
+        return bigCSR;
+    }
+}
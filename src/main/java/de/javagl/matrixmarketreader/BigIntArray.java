@@ -0,0 +1,151 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+/**
+ * A simple array of <code>int</code> values that is indexed with 
+ * <code>long</code> values, and thus, may contain more elements than 
+ * a plain Java array. The elements are stored in chunks, which are 
+ * plain arrays of the same length (except for the last one).<br>
+ * <br>
+ * Like {@link CSR}, this class is only intended for transporting the
+ * data into a proper matrix library. The chunks may be obtained with 
+ * {@link #getChunk(int)} to access the data in bulk.
+ */
+public final class BigIntArray
+{
+    /**
+     * The binary logarithm of the chunk size
+     */
+    static final int CHUNK_SHIFT = 27;
+    
+    /**
+     * The number of elements in each chunk (except for the last one)
+     */
+    public static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    
+    /**
+     * The mask for computing the index inside a chunk
+     */
+    private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+    
+    /**
+     * The size of this array
+     */
+    private final long size;
+    
+    /**
+     * The chunks
+     */
+    private final int chunks[][];
+    
+    /**
+     * Creates a new array with the given size
+     * 
+     * @param size The size
+     * @throws IllegalArgumentException If the size is negative
+     */
+    public BigIntArray(long size)
+    {
+        if (size < 0)
+        {
+            throw new IllegalArgumentException(
+                "The size may not be negative, but is " + size);
+        }
+        this.size = size;
+        int numChunks = (int) ((size + CHUNK_MASK) >>> CHUNK_SHIFT);
+        this.chunks = new int[numChunks][];
+        for (int i = 0; i < numChunks; i++)
+        {
+            long remaining = size - ((long) i << CHUNK_SHIFT);
+            chunks[i] = new int[(int) Math.min(remaining, CHUNK_SIZE)];
+        }
+    }
+    
+    /**
+     * Returns the size of this array
+     * 
+     * @return The size
+     */
+    public long size()
+    {
+        return size;
+    }
+    
+    /**
+     * Returns the element at the given index
+     * 
+     * @param index The index
+     * @return The element
+     * @throws IndexOutOfBoundsException If the index is negative or not 
+     * smaller than the {@link #size()}
+     */
+    public int get(long index)
+    {
+        int chunkIndex = (int) (index >>> CHUNK_SHIFT);
+        return chunks[chunkIndex][(int) (index & CHUNK_MASK)];
+    }
+    
+    /**
+     * Set the element at the given index
+     * 
+     * @param index The index
+     * @param value The value
+     * @throws IndexOutOfBoundsException If the index is negative or not 
+     * smaller than the {@link #size()}
+     */
+    public void set(long index, int value)
+    {
+        int chunkIndex = (int) (index >>> CHUNK_SHIFT);
+        chunks[chunkIndex][(int) (index & CHUNK_MASK)] = value;
+    }
+    
+    /**
+     * Returns the number of chunks of this array
+     * 
+     * @return The number of chunks
+     */
+    public int getNumChunks()
+    {
+        return chunks.length;
+    }
+    
+    /**
+     * Returns a reference to the chunk with the given index. The chunk 
+     * with index <code>i</code> contains the elements starting at index
+     * <code>i * CHUNK_SIZE</code>.
+     * 
+     * @param chunkIndex The chunk index
+     * @return The chunk
+     * @throws IndexOutOfBoundsException If the index is negative or not 
+     * smaller than the {@link #getNumChunks() number of chunks}
+     */
+    public int[] getChunk(int chunkIndex)
+    {
+        return chunks[chunkIndex];
+    }
+}
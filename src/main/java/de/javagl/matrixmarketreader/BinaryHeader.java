@@ -0,0 +1,265 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The header of a binary matrix file, as written by 
+ * {@link MatrixMarketBinary}.<br>
+ * <br>
+ * The header has a fixed size of {@link #SIZE} bytes, and contains the 
+ * following little-endian values:
+ * <pre><code>
+ *  0  byte[8] The magic bytes "MMBINARY"
+ *  8  int     The version
+ * 12  int     The kind of the data ({@link #KIND_CSR} or {@link #KIND_COO})
+ * 16  int     The ordinal of the {@link Format}, or -1
+ * 20  int     The ordinal of the {@link Field}, or -1
+ * 24  int     The ordinal of the {@link Symmetry}, or -1
+ * 28  int     The number of rows
+ * 32  int     The number of columns
+ * 36  int     The ordinal of the {@link Symmetry} of the stored entries
+ * 40  long    The number of entries
+ * 48  long    The number of values, or -1 if there are no values
+ * 56  long    The size of the source file
+ * 64  long    The last modification time of the source file
+ * 72  long    The checksum of the source file
+ * 80  long    The number of non-zero elements of the 
+ *             {@link MatrixDescription}, or -1
+ * </code></pre>
+ * The remaining bytes are reserved, and filled with zeros.
+ */
+final class BinaryHeader
+{
+    /**
+     * The size of the header, in bytes
+     */
+    static final int SIZE = 128;
+    
+    /**
+     * The current version
+     */
+    static final int VERSION = 1;
+    
+    /**
+     * The kind for {@link CSR} data
+     */
+    static final int KIND_CSR = 1;
+    
+    /**
+     * The kind for {@link COO} data
+     */
+    static final int KIND_COO = 2;
+    
+    /**
+     * The magic bytes at the start of the file
+     */
+    private static final byte MAGIC[] = 
+        "MMBINARY".getBytes(StandardCharsets.US_ASCII);
+    
+    /**
+     * The kind of the data
+     */
+    int kind;
+    
+    /**
+     * The {@link MatrixDescription}, or <code>null</code> if it is not
+     * known
+     */
+    MatrixDescription matrixDescription;
+    
+    /**
+     * The number of rows
+     */
+    int numRows;
+    
+    /**
+     * The number of columns
+     */
+    int numCols;
+    
+    /**
+     * The {@link Symmetry} of the stored entries. This is not
+     * {@link Symmetry#GENERAL} for a {@link CSR} that only stores the
+     * entries of one triangle.
+     */
+    Symmetry storedSymmetry = Symmetry.GENERAL;
+    
+    /**
+     * The number of entries
+     */
+    long numEntries;
+    
+    /**
+     * The number of values, or -1 if there are no values
+     */
+    long numValues;
+    
+    /**
+     * The size of the source file, or 0 if it is not known
+     */
+    long sourceSize;
+    
+    /**
+     * The last modification time of the source file, in milliseconds,
+     * or 0 if it is not known
+     */
+    long sourceLastModified;
+    
+    /**
+     * The checksum of the source file, or 0 if it is not known
+     */
+    long sourceChecksum;
+    
+    /**
+     * Write this header into the given channel, at position 0
+     * 
+     * @param fileChannel The file channel
+     * @throws IOException If an IO-error occurs
+     */
+    void write(FileChannel fileChannel) throws IOException
+    {
+        ByteBuffer buffer = 
+            ByteBuffer.allocate(SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(kind);
+        if (matrixDescription != null)
+        {
+            buffer.putInt(matrixDescription.getFormat().ordinal());
+            buffer.putInt(matrixDescription.getField().ordinal());
+            buffer.putInt(matrixDescription.getSymmetry().ordinal());
+        }
+        else
+        {
+            buffer.putInt(-1);
+            buffer.putInt(-1);
+            buffer.putInt(-1);
+        }
+        buffer.putInt(numRows);
+        buffer.putInt(numCols);
+        buffer.putInt(storedSymmetry.ordinal());
+        buffer.putLong(numEntries);
+        buffer.putLong(numValues);
+        buffer.putLong(sourceSize);
+        buffer.putLong(sourceLastModified);
+        buffer.putLong(sourceChecksum);
+        if (matrixDescription != null)
+        {
+            buffer.putLong(matrixDescription.getNumNonZerosLong());
+        }
+        else
+        {
+            buffer.putLong(-1);
+        }
+        buffer.clear();
+        while (buffer.hasRemaining())
+        {
+            fileChannel.write(buffer, buffer.position());
+        }
+    }
+    
+    /**
+     * Read the header from the given channel, starting at position 0
+     * 
+     * @param fileChannel The file channel
+     * @return The header
+     * @throws IOException If an IO-error occurs, or the channel does not
+     * start with a valid header
+     */
+    static BinaryHeader read(FileChannel fileChannel) throws IOException
+    {
+        ByteBuffer buffer = 
+            ByteBuffer.allocate(SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining())
+        {
+            if (fileChannel.read(buffer, buffer.position()) < 0)
+            {
+                throw new IOException(
+                    "Unexpected end of input: Incomplete binary header");
+            }
+        }
+        buffer.flip();
+        byte magic[] = new byte[MAGIC.length];
+        buffer.get(magic);
+        for (int i = 0; i < MAGIC.length; i++)
+        {
+            if (magic[i] != MAGIC[i])
+            {
+                throw new IOException("Not a binary matrix file");
+            }
+        }
+        int version = buffer.getInt();
+        if (version != VERSION)
+        {
+            throw new IOException("Unsupported version: " + version);
+        }
+        BinaryHeader header = new BinaryHeader();
+        header.kind = buffer.getInt();
+        int format = buffer.getInt();
+        int field = buffer.getInt();
+        int symmetry = buffer.getInt();
+        header.numRows = buffer.getInt();
+        header.numCols = buffer.getInt();
+        int storedSymmetry = buffer.getInt();
+        header.numEntries = buffer.getLong();
+        header.numValues = buffer.getLong();
+        header.sourceSize = buffer.getLong();
+        header.sourceLastModified = buffer.getLong();
+        header.sourceChecksum = buffer.getLong();
+        long numNonZeros = buffer.getLong();
+        if (header.numRows < 0 || header.numCols < 0 || 
+            header.numEntries < 0 || header.numValues < -1)
+        {
+            throw new IOException("Invalid binary header");
+        }
+        try
+        {
+            header.storedSymmetry = Symmetry.values()[storedSymmetry];
+            if (format >= 0)
+            {
+                MatrixDescription matrixDescription = new MatrixDescription();
+                matrixDescription.setFormat(Format.values()[format]);
+                matrixDescription.setField(Field.values()[field]);
+                matrixDescription.setSymmetry(Symmetry.values()[symmetry]);
+                matrixDescription.setSize(
+                    header.numRows, header.numCols, numNonZeros);
+                header.matrixDescription = matrixDescription;
+            }
+        }
+        catch (ArrayIndexOutOfBoundsException e)
+        {
+            throw new IOException("Invalid binary header", e);
+        }
+        return header;
+    }
+}
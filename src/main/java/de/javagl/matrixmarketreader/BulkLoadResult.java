@@ -0,0 +1,119 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.nio.file.Path;
+
+/**
+ * Simple representation of the result of loading a single file with
+ * {@link MatrixMarketBulkLoader}. This class does not offer any form 
+ * of encapsulation.<br>
+ * <br>
+ * When the file was loaded successfully, then the {@link #csr} is not 
+ * <code>null</code>, and the {@link #error} is <code>null</code>. 
+ * Otherwise, the {@link #csr} is <code>null</code>, and the 
+ * {@link #error} is the exception that caused the failure.
+ */
+public class BulkLoadResult
+{
+    /**
+     * The path of the file
+     */
+    public Path path;
+    
+    /**
+     * The {@link MatrixDescription} from the header of the file. This is
+     * <code>null</code> if the header could not be read.
+     */
+    public MatrixDescription matrixDescription;
+    
+    /**
+     * The {@link CSR}, or <code>null</code> if the file could not be 
+     * loaded
+     */
+    public CSR csr;
+    
+    /**
+     * The exception that caused the failure, or <code>null</code> if the
+     * file was loaded successfully. If loading the file caused an 
+     * <code>OutOfMemoryError</code>, then this is an 
+     * <code>ExecutionException</code> whose cause is the error.
+     */
+    public Exception error;
+    
+    /**
+     * The size of the file, in bytes. For gzip-compressed files, this
+     * is the compressed size.
+     */
+    public long numFileBytes;
+    
+    /**
+     * The number of elements of the {@link CSR}
+     */
+    public long numElements;
+    
+    /**
+     * The estimated peak memory consumption of loading the file, in 
+     * bytes, that was charged against the heap budget of the loader
+     */
+    public long estimatedBytes;
+    
+    /**
+     * The time that was spent for loading the file, in nanoseconds
+     */
+    public long durationNanos;
+    
+    /**
+     * Returns the number of bytes of the file that have been read per 
+     * second, or 0 if the duration is 0
+     * 
+     * @return The bytes per second
+     */
+    public double getBytesPerSecond()
+    {
+        if (durationNanos == 0)
+        {
+            return 0.0;
+        }
+        return numFileBytes * 1e9 / durationNanos;
+    }
+    
+    /**
+     * Returns the number of elements that have been read per second, 
+     * or 0 if the duration is 0
+     * 
+     * @return The elements per second
+     */
+    public double getElementsPerSecond()
+    {
+        if (durationNanos == 0)
+        {
+            return 0.0;
+        }
+        return numElements * 1e9 / durationNanos;
+    }
+}
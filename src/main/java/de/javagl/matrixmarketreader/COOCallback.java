@@ -0,0 +1,124 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Implementation of a {@link BatchCallback} that collects the elements of 
+ * a sparse matrix in primitive coordinate arrays, and creates a 
+ * {@link COO} from them when the matrix is finished.<br>
+ * <br>
+ * For matrices that are not {@link Symmetry#GENERAL}, the elements will
+ * be mirrored at the diagonal, so that the resulting {@link COO} contains
+ * the full matrix. 
+ */
+class COOCallback extends CoordinateCallback
+{
+    /**
+     * The {@link COO} that was created in {@link #finishMatrix()}
+     */
+    private COO coo;
+    
+    @Override
+    public void startMatrix(MatrixDescription matrixDescription)
+    {
+        super.startMatrix(matrixDescription);
+        coo = null;
+    }
+
+    @Override
+    public void finishMatrix()
+    {
+        reportExpansion(Collections.singletonList(this));
+        MatrixDescription matrixDescription = getMatrixDescription();
+        int numEntries = getNumEntries();
+        int numValues = isComplex() ? numEntries * 2 : numEntries;
+        coo = new COO();
+        coo.numRows = matrixDescription.getNumRows();
+        coo.numCols = matrixDescription.getNumCols();
+        
+        // The arrays are pre-sized, so that they usually can be used 
+        // directly. They only have to be trimmed if fewer elements 
+        // have been read (or mirrored) than expected
+        coo.rowIndices = trim(getRowIndices(), numEntries);
+        coo.columnIndices = trim(getColumnIndices(), numEntries);
+        if (getValues() != null)
+        {
+            coo.values = trim(getValues(), numValues);
+        }
+        release();
+    }
+    
+    /**
+     * Returns the given array if it has the given length, or a copy
+     * of the array with the given length otherwise
+     * 
+     * @param array The array
+     * @param length The length
+     * @return The array with the given length
+     */
+    private static int[] trim(int array[], int length)
+    {
+        if (array.length == length)
+        {
+            return array;
+        }
+        return Arrays.copyOf(array, length);
+    }
+    
+    /**
+     * Returns the given array if it has the given length, or a copy
+     * of the array with the given length otherwise
+     * 
+     * @param array The array
+     * @param length The length
+     * @return The array with the given length
+     */
+    private static double[] trim(double array[], int length)
+    {
+        if (array.length == length)
+        {
+            return array;
+        }
+        return Arrays.copyOf(array, length);
+    }
+    
+    /**
+     * Returns the {@link COO} that was created when the matrix was 
+     * finished, or <code>null</code> if this callback did not yet 
+     * receive the appropriate calls
+     *  
+     * @return The {@link COO}
+     */
+    COO getCOO()
+    {
+        return coo;
+    }
+
+}
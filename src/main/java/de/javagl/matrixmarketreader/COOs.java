@@ -0,0 +1,128 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+/**
+ * Methods to convert {@link COO} instances into other formats
+ */
+public class COOs
+{
+    /**
+     * Convert the given {@link COO} into a {@link CSR}.<br>
+     * <br>
+     * This will perform a counting pass over the row indices, and then
+     * scatter the column indices and values into the rows of the 
+     * resulting {@link CSR}, in O(numEntries + numRows). The entries of
+     * each row will appear in the same order as in the {@link COO}.
+     * 
+     * @param coo The {@link COO}
+     * @return The {@link CSR}
+     */
+    public static CSR toCSR(COO coo)
+    {
+        int numEntries = coo.rowIndices.length;
+        CSR csr = new CSR();
+        csr.numRows = coo.numRows;
+        csr.numCols = coo.numCols;
+        csr.rowPointers = new int[coo.numRows + 1];
+        csr.columnIndices = new int[numEntries];
+        csr.values = createValues(coo);
+        CSRs.compress(coo.numRows, 
+            new int[][] { coo.rowIndices }, 
+            new int[][] { coo.columnIndices }, 
+            new double[][] { coo.values }, 
+            new int[] { numEntries }, isComplex(coo), 
+            csr.rowPointers, csr.columnIndices, csr.values);
+        return csr;
+    }
+    
+    /**
+     * Convert the given {@link COO} into a {@link CSC}.<br>
+     * <br>
+     * This will perform a counting pass over the column indices, and then
+     * scatter the row indices and values into the columns of the 
+     * resulting {@link CSC}, in O(numEntries + numCols). The entries of
+     * each column will appear in the same order as in the {@link COO}.
+     * 
+     * @param coo The {@link COO}
+     * @return The {@link CSC}
+     */
+    public static CSC toCSC(COO coo)
+    {
+        int numEntries = coo.rowIndices.length;
+        CSC csc = new CSC();
+        csc.numRows = coo.numRows;
+        csc.numCols = coo.numCols;
+        csc.columnPointers = new int[coo.numCols + 1];
+        csc.rowIndices = new int[numEntries];
+        csc.values = createValues(coo);
+        CSRs.compress(coo.numCols, 
+            new int[][] { coo.columnIndices }, 
+            new int[][] { coo.rowIndices }, 
+            new double[][] { coo.values }, 
+            new int[] { numEntries }, isComplex(coo), 
+            csc.columnPointers, csc.rowIndices, csc.values);
+        return csc;
+    }
+    
+    /**
+     * Returns whether the given {@link COO} contains complex values,
+     * i.e. two values for each entry
+     * 
+     * @param coo The {@link COO}
+     * @return Whether the values are complex
+     */
+    private static boolean isComplex(COO coo)
+    {
+        return coo.values != null && coo.values.length > coo.rowIndices.length;
+    }
+    
+    /**
+     * Creates the array for the values of the conversion result of the 
+     * given {@link COO}, or returns <code>null</code> if the given
+     * {@link COO} does not have values
+     * 
+     * @param coo The {@link COO}
+     * @return The values array
+     */
+    private static double[] createValues(COO coo)
+    {
+        if (coo.values == null)
+        {
+            return null;
+        }
+        return new double[coo.values.length];
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private COOs()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
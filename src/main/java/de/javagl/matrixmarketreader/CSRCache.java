@@ -0,0 +1,482 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A thread-safe cache for {@link CSR} instances that are read from 
+ * MatrixMarket files with {@link MatrixMarketCSR#readCSR(Path)}.<br>
+ * <br>
+ * The entries are identified by the absolute path of the file, and 
+ * are only returned as long as the last modification time and the 
+ * size of the file did not change. The total size of the arrays of
+ * the cached {@link CSR} instances is limited by a byte budget. When 
+ * the budget is exceeded, then the least recently used entries are 
+ * evicted. When multiple threads request the same file concurrently, 
+ * then the file is only read once, and all threads receive the same
+ * {@link CSR}.<br>
+ * <br>
+ * The {@link CSR} instances that are returned are shared between all
+ * callers, and may not be modified.
+ */
+public final class CSRCache
+{
+    /**
+     * An entry of the cache
+     */
+    private static final class Entry
+    {
+        /**
+         * The last modification time of the file, in milliseconds
+         */
+        final long lastModified;
+        
+        /**
+         * The size of the file
+         */
+        final long fileSize;
+        
+        /**
+         * The {@link CSR}
+         */
+        final CSR csr;
+        
+        /**
+         * The number of bytes of the arrays of the {@link CSR}
+         */
+        final long numBytes;
+        
+        /**
+         * Creates a new instance
+         * 
+         * @param lastModified The last modification time of the file
+         * @param fileSize The size of the file
+         * @param csr The {@link CSR}
+         */
+        Entry(long lastModified, long fileSize, CSR csr)
+        {
+            this.lastModified = lastModified;
+            this.fileSize = fileSize;
+            this.csr = csr;
+            this.numBytes = computeNumBytes(csr);
+        }
+    }
+    
+    /**
+     * The key for a file that is currently being loaded
+     */
+    private static final class Key
+    {
+        /**
+         * The path of the file
+         */
+        private final Path path;
+        
+        /**
+         * The last modification time of the file, in milliseconds
+         */
+        private final long lastModified;
+        
+        /**
+         * The size of the file
+         */
+        private final long fileSize;
+        
+        /**
+         * Creates a new instance
+         * 
+         * @param path The path of the file
+         * @param lastModified The last modification time of the file
+         * @param fileSize The size of the file
+         */
+        Key(Path path, long lastModified, long fileSize)
+        {
+            this.path = path;
+            this.lastModified = lastModified;
+            this.fileSize = fileSize;
+        }
+        
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(path, lastModified, fileSize);
+        }
+        
+        @Override
+        public boolean equals(Object object)
+        {
+            if (this == object)
+            {
+                return true;
+            }
+            if (!(object instanceof Key))
+            {
+                return false;
+            }
+            Key other = (Key) object;
+            return path.equals(other.path) && 
+                lastModified == other.lastModified && 
+                fileSize == other.fileSize;
+        }
+    }
+    
+    /**
+     * The maximum number of bytes of all cached {@link CSR} instances
+     */
+    private final long maxNumBytes;
+    
+    /**
+     * The entries, in access order
+     */
+    private final LinkedHashMap<Path, Entry> entries;
+    
+    /**
+     * The futures for the files that are currently being loaded
+     */
+    private final Map<Key, CompletableFuture<CSR>> loads;
+    
+    /**
+     * The number of bytes of all cached {@link CSR} instances
+     */
+    private long numBytes;
+    
+    /**
+     * The number of requests that have been answered without reading
+     * the file
+     */
+    private long hitCount;
+    
+    /**
+     * The number of requests that caused the file to be read
+     */
+    private long missCount;
+    
+    /**
+     * The number of entries that have been evicted
+     */
+    private long evictionCount;
+    
+    /**
+     * Creates a new cache with the given byte budget
+     * 
+     * @param maxNumBytes The maximum number of bytes for the arrays of 
+     * all cached {@link CSR} instances
+     * @throws IllegalArgumentException If the given number is negative
+     */
+    public CSRCache(long maxNumBytes)
+    {
+        if (maxNumBytes < 0)
+        {
+            throw new IllegalArgumentException(
+                "The maximum number of bytes may not be negative, but is "
+                + maxNumBytes);
+        }
+        this.maxNumBytes = maxNumBytes;
+        this.entries = new LinkedHashMap<Path, Entry>(16, 0.75f, true);
+        this.loads = new HashMap<Key, CompletableFuture<CSR>>();
+    }
+    
+    /**
+     * Returns the {@link CSR} for the MatrixMarket file with the given 
+     * path.<br>
+     * <br>
+     * If the cache contains a {@link CSR} for the file, and the last 
+     * modification time and size of the file did not change since it 
+     * was read, then the cached {@link CSR} is returned. Otherwise, the 
+     * file is read with {@link MatrixMarketCSR#readCSR(Path)}. If another
+     * thread is already reading the same file, then this method will 
+     * wait for the result of the other thread.<br>
+     * <br>
+     * A {@link CSR} that is larger than the byte budget of this cache
+     * will be returned, but not be cached.
+     * 
+     * @param path The path of the file
+     * @return The {@link CSR}
+     * @throws IOException If an IO-error occurs
+     */
+    public CSR get(Path path) throws IOException
+    {
+        Path absolutePath = path.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(
+            absolutePath, BasicFileAttributes.class);
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        long fileSize = attributes.size();
+        Key key = new Key(absolutePath, lastModified, fileSize);
+        CompletableFuture<CSR> future;
+        boolean loading = false;
+        synchronized (this)
+        {
+            Entry entry = entries.get(absolutePath);
+            if (entry != null && entry.lastModified == lastModified && 
+                entry.fileSize == fileSize)
+            {
+                hitCount++;
+                return entry.csr;
+            }
+            future = loads.get(key);
+            if (future != null)
+            {
+                hitCount++;
+            }
+            else
+            {
+                missCount++;
+                future = new CompletableFuture<CSR>();
+                loads.put(key, future);
+                loading = true;
+            }
+        }
+        if (loading)
+        {
+            return load(key, future);
+        }
+        return join(future);
+    }
+    
+    /**
+     * Read the file for the given key, store the result in the cache,
+     * and complete the given future with the result
+     * 
+     * @param key The key
+     * @param future The future
+     * @return The {@link CSR}
+     * @throws IOException If an IO-error occurs
+     */
+    private CSR load(Key key, CompletableFuture<CSR> future) 
+        throws IOException
+    {
+        try
+        {
+            CSR csr = MatrixMarketCSR.readCSR(key.path);
+            synchronized (this)
+            {
+                loads.remove(key);
+                put(key, csr);
+            }
+            future.complete(csr);
+            return csr;
+        }
+        catch (Throwable t)
+        {
+            synchronized (this)
+            {
+                loads.remove(key);
+            }
+            future.completeExceptionally(t);
+            throw t;
+        }
+    }
+    
+    /**
+     * Store the given {@link CSR} in the cache, replacing any previous
+     * entry for the same path, and evict the least recently used entries
+     * until the byte budget is no longer exceeded. 
+     * 
+     * @param key The key
+     * @param csr The {@link CSR}
+     */
+    private void put(Key key, CSR csr)
+    {
+        Entry oldEntry = entries.remove(key.path);
+        if (oldEntry != null)
+        {
+            numBytes -= oldEntry.numBytes;
+        }
+        Entry entry = new Entry(key.lastModified, key.fileSize, csr);
+        if (entry.numBytes > maxNumBytes)
+        {
+            return;
+        }
+        entries.put(key.path, entry);
+        numBytes += entry.numBytes;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (numBytes > maxNumBytes && iterator.hasNext())
+        {
+            Entry eldest = iterator.next();
+            iterator.remove();
+            numBytes -= eldest.numBytes;
+            evictionCount++;
+        }
+    }
+    
+    /**
+     * Remove the entry for the given path from this cache
+     * 
+     * @param path The path of the file
+     */
+    public synchronized void invalidate(Path path)
+    {
+        Entry entry = entries.remove(path.toAbsolutePath().normalize());
+        if (entry != null)
+        {
+            numBytes -= entry.numBytes;
+        }
+    }
+    
+    /**
+     * Remove all entries from this cache. Files that are currently being 
+     * read will still be stored in the cache afterwards.
+     */
+    public synchronized void clear()
+    {
+        entries.clear();
+        numBytes = 0;
+    }
+    
+    /**
+     * Returns the number of entries in this cache
+     * 
+     * @return The number of entries
+     */
+    public synchronized int getNumEntries()
+    {
+        return entries.size();
+    }
+    
+    /**
+     * Returns the number of bytes of the arrays of all {@link CSR} 
+     * instances in this cache
+     * 
+     * @return The number of bytes
+     */
+    public synchronized long getNumBytes()
+    {
+        return numBytes;
+    }
+    
+    /**
+     * Returns the maximum number of bytes of the arrays of all {@link CSR} 
+     * instances in this cache
+     * 
+     * @return The maximum number of bytes
+     */
+    public long getMaxNumBytes()
+    {
+        return maxNumBytes;
+    }
+    
+    /**
+     * Returns the number of calls to {@link #get(Path)} that returned
+     * without reading the file. This includes the calls that waited
+     * for another thread that was reading the same file.
+     * 
+     * @return The hit count
+     */
+    public synchronized long getHitCount()
+    {
+        return hitCount;
+    }
+    
+    /**
+     * Returns the number of calls to {@link #get(Path)} that caused the 
+     * file to be read
+     * 
+     * @return The miss count
+     */
+    public synchronized long getMissCount()
+    {
+        return missCount;
+    }
+    
+    /**
+     * Returns the number of entries that have been evicted from this 
+     * cache because the byte budget was exceeded
+     * 
+     * @return The eviction count
+     */
+    public synchronized long getEvictionCount()
+    {
+        return evictionCount;
+    }
+    
+    /**
+     * Compute the number of bytes of the arrays of the given {@link CSR}
+     * 
+     * @param csr The {@link CSR}
+     * @return The number of bytes
+     */
+    static long computeNumBytes(CSR csr)
+    {
+        long n = 0;
+        n += 4L * csr.rowPointers.length;
+        n += 4L * csr.columnIndices.length;
+        if (csr.values != null)
+        {
+            n += 8L * csr.values.length;
+        }
+        return n;
+    }
+    
+    /**
+     * Wait for the given future to complete, and return its result
+     * 
+     * @param future The future
+     * @return The result
+     * @throws IOException If reading the file caused an IOException, or
+     * waiting was interrupted
+     */
+    private static CSR join(CompletableFuture<CSR> future) throws IOException
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a read", e);
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+            {
+                throw new IOException(cause.getMessage(), cause);
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
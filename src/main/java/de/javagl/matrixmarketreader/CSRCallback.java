@@ -0,0 +1,98 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.util.Collections;
+
+/**
+ * Implementation of a {@link Callback} that collects the elements of a
+ * sparse matrix in primitive coordinate arrays, and creates a {@link CSR}
+ * from them when the matrix is finished. The memory requirements are 
+ * proportional to the number of non-zero elements of the matrix.<br>
+ * <br>
+ * For matrices that are not {@link Symmetry#GENERAL}, the elements will
+ * be mirrored at the diagonal by default, so that the resulting 
+ * {@link CSR} contains the full matrix. Otherwise, the {@link CSR} will
+ * only contain the stored triangle, and its {@link CSR#symmetry} will be
+ * the {@link Symmetry} of the matrix.
+ */
+class CSRCallback extends CoordinateCallback
+{
+    /**
+     * The {@link CSR} that was created in {@link #finishMatrix()}
+     */
+    private CSR csr;
+    
+    /**
+     * Creates a new instance that mirrors the elements of non-general
+     * matrices
+     */
+    CSRCallback()
+    {
+        this(true);
+    }
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param expandSymmetry Whether the elements of non-general matrices
+     * should be mirrored
+     */
+    CSRCallback(boolean expandSymmetry)
+    {
+        super(-1, false, expandSymmetry);
+    }
+    
+    @Override
+    public void startMatrix(MatrixDescription matrixDescription)
+    {
+        super.startMatrix(matrixDescription);
+        csr = null;
+    }
+
+    @Override
+    public void finishMatrix()
+    {
+        csr = CSRs.createCSR(getMatrixDescription(), 
+            Collections.singletonList(this));
+        csr.symmetry = getStoredSymmetry();
+        release();
+    }
+    
+    /**
+     * Returns the {@link CSR} that was created when the matrix was 
+     * finished, or <code>null</code> if this callback did not yet 
+     * receive the appropriate calls
+     *  
+     * @return The {@link CSR}
+     */
+    CSR getCSR()
+    {
+        return csr;
+    }
+
+}
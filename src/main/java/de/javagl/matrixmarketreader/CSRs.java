@@ -1,86 +1,897 @@
-/*
- * MatrixMarketReader - a simple reader for MatrixMarket files
- *
- * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
- *
- * Permission is hereby granted, free of charge, to any person
- * obtaining a copy of this software and associated documentation
- * files (the "Software"), to deal in the Software without
- * restriction, including without limitation the rights to use,
- * copy, modify, merge, publish, distribute, sublicense, and/or sell
- * copies of the Software, and to permit persons to whom the
- * Software is furnished to do so, subject to the following
- * conditions:
- *
- * The above copyright notice and this permission notice shall be
- * included in all copies or substantial portions of the Software.
- *
- * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
- * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
- * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
- * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
- * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
- * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
- * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
- * OTHER DEALINGS IN THE SOFTWARE.
- */
-package de.javagl.matrixmarketreader;
-
-/**
- * Methods to create {@link CSR} instances
- */
-class CSRs
-{
-    /**
-     * Create a new {@link CSR} from the given data
-     * 
-     * @param matrixDescription The {@link MatrixDescription}
-     * @param data The matrix data
-     * @param epsilon The epsilon - only values that are greater than
-     * or equal to this value will be considered as non-zero
-     * @return The {@link CSR}
-     */
-    static CSR createCSR(
-        MatrixDescription matrixDescription, double data[], double epsilon)
-    {
-        // Can't use the numNonZeros of matrix, because it may be symmetric....
-        int numNonZeros = 0;
-        for (int i=0; i<data.length; i++)
-        {
-            if (Math.abs(data[i]) >= epsilon)
-            {
-                numNonZeros++;
-            }
-        }
-        int numRows = matrixDescription.getNumRows();
-        int numCols = matrixDescription.getNumCols();
-        CSR csr = new CSR();
-        csr.numRows = numRows;
-        csr.numCols = numCols;
-        csr.values = new double[numNonZeros];
-        csr.columnIndices = new int[numNonZeros];
-        csr.rowPointers = new int[numRows + 1];
-        csr.rowPointers[csr.rowPointers.length - 1] = numNonZeros;
-        int index = 0;
-        for (int r = 0; r < numRows; r++)
-        {
-            boolean firstColumn = true;
-            for (int c = 0; c < numCols; c++)
-            {
-                double value = data[r + c * numRows];
-                if (Math.abs(value) >= epsilon)
-                {
-                    if (firstColumn)
-                    {
-                        csr.rowPointers[r] = index;
-                        firstColumn = false;
-                    }
-                    csr.values[index] = value;
-                    csr.columnIndices[index] = c;
-                    index++;
-                }
-            }
-        }
-        return csr;
-    }
-}
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Methods to create {@link CSR} instances
+ */
+class CSRs
+{
+    /**
+     * The maximum length of a row that is sorted with an insertion sort
+     * during canonicalization. Longer rows are sorted with a radix sort.
+     */
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+    
+    /**
+     * The number of bits of the column indices that are sorted in each
+     * pass of the radix sort
+     */
+    private static final int RADIX_BITS = 8;
+    
+    /**
+     * Create a new {@link CSR} from the given data
+     * 
+     * @param matrixDescription The {@link MatrixDescription}
+     * @param data The matrix data
+     * @param epsilon The epsilon - only values that are greater than
+     * or equal to this value will be considered as non-zero
+     * @return The {@link CSR}
+     */
+    static CSR createCSR(
+        MatrixDescription matrixDescription, double data[], double epsilon)
+    {
+        // Can't use the numNonZeros of matrix, because it may be symmetric....
+        long startNanos = System.nanoTime();
+        int numNonZeros = 0;
+        for (int i=0; i<data.length; i++)
+        {
+            if (Math.abs(data[i]) >= epsilon)
+            {
+                numNonZeros++;
+            }
+        }
+        int numRows = matrixDescription.getNumRows();
+        int numCols = matrixDescription.getNumCols();
+        CSR csr = new CSR();
+        csr.numRows = numRows;
+        csr.numCols = numCols;
+        csr.values = new double[numNonZeros];
+        csr.columnIndices = new int[numNonZeros];
+        csr.rowPointers = new int[numRows + 1];
+        csr.rowPointers[csr.rowPointers.length - 1] = numNonZeros;
+        int index = 0;
+        for (int r = 0; r < numRows; r++)
+        {
+            boolean firstColumn = true;
+            for (int c = 0; c < numCols; c++)
+            {
+                double value = data[r + c * numRows];
+                if (Math.abs(value) >= epsilon)
+                {
+                    if (firstColumn)
+                    {
+                        csr.rowPointers[r] = index;
+                        firstColumn = false;
+                    }
+                    csr.values[index] = value;
+                    csr.columnIndices[index] = c;
+                    index++;
+                }
+            }
+        }
+        ReadInstrumentation.phaseFinished(ReadPhase.CSR_BUILD, 
+            0, 0, 0, numNonZeros, startNanos);
+        return csr;
+    }
+    
+    /**
+     * Create a new {@link CSR} from the coordinate data that was collected
+     * in the given {@link CoordinateCallback} instances.<br>
+     * <br>
+     * This will perform a counting pass over the row indices, and then
+     * scatter the column indices and values into the rows of the
+     * resulting {@link CSR}. The entries of each row will appear in the
+     * order of the given callbacks, and in the order in which they
+     * have been passed to each callback.<br>
+     * <br>
+     * If the data is complex, then the values of the resulting {@link CSR}
+     * will contain the real and imaginary parts of the values in an 
+     * interleaved form. If the matrix is a {@link Field#PATTERN} matrix,
+     * then the values of the resulting {@link CSR} will be 
+     * <code>null</code>.
+     * 
+     * @param matrixDescription The {@link MatrixDescription}
+     * @param parts The {@link CoordinateCallback} instances
+     * @return The {@link CSR}
+     * @throws IllegalArgumentException If the total number of entries 
+     * exceeds the maximum array size
+     */
+    static CSR createCSR(MatrixDescription matrixDescription, 
+        List<? extends CoordinateCallback> parts)
+    {
+        CoordinateCallback.reportExpansion(parts);
+        long startNanos = System.nanoTime();
+        int numRows = matrixDescription.getNumRows();
+        boolean complex = matrixDescription.getField() == Field.COMPLEX;
+        int numEntries = computeNumEntries(parts);
+        
+        CSR csr = new CSR();
+        csr.numRows = numRows;
+        csr.numCols = matrixDescription.getNumCols();
+        csr.rowPointers = new int[numRows + 1];
+        csr.columnIndices = new int[numEntries];
+        if (matrixDescription.getField() != Field.PATTERN)
+        {
+            csr.values = new double[complex ? numEntries * 2 : numEntries];
+        }
+        
+        int numParts = parts.size();
+        int rowIndices[][] = new int[numParts][];
+        int columnIndices[][] = new int[numParts][];
+        double values[][] = new double[numParts][];
+        int counts[] = new int[numParts];
+        for (int p = 0; p < numParts; p++)
+        {
+            CoordinateCallback part = parts.get(p);
+            rowIndices[p] = part.getRowIndices();
+            columnIndices[p] = part.getColumnIndices();
+            values[p] = part.getValues();
+            counts[p] = part.getNumEntries();
+        }
+        compress(numRows, rowIndices, columnIndices, values, counts, complex,
+            csr.rowPointers, csr.columnIndices, csr.values);
+        ReadInstrumentation.phaseFinished(ReadPhase.CSR_BUILD, 
+            0, 0, 0, numEntries, startNanos);
+        return csr;
+    }
+    
+    /**
+     * Create a new {@link FloatCSR} from the coordinate data that was 
+     * collected in the given {@link CoordinateCallback} instances, which
+     * must store their values with single precision. Otherwise, this
+     * method behaves like {@link #createCSR(MatrixDescription, List)}.
+     * 
+     * @param matrixDescription The {@link MatrixDescription}
+     * @param parts The {@link CoordinateCallback} instances
+     * @return The {@link FloatCSR}
+     * @throws IllegalArgumentException If the total number of entries 
+     * exceeds the maximum array size
+     */
+    static FloatCSR createFloatCSR(MatrixDescription matrixDescription, 
+        List<? extends CoordinateCallback> parts)
+    {
+        CoordinateCallback.reportExpansion(parts);
+        long startNanos = System.nanoTime();
+        int numRows = matrixDescription.getNumRows();
+        boolean complex = matrixDescription.getField() == Field.COMPLEX;
+        int numEntries = computeNumEntries(parts);
+        
+        FloatCSR csr = new FloatCSR();
+        csr.numRows = numRows;
+        csr.numCols = matrixDescription.getNumCols();
+        csr.rowPointers = new int[numRows + 1];
+        csr.columnIndices = new int[numEntries];
+        if (matrixDescription.getField() != Field.PATTERN)
+        {
+            csr.values = new float[complex ? numEntries * 2 : numEntries];
+        }
+        
+        int numParts = parts.size();
+        int rowIndices[][] = new int[numParts][];
+        int columnIndices[][] = new int[numParts][];
+        float values[][] = new float[numParts][];
+        int counts[] = new int[numParts];
+        for (int p = 0; p < numParts; p++)
+        {
+            CoordinateCallback part = parts.get(p);
+            rowIndices[p] = part.getRowIndices();
+            columnIndices[p] = part.getColumnIndices();
+            values[p] = part.getFloatValues();
+            counts[p] = part.getNumEntries();
+        }
+        compress(numRows, rowIndices, columnIndices, values, counts, complex,
+            csr.rowPointers, csr.columnIndices, csr.values);
+        ReadInstrumentation.phaseFinished(ReadPhase.CSR_BUILD, 
+            0, 0, 0, numEntries, startNanos);
+        return csr;
+    }
+    
+    /**
+     * Expand the given {@link CSR}, which only contains one triangle of
+     * a matrix that is not {@link Symmetry#GENERAL}, into a new 
+     * {@link CSR} that contains the full matrix.<br>
+     * <br>
+     * Each row of the result contains the stored entries of this row, 
+     * followed by the mirrored entries, in ascending order of the rows
+     * that they have been mirrored from. So if the given {@link CSR} 
+     * contains the lower triangle with sorted column indices, as it is 
+     * usual for MatrixMarket files, then the column indices of the 
+     * result are sorted as well.<br>
+     * <br>
+     * If the given {@link CSR} is {@link Symmetry#GENERAL}, then it is
+     * returned directly.
+     * 
+     * @param csr The {@link CSR}
+     * @return The expanded {@link CSR}
+     * @throws IllegalArgumentException If the matrix is not square, or
+     * the expanded matrix has too many entries for a {@link CSR}
+     */
+    static CSR expand(CSR csr)
+    {
+        Symmetry symmetry = csr.symmetry;
+        if (symmetry == null || symmetry == Symmetry.GENERAL)
+        {
+            return csr;
+        }
+        long startNanos = System.nanoTime();
+        int numRows = csr.numRows;
+        if (csr.numCols != numRows)
+        {
+            throw new IllegalArgumentException("The " + symmetry 
+                + " matrix with " + numRows + " rows and " + csr.numCols 
+                + " columns is not square");
+        }
+        int rowPointers[] = csr.rowPointers;
+        int columnIndices[] = csr.columnIndices;
+        double values[] = csr.values;
+        int numEntries = rowPointers[numRows];
+        boolean complex = values != null && values.length > numEntries;
+        int stride = complex ? 2 : 1;
+        
+        // Count the stored and the mirrored entries of each row
+        int newRowPointers[] = new int[numRows + 1];
+        long newNumEntries = numEntries;
+        for (int r = 0; r < numRows; r++)
+        {
+            newRowPointers[r + 1] += rowPointers[r + 1] - rowPointers[r];
+            for (int j = rowPointers[r]; j < rowPointers[r + 1]; j++)
+            {
+                int c = columnIndices[j];
+                if (c != r)
+                {
+                    newRowPointers[c + 1]++;
+                    newNumEntries++;
+                }
+            }
+        }
+        if (newNumEntries * stride > Integer.MAX_VALUE - 8)
+        {
+            throw new IllegalArgumentException(
+                "Too many entries for a CSR: " + newNumEntries);
+        }
+        for (int r = 0; r < numRows; r++)
+        {
+            newRowPointers[r + 1] += newRowPointers[r];
+        }
+        
+        CSR result = new CSR();
+        result.numRows = numRows;
+        result.numCols = numRows;
+        result.rowPointers = newRowPointers;
+        result.columnIndices = new int[(int) newNumEntries];
+        if (values != null)
+        {
+            result.values = new double[(int) newNumEntries * stride];
+        }
+        
+        // Copy the stored entries to the start of each row
+        int offsets[] = new int[numRows];
+        for (int r = 0; r < numRows; r++)
+        {
+            int start = rowPointers[r];
+            int length = rowPointers[r + 1] - start;
+            int target = newRowPointers[r];
+            System.arraycopy(columnIndices, start, 
+                result.columnIndices, target, length);
+            if (values != null)
+            {
+                System.arraycopy(values, start * stride, 
+                    result.values, target * stride, length * stride);
+            }
+            offsets[r] = target + length;
+        }
+        
+        // Append the mirrored entries
+        double sign0 = (symmetry == Symmetry.SKEW_SYMMETRIC) ? -1.0 : 1.0;
+        double sign1 = (symmetry == Symmetry.SYMMETRIC) ? 1.0 : -1.0;
+        for (int r = 0; r < numRows; r++)
+        {
+            for (int j = rowPointers[r]; j < rowPointers[r + 1]; j++)
+            {
+                int c = columnIndices[j];
+                if (c == r)
+                {
+                    continue;
+                }
+                int target = offsets[c]++;
+                result.columnIndices[target] = r;
+                if (complex)
+                {
+                    result.values[target + target + 0] = 
+                        sign0 * values[j + j + 0];
+                    result.values[target + target + 1] = 
+                        sign1 * values[j + j + 1];
+                }
+                else if (values != null)
+                {
+                    result.values[target] = sign0 * values[j];
+                }
+            }
+        }
+        ReadInstrumentation.phaseFinished(ReadPhase.SYMMETRY_EXPANSION, 
+            0, 0, 0, newNumEntries - numEntries, startNanos);
+        return result;
+    }
+    
+    /**
+     * Canonicalize the given {@link CSR}, so that the column indices 
+     * within each row are sorted in ascending order, and each column 
+     * index appears at most once in each row.<br>
+     * <br>
+     * Rows with few entries are sorted with an insertion sort, and longer 
+     * rows with a radix sort, so that the time is linear in the number
+     * of entries. The sorting is stable, so that duplicate entries keep 
+     * the order in which they appear in the given {@link CSR}. They are
+     * then merged according to the given {@link DuplicatePolicy}. The 
+     * rows are processed in parallel, in ranges that contain a similar 
+     * number of entries.<br>
+     * <br>
+     * The arrays of the given {@link CSR} are modified. If it did not
+     * contain duplicates, then the given instance is returned. Otherwise,
+     * a new instance with the remaining entries is returned.
+     * 
+     * @param csr The {@link CSR}
+     * @param policy The {@link DuplicatePolicy}
+     * @return The canonical {@link CSR}
+     * @throws IOException If the policy is {@link DuplicatePolicy#ERROR}
+     * and the matrix contains duplicate entries
+     */
+    static CSR canonicalize(CSR csr, DuplicatePolicy policy) 
+        throws IOException
+    {
+        int numRows = csr.numRows;
+        int rowPointers[] = csr.rowPointers;
+        int numEntries = rowPointers[numRows];
+        if (numEntries == 0)
+        {
+            return csr;
+        }
+        int stride = csr.values == null ? 0 : csr.values.length / numEntries;
+        int numBits = 32 - Integer.numberOfLeadingZeros(
+            Math.max(0, csr.numCols - 1));
+        RowPartition partition = RowPartition.create(csr.rowPointers, 
+            numRows, RowPartition.getDefaultNumParts());
+        int rowStarts[] = partition.rowStarts;
+        int numParts = partition.getNumParts();
+        int rowLengths[] = new int[numRows];
+        ParallelParts.forEachChecked(numParts, p -> 
+        {
+            try
+            {
+                canonicalizeRows(csr, stride, numBits, policy, 
+                    rowStarts[p], rowStarts[p + 1], rowLengths);
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        });
+        
+        int newRowPointers[] = new int[numRows + 1];
+        for (int r = 0; r < numRows; r++)
+        {
+            newRowPointers[r + 1] = newRowPointers[r] + rowLengths[r];
+        }
+        int newNumEntries = newRowPointers[numRows];
+        if (newNumEntries == numEntries)
+        {
+            return csr;
+        }
+        
+        // Copy the remaining entries of each row into the new arrays
+        CSR result = new CSR();
+        result.numRows = numRows;
+        result.numCols = csr.numCols;
+        result.rowPointers = newRowPointers;
+        result.symmetry = csr.symmetry;
+        result.columnIndices = new int[newNumEntries];
+        if (stride != 0)
+        {
+            result.values = new double[newNumEntries * stride];
+        }
+        ParallelParts.forEach(numParts, p -> 
+        {
+            for (int r = rowStarts[p]; r < rowStarts[p + 1]; r++)
+            {
+                System.arraycopy(csr.columnIndices, rowPointers[r], 
+                    result.columnIndices, newRowPointers[r], rowLengths[r]);
+                if (stride != 0)
+                {
+                    System.arraycopy(csr.values, rowPointers[r] * stride, 
+                        result.values, newRowPointers[r] * stride, 
+                        rowLengths[r] * stride);
+                }
+            }
+        });
+        return result;
+    }
+    
+    /**
+     * Sort the column indices within each of the specified rows, and 
+     * merge duplicate entries. The remaining entries of each row will 
+     * be placed at the start of the row, and their number will be 
+     * stored in the given row lengths array.
+     * 
+     * @param csr The {@link CSR}
+     * @param stride The number of values per entry
+     * @param numBits The number of bits of the column indices
+     * @param policy The {@link DuplicatePolicy}
+     * @param rowStart The start row, inclusive
+     * @param rowEnd The end row, exclusive
+     * @param rowLengths The array that receives the new row lengths
+     * @throws IOException If the policy is {@link DuplicatePolicy#ERROR}
+     * and a row contains duplicate entries
+     */
+    private static void canonicalizeRows(CSR csr, int stride, int numBits,
+        DuplicatePolicy policy, int rowStart, int rowEnd, int rowLengths[]) 
+        throws IOException
+    {
+        int rowPointers[] = csr.rowPointers;
+        int columnIndices[] = csr.columnIndices;
+        double values[] = csr.values;
+        int tempColumnIndices[] = new int[0];
+        double tempValues[] = new double[0];
+        int counts[] = new int[1 << RADIX_BITS];
+        for (int r = rowStart; r < rowEnd; r++)
+        {
+            int start = rowPointers[r];
+            int end = rowPointers[r + 1];
+            if (!isStrictlySorted(columnIndices, start, end))
+            {
+                int n = end - start;
+                if (n <= INSERTION_SORT_THRESHOLD)
+                {
+                    insertionSort(columnIndices, values, stride, start, end);
+                }
+                else
+                {
+                    if (tempColumnIndices.length < n)
+                    {
+                        tempColumnIndices = new int[n];
+                        tempValues = new double[n * stride];
+                    }
+                    radixSort(columnIndices, values, stride, start, end, 
+                        numBits, tempColumnIndices, tempValues, counts);
+                }
+            }
+            rowLengths[r] = 
+                merge(columnIndices, values, stride, start, end, policy, r);
+        }
+    }
+    
+    /**
+     * Returns whether the specified range of the given array is sorted
+     * in ascending order, without duplicates
+     * 
+     * @param array The array
+     * @param start The start index, inclusive
+     * @param end The end index, exclusive
+     * @return Whether the range is strictly sorted
+     */
+    private static boolean isStrictlySorted(int array[], int start, int end)
+    {
+        for (int i = start + 1; i < end; i++)
+        {
+            if (array[i] <= array[i - 1])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Sort the specified range of the given column indices and the
+     * corresponding values with a stable insertion sort
+     * 
+     * @param columnIndices The column indices
+     * @param values The values. May be <code>null</code> if the stride
+     * is 0.
+     * @param stride The number of values per entry
+     * @param start The start index, inclusive
+     * @param end The end index, exclusive
+     */
+    private static void insertionSort(int columnIndices[], double values[],
+        int stride, int start, int end)
+    {
+        for (int i = start + 1; i < end; i++)
+        {
+            int c = columnIndices[i];
+            if (columnIndices[i - 1] <= c)
+            {
+                continue;
+            }
+            double v0 = stride > 0 ? values[i * stride] : 0.0;
+            double v1 = stride > 1 ? values[i * stride + 1] : 0.0;
+            int k = i - 1;
+            while (k >= start && columnIndices[k] > c)
+            {
+                columnIndices[k + 1] = columnIndices[k];
+                copyValues(values, stride, k, values, k + 1);
+                k--;
+            }
+            columnIndices[k + 1] = c;
+            if (stride > 0)
+            {
+                values[(k + 1) * stride] = v0;
+            }
+            if (stride > 1)
+            {
+                values[(k + 1) * stride + 1] = v1;
+            }
+        }
+    }
+    
+    /**
+     * Sort the specified range of the given column indices and the
+     * corresponding values with a stable least-significant-digit radix 
+     * sort, processing {@link #RADIX_BITS} bits in each pass
+     * 
+     * @param columnIndices The column indices
+     * @param values The values. May be <code>null</code> if the stride
+     * is 0.
+     * @param stride The number of values per entry
+     * @param start The start index, inclusive
+     * @param end The end index, exclusive
+     * @param numBits The number of bits of the column indices
+     * @param tempColumnIndices A temporary array for column indices, 
+     * with a length of at least <code>end - start</code>
+     * @param tempValues A temporary array for the values, with a length
+     * of at least <code>(end - start) * stride</code>
+     * @param counts A temporary array for the counts of the digits
+     */
+    private static void radixSort(int columnIndices[], double values[], 
+        int stride, int start, int end, int numBits, 
+        int tempColumnIndices[], double tempValues[], int counts[])
+    {
+        int n = end - start;
+        int mask = (1 << RADIX_BITS) - 1;
+        int sourceColumnIndices[] = columnIndices;
+        double sourceValues[] = values;
+        int sourceOffset = start;
+        int targetColumnIndices[] = tempColumnIndices;
+        double targetValues[] = tempValues;
+        int targetOffset = 0;
+        for (int shift = 0; shift < numBits; shift += RADIX_BITS)
+        {
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < n; i++)
+            {
+                int c = sourceColumnIndices[sourceOffset + i];
+                counts[(c >>> shift) & mask]++;
+            }
+            if (counts[(sourceColumnIndices[sourceOffset] >>> shift) & mask] 
+                == n)
+            {
+                // All entries have the same digit
+                continue;
+            }
+            int sum = 0;
+            for (int d = 0; d <= mask; d++)
+            {
+                int count = counts[d];
+                counts[d] = sum;
+                sum += count;
+            }
+            for (int i = 0; i < n; i++)
+            {
+                int c = sourceColumnIndices[sourceOffset + i];
+                int position = counts[(c >>> shift) & mask]++;
+                targetColumnIndices[targetOffset + position] = c;
+                copyValues(sourceValues, stride, sourceOffset + i, 
+                    targetValues, targetOffset + position);
+            }
+            
+            int swapColumnIndices[] = sourceColumnIndices;
+            sourceColumnIndices = targetColumnIndices;
+            targetColumnIndices = swapColumnIndices;
+            double swapValues[] = sourceValues;
+            sourceValues = targetValues;
+            targetValues = swapValues;
+            int swapOffset = sourceOffset;
+            sourceOffset = targetOffset;
+            targetOffset = swapOffset;
+        }
+        if (sourceColumnIndices != columnIndices)
+        {
+            System.arraycopy(tempColumnIndices, 0, columnIndices, start, n);
+            if (stride > 0)
+            {
+                System.arraycopy(tempValues, 0, 
+                    values, start * stride, n * stride);
+            }
+        }
+    }
+    
+    /**
+     * Merge the duplicate entries in the specified range of the given 
+     * column indices, which must be sorted, according to the given 
+     * {@link DuplicatePolicy}. The remaining entries will be placed at 
+     * the start of the range.
+     * 
+     * @param columnIndices The column indices
+     * @param values The values. May be <code>null</code> if the stride
+     * is 0.
+     * @param stride The number of values per entry
+     * @param start The start index, inclusive
+     * @param end The end index, exclusive
+     * @param policy The {@link DuplicatePolicy}
+     * @param row The row, for error messages
+     * @return The number of remaining entries
+     * @throws IOException If the policy is {@link DuplicatePolicy#ERROR}
+     * and the range contains duplicate entries
+     */
+    private static int merge(int columnIndices[], double values[], 
+        int stride, int start, int end, DuplicatePolicy policy, int row) 
+        throws IOException
+    {
+        int w = start;
+        for (int i = start; i < end; i++)
+        {
+            int c = columnIndices[i];
+            if (w == start || c != columnIndices[w - 1])
+            {
+                columnIndices[w] = c;
+                copyValues(values, stride, i, values, w);
+                w++;
+                continue;
+            }
+            switch (policy)
+            {
+                case SUM:
+                    for (int k = 0; k < stride; k++)
+                    {
+                        values[(w - 1) * stride + k] += values[i * stride + k];
+                    }
+                    break;
+                    
+                case LAST:
+                    copyValues(values, stride, i, values, w - 1);
+                    break;
+                    
+                case ERROR:
+                    throw new IOException("Duplicate entry at row " 
+                        + (row + 1) + ", column " + (c + 1));
+                    
+                default:
+                    // Should never happen:
+                    throw new AssertionError("Invalid policy " + policy);
+            }
+        }
+        return w - start;
+    }
+    
+    /**
+     * Copy the values of one entry
+     * 
+     * @param source The source values. May be <code>null</code> if the 
+     * stride is 0.
+     * @param stride The number of values per entry
+     * @param sourceIndex The index of the source entry
+     * @param target The target values. May be <code>null</code> if the 
+     * stride is 0.
+     * @param targetIndex The index of the target entry
+     */
+    private static void copyValues(double source[], int stride, 
+        int sourceIndex, double target[], int targetIndex)
+    {
+        if (stride == 1)
+        {
+            target[targetIndex] = source[sourceIndex];
+        }
+        else if (stride == 2)
+        {
+            target[targetIndex + targetIndex + 0] = 
+                source[sourceIndex + sourceIndex + 0];
+            target[targetIndex + targetIndex + 1] = 
+                source[sourceIndex + sourceIndex + 1];
+        }
+    }
+    
+    /**
+     * Compute the total number of entries in the given parts
+     * 
+     * @param parts The {@link CoordinateCallback} instances
+     * @return The number of entries
+     * @throws IllegalArgumentException If the total number of entries 
+     * exceeds the maximum array size
+     */
+    private static int computeNumEntries(
+        List<? extends CoordinateCallback> parts)
+    {
+        long totalNumEntries = 0;
+        for (CoordinateCallback part : parts)
+        {
+            totalNumEntries += part.getNumEntries();
+        }
+        if (totalNumEntries > Integer.MAX_VALUE - 8)
+        {
+            throw new IllegalArgumentException(
+                "Too many entries for a CSR: " + totalNumEntries);
+        }
+        return (int) totalNumEntries;
+    }
+    
+    /**
+     * Compress the given coordinate data along one dimension. This is the
+     * core of the conversion from coordinate data into a compressed 
+     * format: For CSR, the major indices are the row indices, and the 
+     * minor indices are the column indices. For CSC, it is the other
+     * way around.<br>
+     * <br>
+     * The coordinate data may consist of multiple parts. This will perform
+     * a counting pass over the major indices of all parts, and then 
+     * scatter the minor indices and values into the target arrays. The 
+     * entries for each major index will appear in the order of the parts, 
+     * and in the order in which they appear in each part.
+     * 
+     * @param numMajor The size of the major dimension
+     * @param majorIndices The major indices of each part
+     * @param minorIndices The minor indices of each part
+     * @param values The values of each part. If the values are complex,
+     * they contain the real and imaginary parts in interleaved form.
+     * @param counts The number of entries of each part
+     * @param complex Whether the values are complex
+     * @param pointers The target array for the pointers, with a length
+     * of <code>numMajor + 1</code>, initially filled with zeros
+     * @param targetMinorIndices The target array for the minor indices
+     * @param targetValues The target array for the values. This may be
+     * <code>null</code> for {@link Field#PATTERN} matrices, in which
+     * case the values are ignored.
+     */
+    static void compress(int numMajor, 
+        int majorIndices[][], int minorIndices[][], double values[][], 
+        int counts[], boolean complex, int pointers[], 
+        int targetMinorIndices[], double targetValues[])
+    {
+        int numParts = counts.length;
+        computePointers(numMajor, majorIndices, counts, pointers);
+        
+        // Scatter the entries, using a copy of the pointers as the 
+        // insertion positions
+        int positions[] = Arrays.copyOf(pointers, numMajor);
+        for (int p = 0; p < numParts; p++)
+        {
+            int major[] = majorIndices[p];
+            int minor[] = minorIndices[p];
+            double v[] = values[p];
+            int n = counts[p];
+            for (int i = 0; i < n; i++)
+            {
+                int index = positions[major[i]]++;
+                targetMinorIndices[index] = minor[i];
+                if (targetValues == null)
+                {
+                    // No values are stored
+                }
+                else if (complex)
+                {
+                    targetValues[index + index + 0] = v[i + i + 0];
+                    targetValues[index + index + 1] = v[i + i + 1];
+                }
+                else
+                {
+                    targetValues[index] = v[i];
+                }
+            }
+        }
+    }
+    
+    /**
+     * Compress the given coordinate data along one dimension, for 
+     * single precision values. See 
+     * {@link #compress(int, int[][], int[][], double[][], int[], boolean, 
+     * int[], int[], double[])} for details.
+     * 
+     * @param numMajor The size of the major dimension
+     * @param majorIndices The major indices of each part
+     * @param minorIndices The minor indices of each part
+     * @param values The values of each part. If the values are complex,
+     * they contain the real and imaginary parts in interleaved form.
+     * @param counts The number of entries of each part
+     * @param complex Whether the values are complex
+     * @param pointers The target array for the pointers, with a length
+     * of <code>numMajor + 1</code>, initially filled with zeros
+     * @param targetMinorIndices The target array for the minor indices
+     * @param targetValues The target array for the values. This may be
+     * <code>null</code> for {@link Field#PATTERN} matrices, in which
+     * case the values are ignored.
+     */
+    static void compress(int numMajor, 
+        int majorIndices[][], int minorIndices[][], float values[][], 
+        int counts[], boolean complex, int pointers[], 
+        int targetMinorIndices[], float targetValues[])
+    {
+        int numParts = counts.length;
+        computePointers(numMajor, majorIndices, counts, pointers);
+        
+        // Scatter the entries, using a copy of the pointers as the 
+        // insertion positions
+        int positions[] = Arrays.copyOf(pointers, numMajor);
+        for (int p = 0; p < numParts; p++)
+        {
+            int major[] = majorIndices[p];
+            int minor[] = minorIndices[p];
+            float v[] = values[p];
+            int n = counts[p];
+            for (int i = 0; i < n; i++)
+            {
+                int index = positions[major[i]]++;
+                targetMinorIndices[index] = minor[i];
+                if (targetValues == null)
+                {
+                    // No values are stored
+                }
+                else if (complex)
+                {
+                    targetValues[index + index + 0] = v[i + i + 0];
+                    targetValues[index + index + 1] = v[i + i + 1];
+                }
+                else
+                {
+                    targetValues[index] = v[i];
+                }
+            }
+        }
+    }
+    
+    /**
+     * Count the number of entries for each major index in the given
+     * parts, and store the prefix sums of these counts in the given
+     * pointers array
+     * 
+     * @param numMajor The size of the major dimension
+     * @param majorIndices The major indices of each part
+     * @param counts The number of entries of each part
+     * @param pointers The target array for the pointers, with a length
+     * of <code>numMajor + 1</code>, initially filled with zeros
+     */
+    private static void computePointers(int numMajor, 
+        int majorIndices[][], int counts[], int pointers[])
+    {
+        int numParts = counts.length;
+        for (int p = 0; p < numParts; p++)
+        {
+            int major[] = majorIndices[p];
+            int n = counts[p];
+            for (int i = 0; i < n; i++)
+            {
+                pointers[major[i] + 1]++;
+            }
+        }
+        for (int m = 0; m < numMajor; m++)
+        {
+            pointers[m + 1] += pointers[m];
+        }
+    }
+}
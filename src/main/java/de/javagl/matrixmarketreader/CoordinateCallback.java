@@ -0,0 +1,520 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Implementation of a {@link BatchCallback} that collects the elements of 
+ * a sparse matrix in primitive coordinate arrays. The memory requirements 
+ * are proportional to the number of non-zero elements of the matrix.<br>
+ * <br>
+ * For matrices that are not {@link Symmetry#GENERAL}, the elements will
+ * be mirrored at the diagonal by default, so that the arrays contain the 
+ * elements of the full matrix. 
+ */
+class CoordinateCallback implements BatchCallback
+{
+    /**
+     * The maximum length of the arrays
+     */
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+    
+    /**
+     * The expected number of elements, or a negative value if the 
+     * number of non-zero elements of the matrix should be used
+     */
+    private final long expectedNumElements;
+    
+    /**
+     * Whether the values are stored with single precision
+     */
+    private final boolean singlePrecision;
+    
+    /**
+     * Whether the elements of non-general matrices are mirrored
+     */
+    private final boolean expandSymmetry;
+    
+    /**
+     * The {@link MatrixDescription}
+     */
+    private MatrixDescription matrixDescription;
+    
+    /**
+     * The {@link Symmetry} of the matrix
+     */
+    private Symmetry symmetry;
+    
+    /**
+     * Whether complex data is read
+     */
+    private boolean complex;
+    
+    /**
+     * Whether a {@link Field#PATTERN} matrix is read, which means that
+     * no values are stored
+     */
+    private boolean pattern;
+    
+    /**
+     * The row indices of the entries
+     */
+    private int rowIndices[];
+    
+    /**
+     * The column indices of the entries
+     */
+    private int columnIndices[];
+    
+    /**
+     * The values of the entries. For complex matrices, these are the 
+     * interleaved real and imaginary parts. This is <code>null</code>
+     * if the values are stored with single precision, or if the matrix
+     * is a {@link Field#PATTERN} matrix.
+     */
+    private double values[];
+    
+    /**
+     * The values of the entries, if they are stored with single 
+     * precision. Otherwise, or if the matrix is a {@link Field#PATTERN}
+     * matrix, this is <code>null</code>.
+     */
+    private float floatValues[];
+    
+    /**
+     * The number of entries that have been stored
+     */
+    private int numEntries;
+    
+    /**
+     * The number of mirrored entries that have been added
+     */
+    private long numMirroredEntries;
+    
+    /**
+     * The time that was spent for adding entries with their mirrored 
+     * entries, in nanoseconds
+     */
+    private long expansionNanos;
+    
+    /**
+     * Creates a new instance that will allocate the arrays based on
+     * the number of non-zero elements of the matrix
+     */
+    CoordinateCallback()
+    {
+        this(-1, false);
+    }
+    
+    /**
+     * Creates a new instance that will allocate the arrays based on
+     * the given expected number of elements. This may be used when 
+     * only a part of a matrix is passed to this callback.
+     * 
+     * @param expectedNumElements The expected number of elements (before
+     * they are mirrored for non-general matrices)
+     */
+    CoordinateCallback(long expectedNumElements)
+    {
+        this(expectedNumElements, false);
+    }
+    
+    /**
+     * Creates a new instance that will allocate the arrays based on
+     * the given expected number of elements, or on the number of
+     * non-zero elements of the matrix if the given number is negative.
+     * If <code>singlePrecision</code> is <code>true</code>, then the
+     * values will be converted to <code>float</code>, and be available 
+     * via {@link #getFloatValues()}.
+     * 
+     * @param expectedNumElements The expected number of elements (before
+     * they are mirrored for non-general matrices)
+     * @param singlePrecision Whether the values should be stored with
+     * single precision
+     */
+    CoordinateCallback(long expectedNumElements, boolean singlePrecision)
+    {
+        this(expectedNumElements, singlePrecision, true);
+    }
+    
+    /**
+     * Creates a new instance like 
+     * {@link #CoordinateCallback(long, boolean)}. If 
+     * <code>expandSymmetry</code> is <code>false</code>, then the 
+     * elements of matrices that are not {@link Symmetry#GENERAL} will 
+     * not be mirrored, and only the elements that are stored in the 
+     * file will be collected.
+     * 
+     * @param expectedNumElements The expected number of elements (before
+     * they are mirrored for non-general matrices)
+     * @param singlePrecision Whether the values should be stored with
+     * single precision
+     * @param expandSymmetry Whether the elements of non-general matrices
+     * should be mirrored
+     */
+    CoordinateCallback(long expectedNumElements, boolean singlePrecision,
+        boolean expandSymmetry)
+    {
+        this.expectedNumElements = expectedNumElements;
+        this.singlePrecision = singlePrecision;
+        this.expandSymmetry = expandSymmetry;
+    }
+    
+    @Override
+    public void startMatrix(MatrixDescription matrixDescription)
+    {
+        this.matrixDescription = matrixDescription;
+        this.symmetry = matrixDescription.getSymmetry();
+        this.complex = matrixDescription.getField() == Field.COMPLEX;
+        this.pattern = matrixDescription.getField() == Field.PATTERN;
+        
+        // For non-general matrices, each element may be mirrored. 
+        // If this exceeds the maximum array size, the arrays will 
+        // still be grown on demand. 
+        long capacity = expectedNumElements;
+        if (capacity < 0)
+        {
+            capacity = matrixDescription.getNumNonZerosLong();
+        }
+        if (expandSymmetry && symmetry != Symmetry.GENERAL)
+        {
+            capacity *= 2;
+        }
+        int length = (int) Math.min(capacity, getMaxNumEntries());
+        rowIndices = new int[length];
+        columnIndices = new int[length];
+        values = null;
+        floatValues = null;
+        int valuesLength = complex ? length * 2 : length;
+        if (pattern)
+        {
+            // No values are stored
+        }
+        else if (singlePrecision)
+        {
+            floatValues = new float[valuesLength];
+        }
+        else
+        {
+            values = new double[valuesLength];
+        }
+        numEntries = 0;
+        numMirroredEntries = 0;
+        expansionNanos = 0;
+    }
+
+    @Override
+    public void setMatrixElements(
+        int rowIndicesZeroBased[], int columnIndicesZeroBased[], 
+        double values[], int count)
+    {
+        if (!expandSymmetry || symmetry == Symmetry.GENERAL)
+        {
+            int valuesPerEntry = complex ? 2 : 1;
+            ensureCapacity((long) numEntries + count);
+            System.arraycopy(rowIndicesZeroBased, 0, 
+                this.rowIndices, numEntries, count);
+            System.arraycopy(columnIndicesZeroBased, 0, 
+                this.columnIndices, numEntries, count);
+            int offset = numEntries * valuesPerEntry;
+            int n = count * valuesPerEntry;
+            if (pattern)
+            {
+                // No values are stored
+            }
+            else if (singlePrecision)
+            {
+                for (int i = 0; i < n; i++)
+                {
+                    floatValues[offset + i] = (float) values[i];
+                }
+            }
+            else
+            {
+                System.arraycopy(values, 0, this.values, offset, n);
+            }
+            numEntries += count;
+            return;
+        }
+        
+        // Add each element, followed by its mirrored element
+        long startNanos = System.nanoTime();
+        int oldNumEntries = numEntries;
+        ensureCapacity((long) numEntries + count + count);
+        double sign0 = (symmetry == Symmetry.SKEW_SYMMETRIC) ? -1.0 : 1.0;
+        double sign1 = (symmetry == Symmetry.SYMMETRIC) ? 1.0 : -1.0;
+        for (int i = 0; i < count; i++)
+        {
+            int r = rowIndicesZeroBased[i];
+            int c = columnIndicesZeroBased[i];
+            add(r, c, values, i, 1.0, 1.0);
+            if (r != c)
+            {
+                add(c, r, values, i, sign0, sign1);
+            }
+        }
+        numMirroredEntries += numEntries - oldNumEntries - count;
+        expansionNanos += System.nanoTime() - startNanos;
+    }
+    
+    /**
+     * Add the specified entry. The caller is responsible for making sure
+     * that the arrays are large enough.
+     * 
+     * @param r The row
+     * @param c The column
+     * @param sourceValues The array containing the value
+     * @param sourceIndex The index of the entry in the source array
+     * @param sign0 The factor for the (real) value
+     * @param sign1 The factor for the imaginary value
+     */
+    private void add(int r, int c, 
+        double sourceValues[], int sourceIndex, double sign0, double sign1)
+    {
+        rowIndices[numEntries] = r;
+        columnIndices[numEntries] = c;
+        if (complex)
+        {
+            double value0 = 
+                sign0 * sourceValues[sourceIndex + sourceIndex + 0];
+            double value1 = 
+                sign1 * sourceValues[sourceIndex + sourceIndex + 1];
+            if (singlePrecision)
+            {
+                floatValues[numEntries + numEntries + 0] = (float) value0;
+                floatValues[numEntries + numEntries + 1] = (float) value1;
+            }
+            else
+            {
+                values[numEntries + numEntries + 0] = value0;
+                values[numEntries + numEntries + 1] = value1;
+            }
+        }
+        else if (!pattern)
+        {
+            double value = sign0 * sourceValues[sourceIndex];
+            if (singlePrecision)
+            {
+                floatValues[numEntries] = (float) value;
+            }
+            else
+            {
+                values[numEntries] = value;
+            }
+        }
+        numEntries++;
+    }
+    
+    /**
+     * Make sure that the arrays can store the given number of entries,
+     * growing them if necessary
+     * 
+     * @param capacity The required capacity
+     * @throws IllegalArgumentException If the capacity exceeds the 
+     * maximum array length
+     */
+    private void ensureCapacity(long capacity)
+    {
+        if (capacity > rowIndices.length)
+        {
+            int maxNumEntries = getMaxNumEntries();
+            if (capacity > maxNumEntries)
+            {
+                throw new IllegalArgumentException(
+                    "The matrix has too many elements for int-indexed " 
+                    + "arrays. Use MatrixMarketCSR#readBigCSR instead.");
+            }
+            long newLength = Math.max(capacity, rowIndices.length * 2L);
+            newLength = Math.min(newLength, maxNumEntries);
+            newLength = Math.max(16, newLength);
+            int length = (int) newLength;
+            rowIndices = Arrays.copyOf(rowIndices, length);
+            columnIndices = Arrays.copyOf(columnIndices, length);
+            int valuesLength = complex ? length * 2 : length;
+            if (pattern)
+            {
+                // No values are stored
+            }
+            else if (singlePrecision)
+            {
+                floatValues = Arrays.copyOf(floatValues, valuesLength);
+            }
+            else
+            {
+                values = Arrays.copyOf(values, valuesLength);
+            }
+        }
+    }
+    
+    /**
+     * Returns the maximum number of entries that can be stored in the
+     * arrays, depending on whether the values are complex
+     * 
+     * @return The maximum number of entries
+     */
+    private int getMaxNumEntries()
+    {
+        return complex ? MAX_ARRAY_LENGTH / 2 : MAX_ARRAY_LENGTH;
+    }
+
+    @Override
+    public void finishMatrix()
+    {
+        // Nothing to do here
+    }
+    
+    /**
+     * Returns the {@link MatrixDescription} that was previously passed
+     * to {@link #startMatrix(MatrixDescription)}, or <code>null</code>
+     * if no matrix was started yet.
+     * 
+     * @return The {@link MatrixDescription}
+     */
+    MatrixDescription getMatrixDescription()
+    {
+        return matrixDescription;
+    }
+    
+    /**
+     * Report the {@link ReadPhase#SYMMETRY_EXPANSION} for the given
+     * parts of a matrix, if they contain mirrored entries. The reported
+     * duration is the sum of the times that all parts spent for adding
+     * entries with their mirrored entries. 
+     * 
+     * @param parts The {@link CoordinateCallback} instances
+     */
+    static void reportExpansion(List<? extends CoordinateCallback> parts)
+    {
+        long numMirroredEntries = 0;
+        long expansionNanos = 0;
+        for (CoordinateCallback part : parts)
+        {
+            numMirroredEntries += part.numMirroredEntries;
+            expansionNanos += part.expansionNanos;
+        }
+        if (numMirroredEntries > 0)
+        {
+            ReadInstrumentation.report(ReadPhase.SYMMETRY_EXPANSION, 
+                0, 0, 0, numMirroredEntries, expansionNanos);
+        }
+    }
+    
+    /**
+     * Returns the {@link Symmetry} of the collected elements. This is
+     * {@link Symmetry#GENERAL} if the elements have been mirrored, and 
+     * the {@link Symmetry} of the matrix otherwise.
+     * 
+     * @return The {@link Symmetry}
+     */
+    Symmetry getStoredSymmetry()
+    {
+        return expandSymmetry ? Symmetry.GENERAL : symmetry;
+    }
+    
+    /**
+     * Returns whether the values are complex
+     * 
+     * @return Whether the values are complex
+     */
+    boolean isComplex()
+    {
+        return complex;
+    }
+    
+    /**
+     * Returns a <i>reference</i> to the row indices array. Only the 
+     * first {@link #getNumEntries()} elements of this array are valid.
+     * 
+     * @return The row indices
+     */
+    int[] getRowIndices()
+    {
+        return rowIndices;
+    }
+    
+    /**
+     * Returns a <i>reference</i> to the column indices array. Only the 
+     * first {@link #getNumEntries()} elements of this array are valid.
+     * 
+     * @return The column indices
+     */
+    int[] getColumnIndices()
+    {
+        return columnIndices;
+    }
+    
+    /**
+     * Returns a <i>reference</i> to the values array. Only the first
+     * {@link #getNumEntries()} elements (or twice as many, for complex
+     * values) of this array are valid. This is <code>null</code> for
+     * {@link Field#PATTERN} matrices, or if the values are stored with
+     * single precision.
+     * 
+     * @return The values
+     */
+    double[] getValues()
+    {
+        return values;
+    }
+    
+    /**
+     * Returns a <i>reference</i> to the single precision values array, 
+     * or <code>null</code> if the values are not stored with single
+     * precision, or for {@link Field#PATTERN} matrices. Only the first
+     * {@link #getNumEntries()} elements (or twice as many, for complex 
+     * values) of this array are valid.
+     * 
+     * @return The values
+     */
+    float[] getFloatValues()
+    {
+        return floatValues;
+    }
+    
+    /**
+     * Returns the number of entries that have been stored
+     * 
+     * @return The number of entries
+     */
+    int getNumEntries()
+    {
+        return numEntries;
+    }
+    
+    /**
+     * Release the references to the arrays of this callback
+     */
+    void release()
+    {
+        rowIndices = null;
+        columnIndices = null;
+        values = null;
+        floatValues = null;
+    }
+}
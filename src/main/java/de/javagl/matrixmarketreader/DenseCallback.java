@@ -0,0 +1,190 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+/**
+ * Implementation of a {@link BatchCallback} that stores the elements of 
+ * a matrix in a dense, column-major array, and creates a {@link Dense}
+ * from it when the matrix is finished.<br>
+ * <br>
+ * For {@link Format#ARRAY} matrices that are {@link Symmetry#GENERAL},
+ * the values are received in column-major order, and are copied into
+ * the array sequentially, without looking at their indices. Otherwise, 
+ * each element is stored at the position that is given by its indices,
+ * and for matrices that are not {@link Symmetry#GENERAL}, the elements 
+ * will be mirrored at the diagonal.
+ */
+class DenseCallback implements BatchCallback
+{
+    /**
+     * The maximum length of the array
+     */
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+    
+    /**
+     * The {@link Symmetry} of the matrix
+     */
+    private Symmetry symmetry;
+    
+    /**
+     * Whether complex data is read
+     */
+    private boolean complex;
+    
+    /**
+     * Whether the values are received in column-major order, so that 
+     * they can be copied into the array sequentially
+     */
+    private boolean sequential;
+    
+    /**
+     * The number of rows
+     */
+    private int numRows;
+    
+    /**
+     * The number of columns
+     */
+    private int numCols;
+    
+    /**
+     * The array for the values
+     */
+    private double array[];
+    
+    /**
+     * The position in the array for the next value, when the values
+     * are copied sequentially
+     */
+    private int position;
+    
+    /**
+     * The {@link Dense} that was created in {@link #finishMatrix()}
+     */
+    private Dense dense;
+    
+    @Override
+    public void startMatrix(MatrixDescription matrixDescription)
+    {
+        symmetry = matrixDescription.getSymmetry();
+        complex = matrixDescription.getField() == Field.COMPLEX;
+        sequential = matrixDescription.getFormat() == Format.ARRAY &&
+            symmetry == Symmetry.GENERAL;
+        numRows = matrixDescription.getNumRows();
+        numCols = matrixDescription.getNumCols();
+        long length = (long) numRows * numCols;
+        if (complex)
+        {
+            length *= 2;
+        }
+        if (length > MAX_ARRAY_LENGTH)
+        {
+            throw new IllegalArgumentException(
+                "The matrix with " + numRows + " rows and " + numCols
+                + " columns is too large to be stored in a dense array");
+        }
+        array = new double[(int) length];
+        position = 0;
+        dense = null;
+    }
+
+    @Override
+    public void setMatrixElements(
+        int rowIndicesZeroBased[], int columnIndicesZeroBased[], 
+        double values[], int count)
+    {
+        if (sequential)
+        {
+            int n = complex ? count + count : count;
+            System.arraycopy(values, 0, array, position, n);
+            position += n;
+            return;
+        }
+        boolean mirror = symmetry != Symmetry.GENERAL;
+        double sign0 = (symmetry == Symmetry.SKEW_SYMMETRIC) ? -1.0 : 1.0;
+        double sign1 = (symmetry == Symmetry.SYMMETRIC) ? 1.0 : -1.0;
+        for (int i = 0; i < count; i++)
+        {
+            int r = rowIndicesZeroBased[i];
+            int c = columnIndicesZeroBased[i];
+            set(r, c, values, i, 1.0, 1.0);
+            if (mirror && r != c)
+            {
+                set(c, r, values, i, sign0, sign1);
+            }
+        }
+    }
+    
+    /**
+     * Set the specified entry
+     * 
+     * @param r The row
+     * @param c The column
+     * @param sourceValues The array containing the value
+     * @param sourceIndex The index of the entry in the source array
+     * @param sign0 The factor for the (real) value
+     * @param sign1 The factor for the imaginary value
+     */
+    private void set(int r, int c, 
+        double sourceValues[], int sourceIndex, double sign0, double sign1)
+    {
+        int index = r + c * numRows;
+        if (complex)
+        {
+            array[index + index + 0] = 
+                sign0 * sourceValues[sourceIndex + sourceIndex + 0];
+            array[index + index + 1] = 
+                sign1 * sourceValues[sourceIndex + sourceIndex + 1];
+        }
+        else
+        {
+            array[index] = sign0 * sourceValues[sourceIndex];
+        }
+    }
+
+    @Override
+    public void finishMatrix()
+    {
+        dense = new Dense();
+        dense.numRows = numRows;
+        dense.numCols = numCols;
+        dense.values = array;
+        array = null;
+    }
+    
+    /**
+     * Returns the {@link Dense} that was created when the matrix was 
+     * finished, or <code>null</code> if this callback did not yet 
+     * receive the appropriate calls
+     *  
+     * @return The {@link Dense}
+     */
+    Dense getDense()
+    {
+        return dense;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Simple representation of a matrix in CSR format, where the data is
+ * stored in direct byte buffers with native byte order. This is only 
+ * intended as the return type of 
+ * {@link MatrixMarketCSR#readDirectCSR(java.nio.file.Path)}, and thus, 
+ * does not offer any form of encapsulation. The buffers may be passed
+ * to native libraries without copying them.
+ */
+public class DirectCSR
+{
+    /**
+     * The number of rows
+     */
+    public int numRows;
+    
+    /**
+     * The number of columns
+     */
+    public int numCols;
+    
+    /**
+     * The values, as <code>double</code> values. For complex matrices, 
+     * these are the interleaved real and imaginary parts. This is 
+     * <code>null</code> for {@link Field#PATTERN} matrices.
+     */
+    public ByteBuffer values;
+    
+    /**
+     * The column indices, as <code>int</code> values
+     */
+    public ByteBuffer columnIndices;
+    
+    /**
+     * The row pointer indices, as <code>int</code> values
+     */
+    public ByteBuffer rowPointers;
+}
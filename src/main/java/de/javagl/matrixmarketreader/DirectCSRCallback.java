@@ -0,0 +1,141 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Implementation of a {@link TwoPassCSRCallback} that creates a 
+ * {@link DirectCSR}. The same input has to be passed to this callback 
+ * twice.
+ */
+class DirectCSRCallback extends TwoPassCSRCallback
+{
+    /**
+     * The maximum capacity of a buffer
+     */
+    private static final long MAX_CAPACITY = Integer.MAX_VALUE - 8;
+    
+    /**
+     * The column indices
+     */
+    private ByteBuffer columnIndices;
+    
+    /**
+     * The values
+     */
+    private ByteBuffer values;
+    
+    /**
+     * The {@link DirectCSR} that was created at the end of the second pass
+     */
+    private DirectCSR directCSR;
+    
+    @Override
+    protected void allocate(long numEntries)
+    {
+        long numValues = isComplex() ? numEntries + numEntries : numEntries;
+        if (numValues * Double.BYTES > MAX_CAPACITY)
+        {
+            throw new IllegalArgumentException(
+                "The matrix has too many elements for a direct buffer. "
+                + "Use MatrixMarketCSR#readBigCSR instead.");
+        }
+        columnIndices = allocateDirect(numEntries * Integer.BYTES);
+        values = null;
+        if (!isPattern())
+        {
+            values = allocateDirect(numValues * Double.BYTES);
+        }
+        directCSR = null;
+    }
+    
+    @Override
+    protected void setColumnIndex(long position, int columnIndex)
+    {
+        columnIndices.putInt((int) position * Integer.BYTES, columnIndex);
+    }
+    
+    @Override
+    protected void setValue(long index, double value)
+    {
+        values.putDouble((int) index * Double.BYTES, value);
+    }
+    
+    @Override
+    protected void finish(int numRows, int numCols, long rowPointers[])
+    {
+        ByteBuffer directRowPointers = 
+            allocateDirect((long) rowPointers.length * Integer.BYTES);
+        for (int r = 0; r < rowPointers.length; r++)
+        {
+            directRowPointers.putInt(
+                r * Integer.BYTES, (int) rowPointers[r]);
+        }
+        directCSR = new DirectCSR();
+        directCSR.numRows = numRows;
+        directCSR.numCols = numCols;
+        directCSR.values = values;
+        directCSR.columnIndices = columnIndices;
+        directCSR.rowPointers = directRowPointers;
+        values = null;
+        columnIndices = null;
+    }
+    
+    /**
+     * Allocate a direct byte buffer with the given capacity and native
+     * byte order
+     * 
+     * @param capacity The capacity
+     * @return The buffer
+     * @throws IllegalArgumentException If the capacity is too large
+     */
+    private static ByteBuffer allocateDirect(long capacity)
+    {
+        if (capacity > MAX_CAPACITY)
+        {
+            throw new IllegalArgumentException(
+                "The matrix is too large for a direct buffer. "
+                + "Use MatrixMarketCSR#readBigCSR instead.");
+        }
+        return ByteBuffer.allocateDirect((int) capacity)
+            .order(ByteOrder.nativeOrder());
+    }
+    
+    /**
+     * Returns the {@link DirectCSR} that was created at the end of the 
+     * second pass, or <code>null</code> if this callback did not yet 
+     * receive the appropriate calls
+     *  
+     * @return The {@link DirectCSR}
+     */
+    DirectCSR getDirectCSR()
+    {
+        return directCSR;
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.math.BigInteger;
+
+/**
+ * Methods for converting decimal numbers that are given as a mantissa and
+ * a decimal exponent into <code>double</code> values, without creating
+ * intermediate strings.<br>
+ * <br>
+ * The conversion uses the fast path of Clinger for small mantissas and
+ * exponents, and the algorithm of Eisel and Lemire otherwise. In the 
+ * rare cases where neither of them can decide about the correctly 
+ * rounded result, <code>NaN</code> is returned, and callers have to 
+ * fall back to <code>Double.parseDouble</code>.
+ */
+final class DoubleConversion
+{
+    /**
+     * The minimum decimal exponent that is contained in the table
+     */
+    private static final int MIN_EXPONENT = -342;
+    
+    /**
+     * The maximum decimal exponent that is contained in the table
+     */
+    private static final int MAX_EXPONENT = 308;
+    
+    /**
+     * The powers of ten that can be represented exactly as a double
+     */
+    private static final double EXACT_POWERS_OF_TEN[] = 
+    {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    
+    /**
+     * The high 64 bits of the normalized, truncated 128-bit 
+     * approximations of the powers of ten
+     */
+    private static final long POWERS_OF_TEN_HIGH[];
+    
+    /**
+     * The low 64 bits of the normalized, truncated 128-bit 
+     * approximations of the powers of ten
+     */
+    private static final long POWERS_OF_TEN_LOW[];
+    
+    static
+    {
+        int n = MAX_EXPONENT - MIN_EXPONENT + 1;
+        POWERS_OF_TEN_HIGH = new long[n];
+        POWERS_OF_TEN_LOW = new long[n];
+        BigInteger five = BigInteger.valueOf(5);
+        for (int q = MIN_EXPONENT; q <= MAX_EXPONENT; q++)
+        {
+            BigInteger c;
+            if (q >= 0)
+            {
+                c = five.pow(q);
+                int shift = 128 - c.bitLength();
+                c = shift >= 0 ? c.shiftLeft(shift) : c.shiftRight(-shift);
+            }
+            else
+            {
+                BigInteger p = five.pow(-q);
+                int shift = p.bitLength() + 127;
+                c = BigInteger.ONE.shiftLeft(shift).divide(p);
+                c = c.shiftRight(c.bitLength() - 128);
+            }
+            POWERS_OF_TEN_HIGH[q - MIN_EXPONENT] = c.shiftRight(64).longValue();
+            POWERS_OF_TEN_LOW[q - MIN_EXPONENT] = c.longValue();
+        }
+    }
+    
+    /**
+     * Compute the <code>double</code> value that is closest to 
+     * <code>mantissa * 10^exponent</code>, or return <code>NaN</code> 
+     * if this value can not be determined with this method.
+     * 
+     * @param negative Whether the value is negative
+     * @param mantissa The mantissa, as an unsigned value
+     * @param exponent The decimal exponent
+     * @return The value, or <code>NaN</code>
+     */
+    static double toDouble(boolean negative, long mantissa, int exponent)
+    {
+        if (mantissa == 0 || exponent < MIN_EXPONENT)
+        {
+            return negative ? -0.0 : 0.0;
+        }
+        if (exponent > MAX_EXPONENT)
+        {
+            return negative ? 
+                Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        }
+        
+        // Clinger's fast path: Both the mantissa and the power of 
+        // ten are exact, so a single rounding takes place
+        if (mantissa >= 0 && mantissa <= (1L << 53) && 
+            exponent >= -22 && exponent <= 22)
+        {
+            double value = mantissa;
+            if (exponent < 0)
+            {
+                value /= EXACT_POWERS_OF_TEN[-exponent];
+            }
+            else
+            {
+                value *= EXACT_POWERS_OF_TEN[exponent];
+            }
+            return negative ? -value : value;
+        }
+        
+        // The Eisel-Lemire algorithm
+        int leadingZeros = Long.numberOfLeadingZeros(mantissa);
+        long w = mantissa << leadingZeros;
+        long resultExponent = 
+            ((217706L * exponent) >> 16) + 64 + 1023 - leadingZeros;
+
+        int index = exponent - MIN_EXPONENT;
+        long high = POWERS_OF_TEN_HIGH[index];
+        long productHigh = multiplyHighUnsigned(w, high);
+        long productLow = w * high;
+        if ((productHigh & 0x1FF) == 0x1FF && 
+            Long.compareUnsigned(productLow + w, w) < 0)
+        {
+            long low = POWERS_OF_TEN_LOW[index];
+            long lowHigh = multiplyHighUnsigned(w, low);
+            long lowLow = w * low;
+            long mergedHigh = productHigh;
+            long mergedLow = productLow + lowHigh;
+            if (Long.compareUnsigned(mergedLow, productLow) < 0)
+            {
+                mergedHigh++;
+            }
+            if ((mergedHigh & 0x1FF) == 0x1FF && mergedLow + 1 == 0 &&
+                Long.compareUnsigned(lowLow + w, w) < 0)
+            {
+                return Double.NaN;
+            }
+            productHigh = mergedHigh;
+            productLow = mergedLow;
+        }
+        long msb = productHigh >>> 63;
+        long resultMantissa = productHigh >>> (msb + 9);
+        resultExponent -= 1 ^ msb;
+        
+        // Halfway ambiguity
+        if (productLow == 0 && (productHigh & 0x1FF) == 0 && 
+            (resultMantissa & 3) == 1)
+        {
+            return Double.NaN;
+        }
+        
+        resultMantissa += resultMantissa & 1;
+        resultMantissa >>>= 1;
+        if ((resultMantissa >>> 53) > 0)
+        {
+            resultMantissa >>>= 1;
+            resultExponent++;
+        }
+        
+        // Subnormal values and overflows are left to the fallback
+        if (resultExponent <= 0 || resultExponent >= 0x7FF)
+        {
+            return Double.NaN;
+        }
+        long bits = (resultExponent << 52) | 
+            (resultMantissa & 0x000FFFFFFFFFFFFFL);
+        if (negative)
+        {
+            bits |= 0x8000000000000000L;
+        }
+        return Double.longBitsToDouble(bits);
+    }
+    
+    /**
+     * Returns the high 64 bits of the unsigned 128-bit product of the
+     * given values
+     * 
+     * @param x The first value
+     * @param y The second value
+     * @return The high 64 bits of the product
+     */
+    private static long multiplyHighUnsigned(long x, long y)
+    {
+        long x0 = x & 0xFFFFFFFFL;
+        long x1 = x >>> 32;
+        long y0 = y & 0xFFFFFFFFL;
+        long y1 = y >>> 32;
+        long p11 = x1 * y1;
+        long p01 = x0 * y1;
+        long p10 = x1 * y0;
+        long p00 = x0 * y0;
+        long middle = p10 + (p00 >>> 32) + (p01 & 0xFFFFFFFFL);
+        return p11 + (middle >>> 32) + (p01 >>> 32);
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private DoubleConversion()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
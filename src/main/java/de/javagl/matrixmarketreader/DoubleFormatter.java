@@ -0,0 +1,466 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.math.BigInteger;
+
+/**
+ * Methods for formatting <code>double</code> values into byte arrays.<br>
+ * <br>
+ * The values are written with the shortest decimal representation that
+ * is parsed back into the same value, using the Schubfach algorithm by 
+ * Raffaello Giulietti. If there are several such representations, the 
+ * one that is closest to the value is chosen. The formatting does not 
+ * allocate any objects.
+ */
+final class DoubleFormatter
+{
+    /**
+     * The maximum number of bytes that are written for a single value,
+     * as in <code>"-1.2345678901234567e-308"</code>
+     */
+    static final int MAX_LENGTH = 24;
+    
+    /**
+     * The mask for the explicitly stored bits of the significand
+     */
+    private static final long T_MASK = (1L << 52) - 1;
+    
+    /**
+     * The mask for the lower 63 bits of a long value
+     */
+    private static final long MASK_63 = (1L << 63) - 1;
+    
+    /**
+     * The minimum significand of a normal value
+     */
+    private static final long C_MIN = 1L << 52;
+    
+    /**
+     * The exponent of the smallest subnormal value
+     */
+    private static final int Q_MIN = -1074;
+    
+    /**
+     * The significands of subnormal values that are smaller than this 
+     * value do not carry enough precision, and are scaled by 10
+     */
+    private static final int C_TINY = 3;
+    
+    /**
+     * The minimum decimal exponent for the table of powers of 10
+     */
+    private static final int E_MIN = -292;
+    
+    /**
+     * The maximum decimal exponent for the table of powers of 10
+     */
+    private static final int E_MAX = 324;
+    
+    /**
+     * The approximations of the powers of 10. For the exponent 
+     * <code>e</code>, let <code>g = floor(10^e * 2^-r) + 1</code>, 
+     * where <code>r</code> is chosen so that <code>g</code> is a 
+     * 126-bit number. Then the upper 63 bits of <code>g</code> are 
+     * stored at index <code>2*(e-E_MIN)</code>, and the lower 63 bits
+     * at the index after that. 
+     */
+    private static final long G[] = createPowersOfTen();
+    
+    /**
+     * The digits that are written for NaN
+     */
+    private static final byte NAN[] = { 'N', 'a', 'N' };
+
+    /**
+     * The digits that are written for infinity
+     */
+    private static final byte INFINITY[] = 
+        { 'I', 'n', 'f', 'i', 'n', 'i', 't', 'y' };
+    
+    /**
+     * Create the table of the approximations of the powers of 10
+     * 
+     * @return The table
+     */
+    private static long[] createPowersOfTen()
+    {
+        long g[] = new long[(E_MAX - E_MIN + 1) * 2];
+        for (int e = E_MIN; e <= E_MAX; e++)
+        {
+            int r = flog2pow10(e) - 125;
+            BigInteger p = BigInteger.TEN.pow(Math.abs(e));
+            BigInteger b;
+            if (e < 0)
+            {
+                b = BigInteger.ONE.shiftLeft(-r).divide(p);
+            }
+            else
+            {
+                b = r < 0 ? p.shiftLeft(-r) : p.shiftRight(r);
+            }
+            b = b.add(BigInteger.ONE);
+            int index = (e - E_MIN) << 1;
+            g[index + 0] = b.shiftRight(63).longValue();
+            g[index + 1] = b.longValue() & MASK_63;
+        }
+        return g;
+    }
+    
+    /**
+     * Write the shortest decimal representation of the given value into
+     * the given array, starting at the given offset. The array must have
+     * space for at least {@link #MAX_LENGTH} bytes.
+     * 
+     * @param v The value
+     * @param b The array
+     * @param offset The offset
+     * @return The offset after the last byte that was written
+     */
+    static int format(double v, byte b[], int offset)
+    {
+        long bits = Double.doubleToRawLongBits(v);
+        long t = bits & T_MASK;
+        int bq = (int) (bits >>> 52) & 0x7FF;
+        if (bq == 0x7FF)
+        {
+            if (t != 0)
+            {
+                return copy(NAN, b, offset);
+            }
+            if (bits < 0)
+            {
+                b[offset++] = '-';
+            }
+            return copy(INFINITY, b, offset);
+        }
+        int p = offset;
+        if (bits < 0)
+        {
+            b[p++] = '-';
+        }
+        if (bq != 0)
+        {
+            int mq = -Q_MIN + 1 - bq;
+            long c = C_MIN | t;
+            if (0 < mq && mq < 53)
+            {
+                // Integer values can be written directly
+                long f = c >> mq;
+                if (f << mq == c)
+                {
+                    return writeDecimal(f, 0, b, p);
+                }
+            }
+            return toDecimal(-mq, c, 0, b, p);
+        }
+        if (t != 0)
+        {
+            if (t < C_TINY)
+            {
+                return toDecimal(Q_MIN, 10 * t, -1, b, p);
+            }
+            return toDecimal(Q_MIN, t, 0, b, p);
+        }
+        b[p++] = '0';
+        return p;
+    }
+    
+    /**
+     * Compute the shortest decimal that is parsed into the value 
+     * <code>c * 2^q</code>, and write it into the given array
+     * 
+     * @param q The binary exponent
+     * @param c The significand
+     * @param dk The correction of the decimal exponent for tiny values
+     * @param b The array
+     * @param offset The offset
+     * @return The offset after the last byte that was written
+     */
+    private static int toDecimal(int q, long c, int dk, byte b[], int offset)
+    {
+        int out = (int) c & 0x1;
+        long cb = c << 2;
+        long cbr = cb + 2;
+        long cbl;
+        int k;
+        if (c != C_MIN | q == Q_MIN)
+        {
+            cbl = cb - 2;
+            k = flog10pow2(q);
+        }
+        else
+        {
+            // The distance to the next smaller value is only half 
+            // of the distance to the next larger value
+            cbl = cb - 1;
+            k = flog10threeQuartersPow2(q);
+        }
+        int h = q + flog2pow10(-k) + 2;
+        int index = (-k - E_MIN) << 1;
+        long g1 = G[index + 0];
+        long g0 = G[index + 1];
+        long vb = rop(g1, g0, cb << h);
+        long vbl = rop(g1, g0, cbl << h);
+        long vbr = rop(g1, g0, cbr << h);
+        long s = vb >> 2;
+        if (s >= 100)
+        {
+            // Check whether a value with one digit less is in the 
+            // rounding interval
+            long sp10 = 10 * multiplyHigh(s, 115_292_150_460_684_698L << 4);
+            long tp10 = sp10 + 10;
+            boolean upin = vbl + out <= sp10 << 2;
+            boolean wpin = (tp10 << 2) + out <= vbr;
+            if (upin != wpin)
+            {
+                return writeDecimal(upin ? sp10 : tp10, k + dk, b, offset);
+            }
+        }
+        long t = s + 1;
+        boolean uin = vbl + out <= s << 2;
+        boolean win = (t << 2) + out <= vbr;
+        if (uin != win)
+        {
+            return writeDecimal(uin ? s : t, k + dk, b, offset);
+        }
+        // Both candidates are in the rounding interval: Choose the one
+        // that is closer to the value, or the even one for ties
+        long cmp = vb - (s + t << 1);
+        long f = (cmp < 0 || cmp == 0 && (s & 0x1) == 0) ? s : t;
+        return writeDecimal(f, k + dk, b, offset);
+    }
+    
+    /**
+     * Computes the rounded product of the 126-bit value <code>g</code> 
+     * that is given by <code>g1</code> and <code>g0</code>, and 
+     * <code>cp</code>, divided by <code>2^127</code>, where the least 
+     * significant bit indicates whether the result is inexact.
+     * 
+     * @param g1 The upper 63 bits of <code>g</code>
+     * @param g0 The lower 63 bits of <code>g</code>
+     * @param cp The factor
+     * @return The result
+     */
+    private static long rop(long g1, long g0, long cp)
+    {
+        long x1 = multiplyHigh(g0, cp);
+        long y0 = g1 * cp;
+        long y1 = multiplyHigh(g1, cp);
+        long z = (y0 >>> 1) + x1;
+        long vbp = y1 + (z >>> 63);
+        return vbp | (z & MASK_63) + MASK_63 >>> 63;
+    }
+    
+    /**
+     * Returns the upper 64 bits of the 128-bit product of the given
+     * values.
+     * 
+     * @param x The first value
+     * @param y The second value
+     * @return The upper 64 bits of the product
+     */
+    private static long multiplyHigh(long x, long y)
+    {
+        // Equivalent to Math.multiplyHigh, which is not available
+        // in Java 8
+        long x1 = x >> 32;
+        long x2 = x & 0xFFFFFFFFL;
+        long y1 = y >> 32;
+        long y2 = y & 0xFFFFFFFFL;
+        long z2 = x2 * y2;
+        long t = x1 * y2 + (z2 >>> 32);
+        long z1 = t & 0xFFFFFFFFL;
+        long z0 = t >> 32;
+        z1 += x2 * y1;
+        return x1 * y1 + z0 + (z1 >> 32);
+    }
+    
+    /**
+     * Returns <code>floor(log10(2^q))</code>
+     * 
+     * @param q The exponent
+     * @return The result
+     */
+    private static int flog10pow2(int q)
+    {
+        return (int) (q * 661_971_961_083L >> 41);
+    }
+    
+    /**
+     * Returns <code>floor(log10(3/4 * 2^q))</code>
+     * 
+     * @param q The exponent
+     * @return The result
+     */
+    private static int flog10threeQuartersPow2(int q)
+    {
+        return (int) (q * 661_971_961_083L + -274_743_187_321L >> 41);
+    }
+    
+    /**
+     * Returns <code>floor(log2(10^e))</code>
+     * 
+     * @param e The exponent
+     * @return The result
+     */
+    private static int flog2pow10(int e)
+    {
+        return (int) (e * 913_124_641_741L >> 38);
+    }
+    
+    /**
+     * Write the decimal <code>f * 10^e</code> into the given array.<br>
+     * <br>
+     * Values between <code>0.001</code> and <code>10^17</code> are 
+     * written in plain notation. Other values are written in scientific
+     * notation, with a single digit before the decimal point.
+     * 
+     * @param f The positive significand
+     * @param e The decimal exponent
+     * @param b The array
+     * @param offset The offset
+     * @return The offset after the last byte that was written
+     */
+    private static int writeDecimal(long f, int e, byte b[], int offset)
+    {
+        while (f % 10 == 0)
+        {
+            f /= 10;
+            e++;
+        }
+        int n = numDigits(f);
+        
+        // The position of the decimal point, relative to the first digit
+        int point = n + e;
+        int p = offset;
+        if (e >= 0 && point <= 17)
+        {
+            p = writeDigits(f, n, b, p);
+            for (int i = 0; i < e; i++)
+            {
+                b[p++] = '0';
+            }
+            return p;
+        }
+        if (point > 0 && point <= 17)
+        {
+            writeDigits(f, n, b, p + 1);
+            System.arraycopy(b, p + 1, b, p, point);
+            b[p + point] = '.';
+            return p + n + 1;
+        }
+        if (point > -3 && point <= 0)
+        {
+            b[p++] = '0';
+            b[p++] = '.';
+            for (int i = point; i < 0; i++)
+            {
+                b[p++] = '0';
+            }
+            return writeDigits(f, n, b, p);
+        }
+        writeDigits(f, n, b, p + 1);
+        b[p] = b[p + 1];
+        p++;
+        if (n > 1)
+        {
+            b[p] = '.';
+            p += n;
+        }
+        b[p++] = 'e';
+        int exponent = point - 1;
+        if (exponent < 0)
+        {
+            b[p++] = '-';
+            exponent = -exponent;
+        }
+        return writeDigits(exponent, numDigits(exponent), b, p);
+    }
+    
+    /**
+     * Write the given number of decimal digits of the given value into 
+     * the given array
+     * 
+     * @param f The non-negative value
+     * @param n The number of digits
+     * @param b The array
+     * @param offset The offset
+     * @return The offset after the last byte that was written
+     */
+    static int writeDigits(long f, int n, byte b[], int offset)
+    {
+        long value = f;
+        for (int i = offset + n - 1; i >= offset; i--)
+        {
+            long q = value / 10;
+            b[i] = (byte) ('0' + (value - q * 10));
+            value = q;
+        }
+        return offset + n;
+    }
+    
+    /**
+     * Returns the number of decimal digits of the given value
+     * 
+     * @param f The non-negative value
+     * @return The number of digits
+     */
+    static int numDigits(long f)
+    {
+        int n = 1;
+        long limit = 10;
+        while (n < 19 && f >= limit)
+        {
+            n++;
+            limit *= 10;
+        }
+        return n;
+    }
+    
+    /**
+     * Copy the given bytes into the given array
+     * 
+     * @param source The bytes
+     * @param b The array
+     * @param offset The offset
+     * @return The offset after the last byte that was written
+     */
+    private static int copy(byte source[], byte b[], int offset)
+    {
+        System.arraycopy(source, 0, b, offset, source.length);
+        return offset + source.length;
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private DoubleFormatter()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
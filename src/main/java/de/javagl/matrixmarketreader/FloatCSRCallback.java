@@ -0,0 +1,83 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.util.Collections;
+
+/**
+ * Implementation of a {@link BatchCallback} that collects the elements of 
+ * a sparse matrix in primitive coordinate arrays, with single precision
+ * values, and creates a {@link FloatCSR} from them when the matrix is 
+ * finished.<br>
+ * <br>
+ * For matrices that are not {@link Symmetry#GENERAL}, the elements will
+ * be mirrored at the diagonal, so that the resulting {@link FloatCSR} 
+ * contains the full matrix. 
+ */
+class FloatCSRCallback extends CoordinateCallback
+{
+    /**
+     * The {@link FloatCSR} that was created in {@link #finishMatrix()}
+     */
+    private FloatCSR floatCSR;
+    
+    /**
+     * Default constructor
+     */
+    FloatCSRCallback()
+    {
+        super(-1, true);
+    }
+    
+    @Override
+    public void startMatrix(MatrixDescription matrixDescription)
+    {
+        super.startMatrix(matrixDescription);
+        floatCSR = null;
+    }
+
+    @Override
+    public void finishMatrix()
+    {
+        floatCSR = CSRs.createFloatCSR(getMatrixDescription(), 
+            Collections.singletonList(this));
+        release();
+    }
+    
+    /**
+     * Returns the {@link FloatCSR} that was created when the matrix was 
+     * finished, or <code>null</code> if this callback did not yet 
+     * receive the appropriate calls
+     *  
+     * @return The {@link FloatCSR}
+     */
+    FloatCSR getFloatCSR()
+    {
+        return floatCSR;
+    }
+
+}
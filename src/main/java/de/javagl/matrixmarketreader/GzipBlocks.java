@@ -0,0 +1,233 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Methods for compressing data into blocked gzip members, where each
+ * member contains its total size in the extra field of its header, as
+ * in the BGZF format. Such data can be decompressed with any gzip 
+ * implementation, and in parallel by a {@link ParallelGzipInputStream}.
+ * The data is compressed with the fastest compression level, because 
+ * the compression otherwise dominates the time for writing.
+ */
+final class GzipBlocks
+{
+    /**
+     * The maximum number of input bytes for a single member. This is
+     * chosen so that the compressed member never exceeds the maximum
+     * member size, even for incompressible data.
+     */
+    private static final int MAX_INPUT_LENGTH = 0xFF00;
+    
+    /**
+     * The maximum size of a member
+     */
+    private static final int MAX_MEMBER_LENGTH = 1 << 16;
+    
+    /**
+     * The length of the header of each member, including the extra field
+     */
+    private static final int MEMBER_HEADER_LENGTH = 18;
+    
+    /**
+     * The length of the trailer of each member
+     */
+    private static final int MEMBER_TRAILER_LENGTH = 8;
+    
+    /**
+     * The deflater for each thread
+     */
+    private static final ThreadLocal<Deflater> DEFLATERS = 
+        ThreadLocal.withInitial(() -> 
+            new Deflater(Deflater.BEST_SPEED, true));
+    
+    /**
+     * Compress the specified data into one or more members
+     * 
+     * @param data The data
+     * @param offset The offset of the data
+     * @param length The length of the data
+     * @return The compressed members
+     */
+    static byte[] compress(byte data[], int offset, int length)
+    {
+        int numMembers = 
+            Math.max(1, (length + MAX_INPUT_LENGTH - 1) / MAX_INPUT_LENGTH);
+        byte result[] = new byte[numMembers * MAX_MEMBER_LENGTH];
+        int position = 0;
+        int p = offset;
+        int end = offset + length;
+        do
+        {
+            int n = Math.min(end - p, MAX_INPUT_LENGTH);
+            position = compressMember(data, p, n, result, position);
+            p += n;
+        }
+        while (p < end);
+        return Arrays.copyOf(result, position);
+    }
+    
+    /**
+     * Returns the empty member that marks the end of a BGZF file
+     * 
+     * @return The member
+     */
+    static byte[] endOfFile()
+    {
+        return compress(new byte[0], 0, 0);
+    }
+    
+    /**
+     * Compress the specified data into a single member that is written
+     * into the given array
+     * 
+     * @param data The data
+     * @param offset The offset of the data
+     * @param length The length of the data, which may not be larger 
+     * than {@link #MAX_INPUT_LENGTH}
+     * @param target The target array
+     * @param position The position in the target array
+     * @return The position after the member in the target array
+     */
+    private static int compressMember(byte data[], int offset, int length, 
+        byte target[], int position)
+    {
+        Deflater deflater = DEFLATERS.get();
+        int capacity = 
+            MAX_MEMBER_LENGTH - MEMBER_HEADER_LENGTH - MEMBER_TRAILER_LENGTH;
+        int start = position + MEMBER_HEADER_LENGTH;
+        int n = deflate(deflater, Deflater.BEST_SPEED, 
+            data, offset, length, target, start, capacity);
+        if (n < 0)
+        {
+            // The compressed data did not fit into the member. The data
+            // can always be stored without compression.
+            n = deflate(deflater, Deflater.NO_COMPRESSION, 
+                data, offset, length, target, start, capacity);
+        }
+        int memberLength = MEMBER_HEADER_LENGTH + n + MEMBER_TRAILER_LENGTH;
+        
+        int p = position;
+        target[p++] = (byte) GzipInputStreams.ID1;
+        target[p++] = (byte) GzipInputStreams.ID2;
+        target[p++] = (byte) GzipInputStreams.CM_DEFLATE;
+        target[p++] = (byte) GzipInputStreams.FEXTRA;
+        p = writeInt(target, p, 0); // MTIME
+        target[p++] = 0; // XFL
+        target[p++] = (byte) 0xFF; // OS: Unknown
+        p = writeShort(target, p, 6); // XLEN
+        target[p++] = 'B';
+        target[p++] = 'C';
+        p = writeShort(target, p, 2);
+        p = writeShort(target, p, memberLength - 1);
+        
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        p = start + n;
+        p = writeInt(target, p, (int) crc.getValue());
+        p = writeInt(target, p, length);
+        return p;
+    }
+    
+    /**
+     * Deflate the specified data into the given target array
+     * 
+     * @param deflater The deflater
+     * @param level The compression level
+     * @param data The data
+     * @param offset The offset of the data
+     * @param length The length of the data
+     * @param target The target array
+     * @param position The position in the target array
+     * @param capacity The maximum number of bytes to write
+     * @return The number of bytes that have been written, or -1 if the
+     * compressed data did not fit into the given capacity
+     */
+    private static int deflate(Deflater deflater, int level, 
+        byte data[], int offset, int length, 
+        byte target[], int position, int capacity)
+    {
+        deflater.reset();
+        deflater.setLevel(level);
+        deflater.setInput(data, offset, length);
+        deflater.finish();
+        int n = 0;
+        while (!deflater.finished() && n < capacity)
+        {
+            n += deflater.deflate(target, position + n, capacity - n);
+        }
+        if (!deflater.finished())
+        {
+            return -1;
+        }
+        return n;
+    }
+    
+    /**
+     * Write the given value as an unsigned 16-bit little-endian value
+     * 
+     * @param array The array
+     * @param offset The offset
+     * @param value The value
+     * @return The offset after the value
+     */
+    private static int writeShort(byte array[], int offset, int value)
+    {
+        array[offset + 0] = (byte) (value);
+        array[offset + 1] = (byte) (value >>> 8);
+        return offset + 2;
+    }
+    
+    /**
+     * Write the given value as a 32-bit little-endian value
+     * 
+     * @param array The array
+     * @param offset The offset
+     * @param value The value
+     * @return The offset after the value
+     */
+    private static int writeInt(byte array[], int offset, int value)
+    {
+        array[offset + 0] = (byte) (value);
+        array[offset + 1] = (byte) (value >>> 8);
+        array[offset + 2] = (byte) (value >>> 16);
+        array[offset + 3] = (byte) (value >>> 24);
+        return offset + 4;
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private GzipBlocks()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Methods for detecting and decompressing gzip-compressed input
+ */
+class GzipInputStreams
+{
+    /**
+     * The first magic byte of a gzip member
+     */
+    static final int ID1 = 0x1f;
+    
+    /**
+     * The second magic byte of a gzip member
+     */
+    static final int ID2 = 0x8b;
+    
+    /**
+     * The compression method "deflate"
+     */
+    static final int CM_DEFLATE = 8;
+    
+    /**
+     * The flag indicating that the header contains a CRC16
+     */
+    static final int FHCRC = 0x02;
+    
+    /**
+     * The flag indicating that the header contains an extra field
+     */
+    static final int FEXTRA = 0x04;
+    
+    /**
+     * The flag indicating that the header contains a file name
+     */
+    static final int FNAME = 0x08;
+    
+    /**
+     * The flag indicating that the header contains a comment
+     */
+    static final int FCOMMENT = 0x10;
+    
+    /**
+     * The length of the fixed part of a gzip member header, including
+     * the length of the extra field
+     */
+    static final int HEADER_LENGTH = 12;
+    
+    /**
+     * The size of the buffer for the sequential decompression
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+    
+    /**
+     * Returns an input stream that provides the decompressed data of the 
+     * given stream if it starts with the gzip magic bytes, or the data
+     * of the given stream otherwise.<br>
+     * <br>
+     * If the first member of the gzip data contains the block size in 
+     * its extra field (as in the BGZF format that is used for blocked 
+     * gzip files), then the following members will be decompressed in 
+     * parallel, in the common <code>ForkJoinPool</code>. Otherwise, 
+     * all members will be decompressed sequentially.
+     * 
+     * @param inputStream The input stream
+     * @return The input stream for the decompressed data
+     * @throws IOException If an IO-error occurs
+     */
+    static InputStream decompressIfNecessary(InputStream inputStream) 
+        throws IOException
+    {
+        PushbackInputStream pushbackInputStream = new PushbackInputStream(
+            inputStream, HEADER_LENGTH + 0xFFFF);
+        byte header[] = new byte[HEADER_LENGTH];
+        int n = readFully(pushbackInputStream, header, 0, HEADER_LENGTH);
+        if (n < 2 || !isMagic(header[0], header[1]))
+        {
+            pushbackInputStream.unread(header, 0, n);
+            return pushbackInputStream;
+        }
+        boolean blocked = false;
+        if (n == HEADER_LENGTH && (header[3] & FEXTRA) != 0)
+        {
+            int extraLength = readUnsignedShort(header, 10);
+            byte extra[] = new byte[extraLength];
+            int m = readFully(pushbackInputStream, extra, 0, extraLength);
+            blocked = m == extraLength && 
+                findBlockSize(extra, 0, extraLength) >= 0;
+            pushbackInputStream.unread(extra, 0, m);
+        }
+        pushbackInputStream.unread(header, 0, n);
+        if (blocked)
+        {
+            return new ParallelGzipInputStream(
+                pushbackInputStream, ForkJoinPool.commonPool());
+        }
+        return new GZIPInputStream(pushbackInputStream, BUFFER_SIZE);
+    }
+    
+    /**
+     * Returns whether the given file starts with the gzip magic bytes
+     * 
+     * @param fileChannel The file channel
+     * @return Whether the file is gzip-compressed
+     * @throws IOException If an IO-error occurs
+     */
+    static boolean isGzip(FileChannel fileChannel) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(2);
+        while (buffer.hasRemaining())
+        {
+            if (fileChannel.read(buffer, buffer.position()) < 0)
+            {
+                return false;
+            }
+        }
+        return isMagic(buffer.get(0), buffer.get(1));
+    }
+    
+    /**
+     * Returns whether the given bytes are the gzip magic bytes
+     * 
+     * @param b0 The first byte
+     * @param b1 The second byte
+     * @return Whether the bytes are the gzip magic bytes
+     */
+    static boolean isMagic(byte b0, byte b1)
+    {
+        return (b0 & 0xFF) == ID1 && (b1 & 0xFF) == ID2;
+    }
+    
+    /**
+     * Returns the block size that is contained in the given extra field
+     * of a gzip member header, or -1 if the extra field does not contain
+     * a "BC" subfield with the block size. The block size is the total
+     * size of the member, minus 1.
+     * 
+     * @param extra The array containing the extra field
+     * @param offset The offset of the extra field in the array
+     * @param length The length of the extra field
+     * @return The block size
+     */
+    static int findBlockSize(byte extra[], int offset, int length)
+    {
+        int position = offset;
+        int end = offset + length;
+        while (position + 4 <= end)
+        {
+            int subfieldLength = readUnsignedShort(extra, position + 2);
+            if (extra[position] == 'B' && extra[position + 1] == 'C' &&
+                subfieldLength == 2 && position + 6 <= end)
+            {
+                return readUnsignedShort(extra, position + 4);
+            }
+            position += 4 + subfieldLength;
+        }
+        return -1;
+    }
+    
+    /**
+     * Read an unsigned little-endian 16 bit value from the given array
+     * 
+     * @param array The array
+     * @param offset The offset
+     * @return The value
+     */
+    static int readUnsignedShort(byte array[], int offset)
+    {
+        return (array[offset] & 0xFF) | ((array[offset + 1] & 0xFF) << 8);
+    }
+    
+    /**
+     * Read an unsigned little-endian 32 bit value from the given array
+     * 
+     * @param array The array
+     * @param offset The offset
+     * @return The value
+     */
+    static long readUnsignedInt(byte array[], int offset)
+    {
+        return (readUnsignedShort(array, offset) | 
+            ((long) readUnsignedShort(array, offset + 2) << 16));
+    }
+    
+    /**
+     * Read bytes from the given input stream into the given array, until
+     * the given number of bytes was read or the end of the stream was
+     * reached
+     * 
+     * @param inputStream The input stream
+     * @param array The array
+     * @param offset The offset in the array
+     * @param length The number of bytes to read
+     * @return The number of bytes that have been read
+     * @throws IOException If an IO-error occurs
+     */
+    static int readFully(InputStream inputStream, 
+        byte array[], int offset, int length) throws IOException
+    {
+        int total = 0;
+        while (total < length)
+        {
+            int n = inputStream.read(array, offset + total, length - total);
+            if (n < 0)
+            {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private GzipInputStreams()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Implementation of a {@link ReadListener} that emits JDK Flight Recorder
+ * events for the phases of reading a matrix.<br>
+ * <br>
+ * This class is only instantiated via reflection by 
+ * {@link ReadInstrumentation}, and is excluded from the build on Java 8.
+ * The events are committed when a phase is finished, and contain the 
+ * duration of the phase in their <code>elapsed</code> field, because
+ * some phases (like the symmetry expansion) are not contiguous. Only a
+ * few events are emitted for each matrix, so they are enabled in every 
+ * recording, for example, one that is started with
+ * <code>-XX:StartFlightRecording</code>. They can be disabled in the 
+ * recording settings, using their names, like 
+ * <code>de.javagl.matrixmarketreader.HeaderParse</code>.
+ */
+final class JfrReadListener implements ReadListener
+{
+    @Override
+    public void phaseFinished(ReadPhase phase, long bytes, long lines, 
+        long commentLines, long entries, long durationNanos)
+    {
+        ReadPhaseEvent event = createEvent(phase);
+        if (!event.isEnabled())
+        {
+            return;
+        }
+        event.bytes = bytes;
+        event.lines = lines;
+        event.commentLines = commentLines;
+        event.entries = entries;
+        event.elapsed = durationNanos;
+        event.commit();
+    }
+    
+    /**
+     * Create the event for the given {@link ReadPhase}
+     * 
+     * @param phase The {@link ReadPhase}
+     * @return The event
+     */
+    private static ReadPhaseEvent createEvent(ReadPhase phase)
+    {
+        switch (phase)
+        {
+            case HEADER:
+                return new HeaderParseEvent();
+            case BODY:
+                return new BodyParseEvent();
+            case SYMMETRY_EXPANSION:
+                return new SymmetryExpansionEvent();
+            case CSR_BUILD:
+                return new CSRBuildEvent();
+            default:
+                // Should never happen:
+                throw new AssertionError("Invalid phase " + phase);
+        }
+    }
+    
+    /**
+     * Base class for the events of the phases of reading a matrix
+     */
+    @Category({ "MatrixMarketReader" })
+    @StackTrace(false)
+    abstract static class ReadPhaseEvent extends Event
+    {
+        /**
+         * The number of bytes
+         */
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+        
+        /**
+         * The number of lines
+         */
+        @Label("Lines")
+        long lines;
+        
+        /**
+         * The number of comment lines
+         */
+        @Label("Comment Lines")
+        long commentLines;
+        
+        /**
+         * The number of entries
+         */
+        @Label("Entries")
+        long entries;
+        
+        /**
+         * The duration of the phase, in nanoseconds
+         */
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+    
+    /**
+     * The event for {@link ReadPhase#HEADER}
+     */
+    @Name("de.javagl.matrixmarketreader.HeaderParse")
+    @Label("MatrixMarket Header Parse")
+    @Description("Parsing the header and the size line")
+    static final class HeaderParseEvent extends ReadPhaseEvent
+    {
+        // No additional fields
+    }
+    
+    /**
+     * The event for {@link ReadPhase#BODY}
+     */
+    @Name("de.javagl.matrixmarketreader.BodyParse")
+    @Label("MatrixMarket Body Parse")
+    @Description("Parsing the body, including the callback")
+    static final class BodyParseEvent extends ReadPhaseEvent
+    {
+        // No additional fields
+    }
+    
+    /**
+     * The event for {@link ReadPhase#SYMMETRY_EXPANSION}
+     */
+    @Name("de.javagl.matrixmarketreader.SymmetryExpansion")
+    @Label("MatrixMarket Symmetry Expansion")
+    @Description("Mirroring the elements of a non-general matrix")
+    static final class SymmetryExpansionEvent extends ReadPhaseEvent
+    {
+        // No additional fields
+    }
+    
+    /**
+     * The event for {@link ReadPhase#CSR_BUILD}
+     */
+    @Name("de.javagl.matrixmarketreader.CSRBuild")
+    @Label("MatrixMarket CSR Build")
+    @Description("Building a CSR from the elements")
+    static final class CSRBuildEvent extends ReadPhaseEvent
+    {
+        // No additional fields
+    }
+}
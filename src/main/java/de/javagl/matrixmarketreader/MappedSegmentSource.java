@@ -0,0 +1,131 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * Implementation of a {@link SegmentSource} that maps the contents of
+ * a file channel into memory. Files that are larger than the window
+ * size are mapped in multiple windows, each of them ending at a line 
+ * boundary.
+ */
+final class MappedSegmentSource implements SegmentSource
+{
+    /**
+     * The default size of the mapped windows
+     */
+    static final int DEFAULT_WINDOW_SIZE = 1 << 28;
+    
+    /**
+     * The file channel
+     */
+    private final FileChannel fileChannel;
+    
+    /**
+     * The size of the file
+     */
+    private final long size;
+    
+    /**
+     * The size of the mapped windows
+     */
+    private final int windowSize;
+    
+    /**
+     * The offset of the next window in the file
+     */
+    private long offset;
+    
+    /**
+     * Creates a new instance with a default window size
+     * 
+     * @param fileChannel The file channel
+     * @throws IOException If an IO-error occurs
+     */
+    MappedSegmentSource(FileChannel fileChannel) throws IOException
+    {
+        this(fileChannel, DEFAULT_WINDOW_SIZE);
+    }
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param fileChannel The file channel
+     * @param windowSize The size of the mapped windows. A window will
+     * be enlarged if a single line does not fit into the window.
+     * @throws IOException If an IO-error occurs
+     */
+    MappedSegmentSource(FileChannel fileChannel, int windowSize) 
+        throws IOException
+    {
+        this.fileChannel = fileChannel;
+        this.size = fileChannel.size();
+        this.windowSize = windowSize;
+        this.offset = 0;
+    }
+    
+    @Override
+    public ByteBuffer nextSegment() throws IOException
+    {
+        long currentWindowSize = windowSize;
+        while (offset < size)
+        {
+            long remaining = size - offset;
+            if (remaining <= currentWindowSize)
+            {
+                MappedByteBuffer buffer = fileChannel.map(
+                    MapMode.READ_ONLY, offset, remaining);
+                offset = size;
+                return buffer;
+            }
+            MappedByteBuffer buffer = fileChannel.map(
+                MapMode.READ_ONLY, offset, currentWindowSize);
+            int segmentEnd = Tokenizer.findLastLineEnd(
+                buffer, 0, buffer.limit());
+            if (segmentEnd != -1)
+            {
+                offset += segmentEnd;
+                buffer.limit(segmentEnd);
+                return buffer;
+            }
+            
+            // The window does not contain a single complete line
+            if (currentWindowSize >= Integer.MAX_VALUE / 2)
+            {
+                throw new IOException(
+                    "Line at offset " + offset + " is too long");
+            }
+            currentWindowSize *= 2;
+        }
+        return null;
+    }
+}
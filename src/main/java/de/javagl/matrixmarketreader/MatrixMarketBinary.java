@@ -0,0 +1,472 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Methods to write and read {@link CSR} and {@link COO} data in a compact
+ * binary format.<br>
+ * <br>
+ * The files consist of a header with a fixed size, containing the size 
+ * of the matrix, the {@link Symmetry} of the stored entries of a 
+ * {@link CSR}, and the lengths of the arrays, followed by the raw 
+ * arrays in little-endian byte order. The arrays of {@link CSR} data 
+ * are the row pointers, the column indices and the values. The arrays 
+ * of {@link COO} data are the row indices, the column indices and the 
+ * values. The values start at a multiple of 8 bytes. The files are 
+ * read by mapping them into memory, and copying the arrays in bulk,
+ * without any parsing.<br>
+ * <br>
+ * This format is intended as a cache for MatrixMarket files, as used
+ * by {@link MatrixMarketCSR#readCSRCached(Path)}. It is not intended
+ * for exchanging data.
+ */
+public class MatrixMarketBinary
+{
+    /**
+     * The size of the buffer that is used for writing
+     */
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    
+    /**
+     * The maximum size of the regions that are mapped for reading
+     */
+    private static final long MAP_WINDOW_SIZE = 1 << 30;
+    
+    /**
+     * The number of bytes at the start and at the end of the source file
+     * that are used for computing the checksum
+     */
+    private static final int CHECKSUM_REGION_SIZE = 1 << 20;
+    
+    /**
+     * Write the given {@link CSR} to the given file
+     * 
+     * @param csr The {@link CSR}
+     * @param path The path of the file
+     * @throws IOException If an IO-error occurs
+     */
+    public static void writeCSR(CSR csr, Path path) throws IOException
+    {
+        BinaryHeader header = new BinaryHeader();
+        writeCSR(csr, header, path);
+    }
+    
+    /**
+     * Read a {@link CSR} from the given file, which must have been 
+     * written with {@link #writeCSR(CSR, Path)}
+     * 
+     * @param path The path of the file
+     * @return The {@link CSR}
+     * @throws IOException If an IO-error occurs, or the file does not
+     * contain valid {@link CSR} data
+     */
+    public static CSR readCSR(Path path) throws IOException
+    {
+        try (FileChannel fileChannel = 
+            FileChannel.open(path, StandardOpenOption.READ))
+        {
+            BinaryHeader header = BinaryHeader.read(fileChannel);
+            return readCSR(fileChannel, header);
+        }
+    }
+    
+    /**
+     * Write the given {@link COO} to the given file
+     * 
+     * @param coo The {@link COO}
+     * @param path The path of the file
+     * @throws IOException If an IO-error occurs
+     */
+    public static void writeCOO(COO coo, Path path) throws IOException
+    {
+        BinaryHeader header = new BinaryHeader();
+        header.kind = BinaryHeader.KIND_COO;
+        header.numRows = coo.numRows;
+        header.numCols = coo.numCols;
+        header.numEntries = coo.rowIndices.length;
+        header.numValues = (coo.values == null) ? -1 : coo.values.length;
+        try (FileChannel fileChannel = FileChannel.open(path, 
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            header.write(fileChannel);
+            long position = BinaryHeader.SIZE;
+            position = writeInts(fileChannel, position, coo.rowIndices);
+            position = writeInts(fileChannel, position, coo.columnIndices);
+            position = align(position);
+            if (coo.values != null)
+            {
+                writeDoubles(fileChannel, position, coo.values);
+            }
+        }
+    }
+    
+    /**
+     * Read a {@link COO} from the given file, which must have been 
+     * written with {@link #writeCOO(COO, Path)}
+     * 
+     * @param path The path of the file
+     * @return The {@link COO}
+     * @throws IOException If an IO-error occurs, or the file does not
+     * contain valid {@link COO} data
+     */
+    public static COO readCOO(Path path) throws IOException
+    {
+        try (FileChannel fileChannel = 
+            FileChannel.open(path, StandardOpenOption.READ))
+        {
+            BinaryHeader header = BinaryHeader.read(fileChannel);
+            if (header.kind != BinaryHeader.KIND_COO)
+            {
+                throw new IOException("The file does not contain COO data");
+            }
+            int numEntries = toArrayLength(header.numEntries);
+            long position = BinaryHeader.SIZE;
+            long end = position + 8L * numEntries;
+            validateSize(fileChannel, header, end);
+            COO coo = new COO();
+            coo.numRows = header.numRows;
+            coo.numCols = header.numCols;
+            coo.rowIndices = new int[numEntries];
+            coo.columnIndices = new int[numEntries];
+            position = readInts(fileChannel, position, coo.rowIndices);
+            position = readInts(fileChannel, position, coo.columnIndices);
+            position = align(position);
+            if (header.numValues >= 0)
+            {
+                coo.values = new double[toArrayLength(header.numValues)];
+                readDoubles(fileChannel, position, coo.values);
+            }
+            return coo;
+        }
+    }
+    
+    /**
+     * Write the given {@link CSR} to the given file, using the given
+     * header. The kind and the sizes in the header will be set based
+     * on the given {@link CSR}.
+     * 
+     * @param csr The {@link CSR}
+     * @param header The {@link BinaryHeader}
+     * @param path The path of the file
+     * @throws IOException If an IO-error occurs
+     */
+    static void writeCSR(CSR csr, BinaryHeader header, Path path) 
+        throws IOException
+    {
+        header.kind = BinaryHeader.KIND_CSR;
+        header.numRows = csr.numRows;
+        header.numCols = csr.numCols;
+        header.storedSymmetry = 
+            (csr.symmetry == null) ? Symmetry.GENERAL : csr.symmetry;
+        header.numEntries = csr.columnIndices.length;
+        header.numValues = (csr.values == null) ? -1 : csr.values.length;
+        try (FileChannel fileChannel = FileChannel.open(path, 
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            header.write(fileChannel);
+            long position = BinaryHeader.SIZE;
+            position = writeInts(fileChannel, position, csr.rowPointers);
+            position = writeInts(fileChannel, position, csr.columnIndices);
+            position = align(position);
+            if (csr.values != null)
+            {
+                writeDoubles(fileChannel, position, csr.values);
+            }
+        }
+    }
+    
+    /**
+     * Read the {@link CSR} data that follows the given header from the
+     * given channel
+     * 
+     * @param fileChannel The file channel
+     * @param header The {@link BinaryHeader}
+     * @return The {@link CSR}
+     * @throws IOException If an IO-error occurs, or the file does not
+     * contain valid {@link CSR} data
+     */
+    static CSR readCSR(FileChannel fileChannel, BinaryHeader header) 
+        throws IOException
+    {
+        if (header.kind != BinaryHeader.KIND_CSR)
+        {
+            throw new IOException("The file does not contain CSR data");
+        }
+        int numEntries = toArrayLength(header.numEntries);
+        long position = BinaryHeader.SIZE;
+        long end = position + 4L * (header.numRows + 1L) + 
+            4L * numEntries;
+        validateSize(fileChannel, header, end);
+        CSR csr = new CSR();
+        csr.numRows = header.numRows;
+        csr.numCols = header.numCols;
+        csr.symmetry = header.storedSymmetry;
+        csr.rowPointers = new int[header.numRows + 1];
+        csr.columnIndices = new int[numEntries];
+        position = readInts(fileChannel, position, csr.rowPointers);
+        position = readInts(fileChannel, position, csr.columnIndices);
+        position = align(position);
+        if (header.numValues >= 0)
+        {
+            csr.values = new double[toArrayLength(header.numValues)];
+            readDoubles(fileChannel, position, csr.values);
+        }
+        return csr;
+    }
+    
+    /**
+     * Compute a checksum for the given source file. For efficiency, 
+     * this only takes into account the size of the file and a limited 
+     * number of bytes at the start and the end of the file. 
+     * 
+     * @param fileChannel The file channel
+     * @return The checksum
+     * @throws IOException If an IO-error occurs
+     */
+    static long computeSourceChecksum(FileChannel fileChannel) 
+        throws IOException
+    {
+        long size = fileChannel.size();
+        CRC32 crc = new CRC32();
+        long headSize = Math.min(size, CHECKSUM_REGION_SIZE);
+        crc.update(fileChannel.map(MapMode.READ_ONLY, 0, headSize));
+        long tailStart = Math.max(headSize, size - CHECKSUM_REGION_SIZE);
+        crc.update(fileChannel.map(
+            MapMode.READ_ONLY, tailStart, size - tailStart));
+        return (crc.getValue() << 32) ^ size;
+    }
+    
+    /**
+     * Make sure that the size of the given channel matches the size that
+     * is expected for the given header. When there are no values, then
+     * the file ends directly after the integer arrays. Otherwise, the 
+     * values start at the next multiple of 8 bytes.
+     * 
+     * @param fileChannel The file channel
+     * @param header The {@link BinaryHeader}
+     * @param intsEnd The position where the integer arrays end
+     * @throws IOException If the size does not match
+     */
+    private static void validateSize(FileChannel fileChannel, 
+        BinaryHeader header, long intsEnd) throws IOException
+    {
+        long expectedSize = intsEnd;
+        if (header.numValues >= 0)
+        {
+            expectedSize = align(intsEnd) + 8L * header.numValues;
+        }
+        long size = fileChannel.size();
+        if (size != expectedSize)
+        {
+            throw new IOException("Expected a file size of " + expectedSize 
+                + " bytes, but the size is " + size + " bytes");
+        }
+    }
+    
+    /**
+     * Returns the given size as an array length
+     * 
+     * @param size The size
+     * @return The array length
+     * @throws IOException If the size is not a valid array length
+     */
+    private static int toArrayLength(long size) throws IOException
+    {
+        if (size < 0 || size > Integer.MAX_VALUE - 8)
+        {
+            throw new IOException("Invalid array length: " + size);
+        }
+        return (int) size;
+    }
+    
+    /**
+     * Returns the smallest multiple of 8 that is not smaller than the 
+     * given position
+     * 
+     * @param position The position
+     * @return The aligned position
+     */
+    private static long align(long position)
+    {
+        return (position + 7) & ~7L;
+    }
+    
+    /**
+     * Write the given array into the given channel, starting at the
+     * given position
+     * 
+     * @param fileChannel The file channel
+     * @param position The position
+     * @param array The array
+     * @return The position after the array
+     * @throws IOException If an IO-error occurs
+     */
+    private static long writeInts(FileChannel fileChannel, long position,
+        int array[]) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        long p = position;
+        int offset = 0;
+        while (offset < array.length)
+        {
+            int n = Math.min(array.length - offset, WRITE_BUFFER_SIZE / 4);
+            buffer.clear();
+            buffer.asIntBuffer().put(array, offset, n);
+            buffer.limit(n * 4);
+            p = writeFully(fileChannel, p, buffer);
+            offset += n;
+        }
+        return p;
+    }
+    
+    /**
+     * Write the given array into the given channel, starting at the
+     * given position
+     * 
+     * @param fileChannel The file channel
+     * @param position The position
+     * @param array The array
+     * @return The position after the array
+     * @throws IOException If an IO-error occurs
+     */
+    private static long writeDoubles(FileChannel fileChannel, long position,
+        double array[]) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        long p = position;
+        int offset = 0;
+        while (offset < array.length)
+        {
+            int n = Math.min(array.length - offset, WRITE_BUFFER_SIZE / 8);
+            buffer.clear();
+            buffer.asDoubleBuffer().put(array, offset, n);
+            buffer.limit(n * 8);
+            p = writeFully(fileChannel, p, buffer);
+            offset += n;
+        }
+        return p;
+    }
+    
+    /**
+     * Write the remaining bytes of the given buffer into the given 
+     * channel, starting at the given position
+     * 
+     * @param fileChannel The file channel
+     * @param position The position
+     * @param buffer The buffer
+     * @return The position after the written bytes
+     * @throws IOException If an IO-error occurs
+     */
+    private static long writeFully(FileChannel fileChannel, long position,
+        ByteBuffer buffer) throws IOException
+    {
+        long p = position;
+        while (buffer.hasRemaining())
+        {
+            p += fileChannel.write(buffer, p);
+        }
+        return p;
+    }
+    
+    /**
+     * Read the given array from the given channel, starting at the
+     * given position
+     * 
+     * @param fileChannel The file channel
+     * @param position The position
+     * @param array The array
+     * @return The position after the array
+     * @throws IOException If an IO-error occurs
+     */
+    private static long readInts(FileChannel fileChannel, long position,
+        int array[]) throws IOException
+    {
+        long p = position;
+        int offset = 0;
+        while (offset < array.length)
+        {
+            int n = (int) Math.min(array.length - offset, MAP_WINDOW_SIZE / 4);
+            MappedByteBuffer buffer = 
+                fileChannel.map(MapMode.READ_ONLY, p, n * 4L);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.asIntBuffer().get(array, offset, n);
+            p += n * 4L;
+            offset += n;
+        }
+        return p;
+    }
+    
+    /**
+     * Read the given array from the given channel, starting at the
+     * given position
+     * 
+     * @param fileChannel The file channel
+     * @param position The position
+     * @param array The array
+     * @return The position after the array
+     * @throws IOException If an IO-error occurs
+     */
+    private static long readDoubles(FileChannel fileChannel, long position,
+        double array[]) throws IOException
+    {
+        long p = position;
+        int offset = 0;
+        while (offset < array.length)
+        {
+            int n = (int) Math.min(array.length - offset, MAP_WINDOW_SIZE / 8);
+            MappedByteBuffer buffer = 
+                fileChannel.map(MapMode.READ_ONLY, p, n * 8L);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.asDoubleBuffer().get(array, offset, n);
+            p += n * 8L;
+            offset += n;
+        }
+        return p;
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private MatrixMarketBinary()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -0,0 +1,465 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A class for loading all MatrixMarket files in a directory, in 
+ * parallel, as {@link CSR} instances.<br>
+ * <br>
+ * The headers of all files are read first, and the peak memory 
+ * consumption of loading each file is estimated from its
+ * {@link MatrixDescription}, as described in {@link ProbeResult}. The 
+ * files are then loaded in a pool of worker threads, largest first. A 
+ * file is only started when the sum of the estimates of all files that 
+ * are currently being loaded, including the new one, does not exceed 
+ * the heap budget. A file whose estimate exceeds the budget on its own
+ * is only started when no other file is being loaded.<br>
+ * <br>
+ * The results are passed to a consumer, as {@link BulkLoadResult} 
+ * instances, as soon as each file has been loaded. A file that can not
+ * be read does not abort the batch: The failure is reported to the 
+ * consumer, and the remaining files are still loaded.
+ */
+public final class MatrixMarketBulkLoader
+{
+    /**
+     * The counter for the names of the worker threads
+     */
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+    
+    /**
+     * The number of worker threads
+     */
+    private final int numThreads;
+    
+    /**
+     * The heap budget, in bytes
+     */
+    private final long maxNumBytes;
+    
+    /**
+     * Creates a new instance that uses one worker thread for each 
+     * available processor, and half of the maximum heap size as the 
+     * heap budget
+     */
+    public MatrixMarketBulkLoader()
+    {
+        this(Runtime.getRuntime().availableProcessors(), 
+            Runtime.getRuntime().maxMemory() / 2);
+    }
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param numThreads The number of worker threads
+     * @param maxNumBytes The heap budget, in bytes. This is the maximum 
+     * sum of the estimated peak memory consumption of the files that 
+     * are loaded at the same time.
+     * @throws IllegalArgumentException If the number of threads is not
+     * positive, or the heap budget is negative
+     */
+    public MatrixMarketBulkLoader(int numThreads, long maxNumBytes)
+    {
+        if (numThreads <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The number of threads must be positive, but is " 
+                + numThreads);
+        }
+        if (maxNumBytes < 0)
+        {
+            throw new IllegalArgumentException(
+                "The maximum number of bytes may not be negative, but is "
+                + maxNumBytes);
+        }
+        this.numThreads = numThreads;
+        this.maxNumBytes = maxNumBytes;
+    }
+    
+    /**
+     * Load all MatrixMarket files in the given directory and its 
+     * subdirectories, and pass the results to the given consumer.<br>
+     * <br>
+     * The files are all regular files whose name ends with 
+     * <code>.mtx</code> or <code>.mtx.gz</code>. The consumer receives
+     * exactly one {@link BulkLoadResult} for each file. It is called 
+     * from the worker threads, and thus, may be called concurrently. 
+     * The memory of a {@link CSR} is charged against the heap budget 
+     * until the consumer returns.<br>
+     * <br>
+     * If the consumer throws an exception, then no further files will 
+     * be started, and the exception will be thrown by this method after 
+     * the files that are currently being loaded have been passed to the
+     * consumer.
+     * 
+     * @param directory The directory
+     * @param consumer The consumer for the results
+     * @return The number of files that could not be loaded
+     * @throws IOException If the directory can not be traversed
+     * @throws InterruptedIOException If the calling thread is interrupted
+     * while waiting for the files to be loaded
+     * @throws NullPointerException If any argument is <code>null</code>
+     */
+    public int load(Path directory, 
+        Consumer<? super BulkLoadResult> consumer) throws IOException
+    {
+        Objects.requireNonNull(directory, "The directory may not be null");
+        Objects.requireNonNull(consumer, "The consumer may not be null");
+        List<Path> paths = findFiles(directory);
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads, 
+            runnable -> 
+            {
+                Thread thread = new Thread(runnable, "MatrixMarketBulkLoader-" 
+                    + THREAD_COUNTER.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        try
+        {
+            Batch batch = new Batch(executor, consumer);
+            List<BulkLoadResult> pending = batch.probe(paths);
+            pending.sort((r0, r1) -> 
+                Long.compare(r1.estimatedBytes, r0.estimatedBytes));
+            batch.dispatch(pending);
+            return batch.numFailures;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(
+                "Interrupted while loading the files");
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+    
+    /**
+     * Returns a list of all MatrixMarket files in the given directory 
+     * and its subdirectories, sorted by their path
+     * 
+     * @param directory The directory
+     * @return The files
+     * @throws IOException If the directory can not be traversed
+     */
+    private static List<Path> findFiles(Path directory) throws IOException
+    {
+        try (Stream<Path> stream = Files.walk(directory))
+        {
+            return stream
+                .filter(path -> Files.isRegularFile(path))
+                .filter(path -> isMatrixMarketFileName(
+                    path.getFileName().toString()))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+    
+    /**
+     * Returns whether the given file name is the name of a MatrixMarket
+     * file
+     * 
+     * @param fileName The file name
+     * @return Whether the file name ends with <code>.mtx</code> or 
+     * <code>.mtx.gz</code>
+     */
+    private static boolean isMatrixMarketFileName(String fileName)
+    {
+        return fileName.endsWith(".mtx") || fileName.endsWith(".mtx.gz");
+    }
+    
+    /**
+     * The state of a single call to {@link #load}
+     */
+    private final class Batch
+    {
+        /**
+         * The executor for the workers
+         */
+        private final ExecutorService executor;
+        
+        /**
+         * The consumer for the results
+         */
+        private final Consumer<? super BulkLoadResult> consumer;
+        
+        /**
+         * The number of files that are currently being loaded
+         */
+        private int numInFlight;
+        
+        /**
+         * The sum of the estimated bytes of the files that are 
+         * currently being loaded
+         */
+        private long numInFlightBytes;
+        
+        /**
+         * The number of files that could not be loaded
+         */
+        private int numFailures;
+        
+        /**
+         * The first exception that was thrown by the consumer
+         */
+        private RuntimeException consumerException;
+        
+        /**
+         * Creates a new instance
+         * 
+         * @param executor The executor
+         * @param consumer The consumer
+         */
+        Batch(ExecutorService executor, 
+            Consumer<? super BulkLoadResult> consumer)
+        {
+            this.executor = executor;
+            this.consumer = consumer;
+        }
+        
+        /**
+         * Read the headers of the given files in parallel, and return 
+         * the results for the files that will be loaded. Files whose 
+         * header can not be read are reported to the consumer as 
+         * failures.
+         * 
+         * @param paths The paths of the files
+         * @return The results for the files that will be loaded
+         * @throws InterruptedException If the thread is interrupted
+         */
+        List<BulkLoadResult> probe(List<Path> paths) 
+            throws InterruptedException
+        {
+            List<Future<BulkLoadResult>> futures = 
+                new ArrayList<Future<BulkLoadResult>>();
+            for (Path path : paths)
+            {
+                futures.add(executor.submit(() -> probe(path)));
+            }
+            List<BulkLoadResult> pending = new ArrayList<BulkLoadResult>();
+            for (Future<BulkLoadResult> future : futures)
+            {
+                BulkLoadResult result;
+                try
+                {
+                    result = future.get();
+                }
+                catch (ExecutionException e)
+                {
+                    throw new IllegalStateException(e.getCause());
+                }
+                if (result.error == null)
+                {
+                    pending.add(result);
+                }
+                else
+                {
+                    numFailures++;
+                    consumer.accept(result);
+                }
+            }
+            return pending;
+        }
+        
+        /**
+         * Read the header of the given file, and return the result with
+         * the {@link MatrixDescription} and the estimated bytes, or with 
+         * the error that occurred
+         * 
+         * @param path The path of the file
+         * @return The result
+         */
+        private BulkLoadResult probe(Path path)
+        {
+            BulkLoadResult result = new BulkLoadResult();
+            result.path = path;
+            try
+            {
+                result.numFileBytes = Files.size(path);
+                ProbeResult probeResult = MatrixMarketProbe.probe(path, 0);
+                result.matrixDescription = probeResult.matrixDescription;
+                result.estimatedBytes = probeResult.estimatedCOOBytes 
+                    + probeResult.estimatedCSRBytes;
+            }
+            catch (IOException | RuntimeException e)
+            {
+                result.error = e;
+            }
+            return result;
+        }
+        
+        /**
+         * Start loading the given files, largest first, as soon as they 
+         * fit into the heap budget, and wait until all of them have been
+         * passed to the consumer
+         * 
+         * @param pending The files, sorted by their estimated bytes, in
+         * descending order. This list will be emptied.
+         * @throws InterruptedException If the thread is interrupted
+         */
+        synchronized void dispatch(List<BulkLoadResult> pending) 
+            throws InterruptedException
+        {
+            while (!pending.isEmpty() && consumerException == null)
+            {
+                BulkLoadResult next = removeAdmissible(pending);
+                if (next == null)
+                {
+                    wait();
+                    continue;
+                }
+                numInFlight++;
+                numInFlightBytes += next.estimatedBytes;
+                executor.execute(() -> load(next));
+            }
+            while (numInFlight > 0)
+            {
+                wait();
+            }
+            if (consumerException != null)
+            {
+                throw consumerException;
+            }
+        }
+        
+        /**
+         * Remove and return the largest of the given files that may be 
+         * started now, or return <code>null</code> if no file may be 
+         * started
+         * 
+         * @param pending The files, sorted by their estimated bytes, in
+         * descending order
+         * @return The file, or <code>null</code>
+         */
+        private BulkLoadResult removeAdmissible(List<BulkLoadResult> pending)
+        {
+            if (numInFlight >= numThreads)
+            {
+                return null;
+            }
+            Iterator<BulkLoadResult> iterator = pending.iterator();
+            while (iterator.hasNext())
+            {
+                BulkLoadResult result = iterator.next();
+                if (numInFlight == 0 || 
+                    numInFlightBytes + result.estimatedBytes <= maxNumBytes)
+                {
+                    iterator.remove();
+                    return result;
+                }
+            }
+            return null;
+        }
+        
+        /**
+         * Load the {@link CSR} for the given result, pass the result to
+         * the consumer, and release its estimated bytes
+         * 
+         * @param result The result
+         */
+        private void load(BulkLoadResult result)
+        {
+            RuntimeException exception = null;
+            try
+            {
+                long startNanos = System.nanoTime();
+                try
+                {
+                    CSR csr = MatrixMarketCSR.readCSR(result.path);
+                    result.csr = csr;
+                    result.numElements = csr.rowPointers[csr.numRows];
+                }
+                catch (IOException | RuntimeException e)
+                {
+                    result.error = e;
+                }
+                catch (OutOfMemoryError e)
+                {
+                    result.csr = null;
+                    result.error = new ExecutionException(
+                        "Out of memory while loading " + result.path, e);
+                }
+                result.durationNanos = System.nanoTime() - startNanos;
+                consumer.accept(result);
+            }
+            catch (RuntimeException e)
+            {
+                exception = e;
+            }
+            finally
+            {
+                release(result, exception);
+            }
+        }
+        
+        /**
+         * Release the estimated bytes of the given result, and record 
+         * whether it was a failure, or whether the consumer threw the
+         * given exception
+         * 
+         * @param result The result
+         * @param exception The exception that was thrown by the consumer,
+         * or <code>null</code>
+         */
+        private void release(BulkLoadResult result, 
+            RuntimeException exception)
+        {
+            synchronized (this)
+            {
+                if (result.error != null)
+                {
+                    numFailures++;
+                }
+                if (exception != null && consumerException == null)
+                {
+                    consumerException = exception;
+                }
+                numInFlight--;
+                numInFlightBytes -= result.estimatedBytes;
+                notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * Methods to read {@link COO} data from MatrixMarket input
+ */
+public class MatrixMarketCOO
+{
+    /**
+     * Read the given MatrixMarket input stream, and return the result
+     * as a {@link COO}.<br>
+     * <br>
+     * The elements will be collected in primitive coordinate arrays that
+     * are pre-sized based on the number of non-zero elements (taking
+     * into account that elements of matrices that are not 
+     * {@link Symmetry#GENERAL} will be mirrored). The elements will be 
+     * contained in the {@link COO} in the order in which they appear in 
+     * the input, each mirrored element directly following the original 
+     * one. For {@link Field#COMPLEX} matrices, the values will contain 
+     * the real and imaginary parts in an interleaved form. For 
+     * {@link Field#PATTERN} matrices, only the indices are stored, and 
+     * the values of the {@link COO} will be <code>null</code>.
+     * 
+     * @param inputStream The input stream
+     * @return The {@link COO}
+     * @throws IOException If an IO-error occurs
+     */
+    public static COO readCOO(InputStream inputStream) throws IOException
+    {
+        COOCallback c = new COOCallback();
+        MatrixMarketReader.read(inputStream, c);
+        return c.getCOO();
+    }
+    
+    /**
+     * Read the MatrixMarket file with the given path, and return the 
+     * result as a {@link COO}.<br>
+     * <br>
+     * The file will be read with 
+     * {@link MatrixMarketReader#read(Path, BatchCallback)}, which maps 
+     * the file into memory. Otherwise, this method behaves like 
+     * {@link #readCOO(InputStream)}.
+     * 
+     * @param path The path of the file
+     * @return The {@link COO}
+     * @throws IOException If an IO-error occurs
+     */
+    public static COO readCOO(Path path) throws IOException
+    {
+        COOCallback c = new COOCallback();
+        MatrixMarketReader.read(path, c);
+        return c.getCOO();
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private MatrixMarketCOO()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -1,63 +1,640 @@
-/*
- * MatrixMarketReader - a simple reader for MatrixMarket files
- *
- * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
- *
- * Permission is hereby granted, free of charge, to any person
- * obtaining a copy of this software and associated documentation
- * files (the "Software"), to deal in the Software without
- * restriction, including without limitation the rights to use,
- * copy, modify, merge, publish, distribute, sublicense, and/or sell
- * copies of the Software, and to permit persons to whom the
- * Software is furnished to do so, subject to the following
- * conditions:
- *
- * The above copyright notice and this permission notice shall be
- * included in all copies or substantial portions of the Software.
- *
- * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
- * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
- * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
- * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
- * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
- * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
- * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
- * OTHER DEALINGS IN THE SOFTWARE.
- */
-package de.javagl.matrixmarketreader;
-
-import java.io.IOException;
-import java.io.InputStream;
-
-/**
- * Methods to read {@link CSR} data from a MatrixMarket input stream
- */
-public class MatrixMarketCSR
-{
-    /**
-     * Read the given MatrixMarket input stream, and return the result
-     * as a {@link CSR}. Note that this will internally create a
-     * dense matrix from the read data. All this was never intended
-     * to be used for more than some basic tests...
-     * 
-     * @param inputStream The input stream
-     * @return The {@link CSR}
-     * @throws IOException If an IO-error occurs
-     */
-    public static CSR readCSR(InputStream inputStream) throws IOException
-    {
-        DefaultCallback c = new DefaultCallback();
-        MatrixMarketReader.read(inputStream, c);
-        final double epsilon = 1e-8;
-        return CSRs.createCSR(
-            c.getMatrixDescription(), c.getArray(), epsilon);
-    }
-    
-    /**
-     * Private constructor to prevent instantiation
-     */
-    private MatrixMarketCSR()
-    {
-        // Private constructor to prevent instantiation
-    }
-}
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Methods to read {@link CSR} data from a MatrixMarket input stream
+ */
+public class MatrixMarketCSR
+{
+    /**
+     * Read the given MatrixMarket input stream, and return the result
+     * as a {@link CSR}.<br>
+     * <br>
+     * The elements will be collected in primitive coordinate arrays
+     * and then be sorted into the rows of the {@link CSR}, so that the
+     * memory requirements are proportional to the number of non-zero 
+     * elements. For matrices that are not {@link Symmetry#GENERAL}, 
+     * the mirrored elements will be added. For {@link Field#COMPLEX} 
+     * matrices, the values will contain the real and imaginary parts 
+     * in an interleaved form. For {@link Field#PATTERN} matrices, only 
+     * the structure is stored, and the values of the {@link CSR} will 
+     * be <code>null</code>.<br>
+     * <br>
+     * The column indices within each row are sorted in ascending order.
+     * If the input contains multiple entries with the same row and 
+     * column, then the entry that appears last is used, as described 
+     * for {@link DuplicatePolicy#LAST}. All other elements that are 
+     * contained in the input will be contained in the {@link CSR}, 
+     * including elements that are explicitly stored as zero.
+     * 
+     * @param inputStream The input stream
+     * @return The {@link CSR}
+     * @throws IOException If an IO-error occurs
+     */
+    public static CSR readCSR(InputStream inputStream) throws IOException
+    {
+        return CSRs.canonicalize(
+            readElements(inputStream), DuplicatePolicy.LAST);
+    }
+    
+    /**
+     * Read the MatrixMarket file with the given path, and return the 
+     * result as a {@link CSR}.<br>
+     * <br>
+     * The file will be read with 
+     * {@link MatrixMarketReader#read(Path, Callback)}, which maps the 
+     * file into memory. Otherwise, this method behaves like 
+     * {@link #readCSR(InputStream)}.
+     * 
+     * @param path The path of the file
+     * @return The {@link CSR}
+     * @throws IOException If an IO-error occurs
+     */
+    public static CSR readCSR(Path path) throws IOException
+    {
+        return CSRs.canonicalize(readElements(path), DuplicatePolicy.LAST);
+    }
+    
+    /**
+     * Read the given MatrixMarket input stream into a {@link CSR} that 
+     * contains all elements of the input, in the order in which they 
+     * appear within each row
+     * 
+     * @param inputStream The input stream
+     * @return The {@link CSR}
+     * @throws IOException If an IO-error occurs
+     */
+    private static CSR readElements(InputStream inputStream) 
+        throws IOException
+    {
+        CSRCallback c = new CSRCallback();
+        MatrixMarketReader.read(inputStream, c);
+        return c.getCSR();
+    }
+    
+    /**
+     * Read the MatrixMarket file with the given path into a {@link CSR} 
+     * that contains all elements of the file, in the order in which they 
+     * appear within each row
+     * 
+     * @param path The path of the file
+     * @return The {@link CSR}
+     * @throws IOException If an IO-error occurs
+     */
+    private static CSR readElements(Path path) throws IOException
+    {
+        CSRCallback c = new CSRCallback();
+        MatrixMarketReader.read(path, c);
+        return c.getCSR();
+    }
+    
+    /**
+     * Read the given MatrixMarket input stream, and return the result
+     * as a canonical {@link CSR}.<br>
+     * <br>
+     * In the returned {@link CSR}, the column indices within each row
+     * are sorted in ascending order, and each column index appears at 
+     * most once in each row. If the input contains multiple entries with
+     * the same row and column, then they are handled according to the 
+     * given {@link DuplicatePolicy}. The rows are sorted in parallel, 
+     * in the common <code>ForkJoinPool</code>, in linear time. With 
+     * {@link DuplicatePolicy#LAST}, this method behaves like 
+     * {@link #readCSR(InputStream)}.
+     * 
+     * @param inputStream The input stream
+     * @param policy The {@link DuplicatePolicy}
+     * @return The {@link CSR}
+     * @throws IOException If an IO-error occurs, or the policy is 
+     * {@link DuplicatePolicy#ERROR} and the input contains duplicate 
+     * entries
+     */
+    public static CSR readCanonicalCSR(
+        InputStream inputStream, DuplicatePolicy policy) throws IOException
+    {
+        Objects.requireNonNull(policy, "The policy may not be null");
+        return CSRs.canonicalize(readElements(inputStream), policy);
+    }
+    
+    /**
+     * Read the MatrixMarket file with the given path, and return the 
+     * result as a canonical {@link CSR}.<br>
+     * <br>
+     * See {@link #readCanonicalCSR(InputStream, DuplicatePolicy)} for
+     * details.
+     * 
+     * @param path The path of the file
+     * @param policy The {@link DuplicatePolicy}
+     * @return The {@link CSR}
+     * @throws IOException If an IO-error occurs, or the policy is 
+     * {@link DuplicatePolicy#ERROR} and the file contains duplicate 
+     * entries
+     */
+    public static CSR readCanonicalCSR(Path path, DuplicatePolicy policy) 
+        throws IOException
+    {
+        Objects.requireNonNull(policy, "The policy may not be null");
+        return CSRs.canonicalize(readElements(path), policy);
+    }
+    
+    /**
+     * Read the given MatrixMarket input stream, and return the result
+     * as a {@link CSR} that only contains the stored triangle.<br>
+     * <br>
+     * For matrices that are not {@link Symmetry#GENERAL}, the elements
+     * will <b>not</b> be mirrored. The {@link CSR} will only contain the
+     * elements that are stored in the input (usually the lower triangle),
+     * which requires half of the memory of the full matrix, and its 
+     * {@link CSR#symmetry} will be the {@link Symmetry} of the matrix.
+     * The methods in {@link SpMV} take this into account. The full 
+     * matrix can be obtained with {@link #expand(CSR)}. Otherwise, this
+     * method behaves like {@link #readCSR(InputStream)}.
+     * 
+     * @param inputStream The input stream
+     * @return The {@link CSR}
+     * @throws IOException If an IO-error occurs
+     */
+    public static CSR readTriangularCSR(InputStream inputStream) 
+        throws IOException
+    {
+        CSRCallback c = new CSRCallback(false);
+        MatrixMarketReader.read(inputStream, c);
+        return CSRs.canonicalize(c.getCSR(), DuplicatePolicy.LAST);
+    }
+    
+    /**
+     * Read the MatrixMarket file with the given path, and return the 
+     * result as a {@link CSR} that only contains the stored triangle.
+     * Otherwise, this method behaves like 
+     * {@link #readTriangularCSR(InputStream)}.
+     * 
+     * @param path The path of the file
+     * @return The {@link CSR}
+     * @throws IOException If an IO-error occurs
+     */
+    public static CSR readTriangularCSR(Path path) throws IOException
+    {
+        CSRCallback c = new CSRCallback(false);
+        MatrixMarketReader.read(path, c);
+        return CSRs.canonicalize(c.getCSR(), DuplicatePolicy.LAST);
+    }
+    
+    /**
+     * Expand the given {@link CSR}, which may have been read with
+     * {@link #readTriangularCSR(InputStream)}, into a {@link CSR} that
+     * contains the full matrix. This creates the mirrored elements
+     * that are implied by the {@link CSR#symmetry}. If the given 
+     * {@link CSR} is {@link Symmetry#GENERAL}, then it is returned. 
+     * Otherwise, the given {@link CSR} is not modified.<br>
+     * <br>
+     * Each row of the result contains the stored elements, followed by
+     * the mirrored elements. If the given {@link CSR} contains the lower
+     * triangle with sorted column indices, then the column indices of 
+     * the result are sorted as well.
+     * 
+     * @param csr The {@link CSR}
+     * @return The expanded {@link CSR}
+     * @throws IllegalArgumentException If the matrix is not square, or
+     * the expanded matrix has too many elements for a {@link CSR}
+     */
+    public static CSR expand(CSR csr)
+    {
+        return CSRs.expand(csr);
+    }
+    
+    /**
+     * Read the given MatrixMarket input stream, and return the result
+     * as a {@link FloatCSR}.<br>
+     * <br>
+     * The values will be parsed directly into the nearest 
+     * <code>float</code> values, without creating intermediate 
+     * <code>double</code> arrays. Unlike in 
+     * {@link #readCSR(InputStream)}, the column indices within each row
+     * are not sorted, and duplicate entries are not merged. Otherwise, 
+     * this method behaves like {@link #readCSR(InputStream)}.
+     * 
+     * @param inputStream The input stream
+     * @return The {@link FloatCSR}
+     * @throws IOException If an IO-error occurs
+     */
+    public static FloatCSR readFloatCSR(InputStream inputStream) 
+        throws IOException
+    {
+        FloatCSRCallback c = new FloatCSRCallback();
+        MatrixMarketReader.read(inputStream, c, true);
+        return c.getFloatCSR();
+    }
+    
+    /**
+     * Read the MatrixMarket file with the given path, and return the 
+     * result as a {@link FloatCSR}.<br>
+     * <br>
+     * The file will be mapped into memory. Otherwise, this method 
+     * behaves like {@link #readFloatCSR(InputStream)}.
+     * 
+     * @param path The path of the file
+     * @return The {@link FloatCSR}
+     * @throws IOException If an IO-error occurs
+     */
+    public static FloatCSR readFloatCSR(Path path) throws IOException
+    {
+        FloatCSRCallback c = new FloatCSRCallback();
+        MatrixMarketReader.read(path, c, true);
+        return c.getFloatCSR();
+    }
+    
+    /**
+     * Read the MatrixMarket file with the given path, and return the 
+     * result as a {@link CSR}, using a binary sidecar file as a cache.
+     * The sidecar file has the same path as the given file, with the 
+     * additional extension <code>".csr"</code>.<br>
+     * <br>
+     * See {@link #readCSRCached(Path, Path)} for details.
+     * 
+     * @param path The path of the file
+     * @return The {@link CSR}
+     * @throws IOException If an IO-error occurs
+     */
+    public static CSR readCSRCached(Path path) throws IOException
+    {
+        Path sidecarPath = path.resolveSibling(path.getFileName() + ".csr");
+        return readCSRCached(path, sidecarPath);
+    }
+    
+    /**
+     * Read the MatrixMarket file with the given path, and return the 
+     * result as a {@link CSR}, using the given binary sidecar file as 
+     * a cache.<br>
+     * <br>
+     * If the sidecar file exists and was created for the current state 
+     * of the given file, then the {@link CSR} will be read from the 
+     * sidecar file with {@link MatrixMarketBinary}, without parsing 
+     * the MatrixMarket file. The sidecar file is considered to be valid
+     * if the size, the last modification time and a checksum of the 
+     * given file are the same as when the sidecar file was created.<br>
+     * <br>
+     * Otherwise, the MatrixMarket file will be read with 
+     * {@link #readCSR(Path)}, and the sidecar file will be (re-)created. 
+     * The sidecar file is written to a temporary file first, which 
+     * is then moved to the target location. If the sidecar file can
+     * not be written, then the {@link CSR} is still returned.
+     * 
+     * @param path The path of the file
+     * @param sidecarPath The path of the sidecar file
+     * @return The {@link CSR}
+     * @throws IOException If an IO-error occurs while reading the
+     * MatrixMarket file
+     */
+    public static CSR readCSRCached(Path path, Path sidecarPath) 
+        throws IOException
+    {
+        BinaryHeader source = new BinaryHeader();
+        try (FileChannel fileChannel = 
+            FileChannel.open(path, StandardOpenOption.READ))
+        {
+            source.sourceSize = fileChannel.size();
+            source.sourceLastModified = 
+                Files.getLastModifiedTime(path).toMillis();
+            source.sourceChecksum = 
+                MatrixMarketBinary.computeSourceChecksum(fileChannel);
+        }
+        CSR cached = readSidecar(sidecarPath, source);
+        if (cached != null)
+        {
+            return cached;
+        }
+        
+        CSRCallback c = new CSRCallback();
+        MatrixMarketReader.read(path, c);
+        CSR csr = CSRs.canonicalize(c.getCSR(), DuplicatePolicy.LAST);
+        source.matrixDescription = c.getMatrixDescription();
+        Path temporaryPath = null;
+        try
+        {
+            temporaryPath = Files.createTempFile(
+                sidecarPath.toAbsolutePath().getParent(), 
+                sidecarPath.getFileName().toString(), ".tmp");
+            MatrixMarketBinary.writeCSR(csr, source, temporaryPath);
+            Files.move(temporaryPath, sidecarPath, 
+                StandardCopyOption.REPLACE_EXISTING, 
+                StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e)
+        {
+            // The sidecar file is only a cache. If it can not be written,
+            // then the file will be parsed again the next time.
+            if (temporaryPath != null)
+            {
+                temporaryPath.toFile().delete();
+            }
+        }
+        return csr;
+    }
+    
+    /**
+     * Read the {@link CSR} from the given sidecar file, if the sidecar 
+     * file exists and matches the size, last modification time and 
+     * checksum of the given source header
+     * 
+     * @param sidecarPath The path of the sidecar file
+     * @param source The {@link BinaryHeader} with the source information
+     * @return The {@link CSR}, or <code>null</code> if the sidecar file
+     * does not exist or is not valid
+     */
+    private static CSR readSidecar(Path sidecarPath, BinaryHeader source)
+    {
+        if (!Files.isRegularFile(sidecarPath))
+        {
+            return null;
+        }
+        try (FileChannel fileChannel = 
+            FileChannel.open(sidecarPath, StandardOpenOption.READ))
+        {
+            BinaryHeader header = BinaryHeader.read(fileChannel);
+            if (header.sourceSize != source.sourceSize ||
+                header.sourceLastModified != source.sourceLastModified ||
+                header.sourceChecksum != source.sourceChecksum)
+            {
+                return null;
+            }
+            return MatrixMarketBinary.readCSR(fileChannel, header);
+        }
+        catch (IOException e)
+        {
+            // An invalid sidecar file will be re-created
+            return null;
+        }
+    }
+    
+    /**
+     * Read the MatrixMarket file with the given path in parallel, using 
+     * the common <code>ForkJoinPool</code>, and return the result as a 
+     * {@link CSR}.<br>
+     * <br>
+     * See {@link #readCSRParallel(Path, ForkJoinPool)} for details.
+     * 
+     * @param path The path of the file
+     * @return The {@link CSR}
+     * @throws IOException If an IO-error occurs
+     */
+    public static CSR readCSRParallel(Path path) throws IOException
+    {
+        return readCSRParallel(path, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Read the MatrixMarket file with the given path in parallel, and 
+     * return the result as a {@link CSR}.<br>
+     * <br>
+     * After the header and the size have been read, the body of the file
+     * is split into chunks at line boundaries. Each chunk is mapped into
+     * memory and parsed into its own coordinate arrays, in the given pool. 
+     * The coordinate arrays of all chunks are then sorted into the rows 
+     * of the {@link CSR}. The result is the same as for 
+     * {@link #readCSR(Path)}.<br>
+     * <br>
+     * Only the {@link Format#COORDINATE} format is supported. Files that
+     * are gzip-compressed are read with {@link #readCSR(Path)}, where the
+     * decompression may take place in parallel.
+     * 
+     * @param path The path of the file
+     * @param pool The pool that the chunks are parsed in
+     * @return The {@link CSR}
+     * @throws IOException If an IO-error occurs
+     */
+    public static CSR readCSRParallel(Path path, ForkJoinPool pool) 
+        throws IOException
+    {
+        try (FileChannel fileChannel = 
+            FileChannel.open(path, StandardOpenOption.READ))
+        {
+            if (GzipInputStreams.isGzip(fileChannel))
+            {
+                return readCSR(path);
+            }
+            ParallelCoordinateReader reader = 
+                new ParallelCoordinateReader(fileChannel, pool);
+            MatrixDescription matrixDescription = reader.readHeader();
+            List<CoordinateCallback> parts = 
+                reader.readBody(n -> new CoordinateCallback(n));
+            CSR csr = CSRs.createCSR(matrixDescription, parts);
+            return CSRs.canonicalize(csr, DuplicatePolicy.LAST);
+        }
+    }
+    
+    /**
+     * Read the MatrixMarket data from the given input stream in a 
+     * pipelined way, using the common <code>ForkJoinPool</code>, and 
+     * return the result as a {@link CSR}.<br>
+     * <br>
+     * See {@link #readCSRPipelined(InputStream, ForkJoinPool)} for 
+     * details.
+     * 
+     * @param inputStream The input stream
+     * @return The {@link CSR}
+     * @throws IOException If an IO-error occurs
+     */
+    public static CSR readCSRPipelined(InputStream inputStream) 
+        throws IOException
+    {
+        return readCSRPipelined(inputStream, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Read the MatrixMarket data from the given input stream in a 
+     * pipelined way, and return the result as a {@link CSR}.<br>
+     * <br>
+     * This method is intended for inputs that can not be mapped into 
+     * memory, like pipes or files on network drives. The calling thread 
+     * reads the stream into a ring of large buffers. Each full buffer 
+     * is parsed into its own coordinate arrays, in the given pool, while
+     * the calling thread continues to read into the next buffer. The 
+     * buffers are reused after they have been parsed. The coordinate 
+     * arrays of all buffers are then sorted into the rows of the 
+     * {@link CSR}. The result is the same as for 
+     * {@link #readCSR(InputStream)}.<br>
+     * <br>
+     * Only the {@link Format#COORDINATE} format is supported. If the 
+     * input starts with the gzip magic bytes, it will be decompressed 
+     * in the calling thread, overlapping with the parsing. The stream 
+     * will not be closed.
+     * 
+     * @param inputStream The input stream
+     * @param pool The pool that the buffers are parsed in
+     * @return The {@link CSR}
+     * @throws IOException If an IO-error occurs
+     */
+    public static CSR readCSRPipelined(
+        InputStream inputStream, ForkJoinPool pool) throws IOException
+    {
+        InputStream input = 
+            GzipInputStreams.decompressIfNecessary(inputStream);
+        PipelinedCoordinateReader reader = 
+            new PipelinedCoordinateReader(input, pool);
+        MatrixDescription matrixDescription = reader.readHeader();
+        List<CoordinateCallback> parts = 
+            reader.readBody(n -> new CoordinateCallback(n));
+        CSR csr = CSRs.createCSR(matrixDescription, parts);
+        return CSRs.canonicalize(csr, DuplicatePolicy.LAST);
+    }
+    
+    /**
+     * Read the MatrixMarket file with the given path, and return the 
+     * result as a {@link BigCSR}.<br>
+     * <br>
+     * This method is intended for matrices that have more non-zero 
+     * elements (after mirroring them for matrices that are not 
+     * {@link Symmetry#GENERAL}) than can be stored in the arrays of a 
+     * {@link CSR}. The file will be read twice: In the first pass, only 
+     * the number of elements in each row is counted. In the second pass, 
+     * the elements are written directly into their rows. So the memory 
+     * requirements are the same as for the resulting {@link BigCSR}, and
+     * no intermediate coordinate arrays are created. The elements are 
+     * contained in the order in which they appear within each row, and
+     * duplicate entries are not merged. Otherwise, this method behaves 
+     * like {@link #readCSR(Path)}.
+     * 
+     * @param path The path of the file
+     * @return The {@link BigCSR}
+     * @throws IOException If an IO-error occurs
+     * @throws IllegalStateException If the file was modified between 
+     * the passes
+     */
+    public static BigCSR readBigCSR(Path path) throws IOException
+    {
+        BigCSRCallback c = new BigCSRCallback();
+        MatrixMarketReader.read(path, c);
+        MatrixMarketReader.read(path, c);
+        return c.getBigCSR();
+    }
+    
+    /**
+     * Read the MatrixMarket file with the given path, and return the 
+     * result as a {@link DirectCSR}.<br>
+     * <br>
+     * The row pointers, column indices and values of the returned matrix
+     * are stored in direct byte buffers with native byte order, outside 
+     * of the Java heap, so that they can be passed to native libraries 
+     * without copying them. Like {@link #readBigCSR(Path)}, the file will 
+     * be read twice, and the elements are written directly into the 
+     * buffers, without creating intermediate coordinate arrays. As for 
+     * {@link #readBigCSR(Path)}, the elements are contained in the order 
+     * in which they appear within each row, and duplicate entries are not
+     * merged. Otherwise, this method behaves like {@link #readCSR(Path)}.
+     * 
+     * @param path The path of the file
+     * @return The {@link DirectCSR}
+     * @throws IOException If an IO-error occurs
+     * @throws IllegalStateException If the file was modified between 
+     * the passes
+     * @throws IllegalArgumentException If the matrix is too large to be
+     * stored in direct byte buffers
+     */
+    public static DirectCSR readDirectCSR(Path path) throws IOException
+    {
+        DirectCSRCallback c = new DirectCSRCallback();
+        MatrixMarketReader.read(path, c);
+        MatrixMarketReader.read(path, c);
+        return c.getDirectCSR();
+    }
+    
+    /**
+     * Returns a {@link RowBlockIterator} that reads the given MatrixMarket
+     * input stream in blocks of complete rows, each containing at most 
+     * the given number of entries (unless a single row contains more 
+     * entries).<br>
+     * <br>
+     * The entries in the input must be sorted by row, and the matrix must
+     * be a {@link Symmetry#GENERAL} matrix in the 
+     * {@link Format#COORDINATE} format. The input is only read while the 
+     * blocks are requested, and the arrays of the blocks are reused, so 
+     * that the memory requirements only depend on the given maximum 
+     * number of entries. The given stream will be closed when the 
+     * returned iterator is closed.
+     * 
+     * @param inputStream The input stream
+     * @param maxNumEntries The maximum number of entries in a block
+     * @return The {@link RowBlockIterator}
+     * @throws IOException If an IO-error occurs while reading the header,
+     * or the matrix can not be read in blocks of rows
+     * @throws IllegalArgumentException If the maximum number of entries
+     * is not positive
+     */
+    public static RowBlockIterator readRowBlocks(
+        InputStream inputStream, int maxNumEntries) throws IOException
+    {
+        return new RowBlockIterator(inputStream, maxNumEntries);
+    }
+    
+    /**
+     * Returns a {@link RowBlockIterator} that reads the MatrixMarket file
+     * with the given path in blocks of complete rows. The file will be 
+     * closed when the returned iterator is closed. See 
+     * {@link #readRowBlocks(InputStream, int)} for details.
+     * 
+     * @param path The path of the file
+     * @param maxNumEntries The maximum number of entries in a block
+     * @return The {@link RowBlockIterator}
+     * @throws IOException If an IO-error occurs while reading the header,
+     * or the matrix can not be read in blocks of rows
+     * @throws IllegalArgumentException If the maximum number of entries
+     * is not positive
+     */
+    public static RowBlockIterator readRowBlocks(
+        Path path, int maxNumEntries) throws IOException
+    {
+        InputStream inputStream = Files.newInputStream(path);
+        try
+        {
+            return new RowBlockIterator(inputStream, maxNumEntries);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            inputStream.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private MatrixMarketCSR()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
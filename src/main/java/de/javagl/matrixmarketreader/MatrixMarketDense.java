@@ -0,0 +1,97 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * Methods to read {@link Dense} data from MatrixMarket input
+ */
+public class MatrixMarketDense
+{
+    /**
+     * Read the given MatrixMarket input stream, and return the result
+     * as a {@link Dense} matrix.<br>
+     * <br>
+     * The values will be stored in an array with 
+     * <code>numRows * numCols</code> elements (or twice as many, for 
+     * {@link Field#COMPLEX} matrices, where the real and imaginary parts
+     * are interleaved) that is allocated when the size of the matrix 
+     * has been read. For {@link Format#ARRAY} matrices that are 
+     * {@link Symmetry#GENERAL}, the values will be copied into this 
+     * array in the order in which they appear in the input. For matrices 
+     * that are not {@link Symmetry#GENERAL}, the triangle that is 
+     * contained in the input will be mirrored. {@link Format#COORDINATE} 
+     * matrices are supported as well, where all elements that are not 
+     * contained in the input will be zero. If an element appears 
+     * multiple times, then the last value will be stored.
+     * 
+     * @param inputStream The input stream
+     * @return The {@link Dense} matrix
+     * @throws IOException If an IO-error occurs
+     * @throws IllegalArgumentException If the matrix is too large to be
+     * stored in a single array
+     */
+    public static Dense readDense(InputStream inputStream) throws IOException
+    {
+        DenseCallback c = new DenseCallback();
+        MatrixMarketReader.read(inputStream, c);
+        return c.getDense();
+    }
+    
+    /**
+     * Read the MatrixMarket file with the given path, and return the 
+     * result as a {@link Dense} matrix.<br>
+     * <br>
+     * The file will be read with 
+     * {@link MatrixMarketReader#read(Path, BatchCallback)}, which maps 
+     * the file into memory. Otherwise, this method behaves like 
+     * {@link #readDense(InputStream)}.
+     * 
+     * @param path The path of the file
+     * @return The {@link Dense} matrix
+     * @throws IOException If an IO-error occurs
+     * @throws IllegalArgumentException If the matrix is too large to be
+     * stored in a single array
+     */
+    public static Dense readDense(Path path) throws IOException
+    {
+        DenseCallback c = new DenseCallback();
+        MatrixMarketReader.read(path, c);
+        return c.getDense();
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private MatrixMarketDense()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -0,0 +1,935 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The class that parses the segments of a MatrixMarket file that are
+ * provided by a {@link SegmentSource}, and passes the elements to a
+ * {@link BatchCallback}. The header is parsed line-based, and the matrix
+ * entries are parsed with a {@link Tokenizer} into reusable blocks of 
+ * primitive arrays, without allocating objects for the individual 
+ * lines or entries.
+ */
+final class MatrixMarketParser
+{
+    /**
+     * The number of elements in one block that is passed to the
+     * {@link BatchCallback}
+     */
+    static final int BLOCK_SIZE = 4096;
+    
+    /**
+     * The {@link BatchCallback}
+     */
+    private final BatchCallback callback;
+    
+    /**
+     * The {@link MatrixDescription}
+     */
+    private final MatrixDescription matrixDescription;
+    
+    /**
+     * The {@link Tokenizer}
+     */
+    private final Tokenizer tokenizer;
+    
+    /**
+     * Whether the first line (containing the matrix type) was read
+     */
+    private boolean foundHeader;
+    
+    /**
+     * Whether the line containing the size was read
+     */
+    private boolean foundSize;
+    
+    /**
+     * The number of rows of the matrix
+     */
+    private int numRows;
+    
+    /**
+     * The number of columns of the matrix
+     */
+    private int numCols;
+    
+    /**
+     * The row indices of the current block
+     */
+    private int rowIndices[];
+    
+    /**
+     * The column indices of the current block
+     */
+    private int columnIndices[];
+    
+    /**
+     * The values of the current block
+     */
+    private double values[];
+    
+    /**
+     * The number of elements in the current block
+     */
+    private int count;
+    
+    /**
+     * Whether the values should be parsed with single precision
+     */
+    private boolean singlePrecision;
+    
+    /**
+     * The (zero-based) row of the next value, for the {@link Format#ARRAY}
+     * format
+     */
+    private int arrayRow;
+    
+    /**
+     * The (zero-based) column of the next value, for the 
+     * {@link Format#ARRAY} format
+     */
+    private int arrayColumn;
+    
+    /**
+     * Whether parsing the header started
+     */
+    private boolean headerStarted;
+    
+    /**
+     * The value of <code>System.nanoTime()</code> when parsing the 
+     * header, or the body, started
+     */
+    private long phaseStartNanos;
+    
+    /**
+     * The number of bytes of the header and the size line
+     */
+    private long numHeaderBytes;
+    
+    /**
+     * The number of lines of the header and the size line
+     */
+    private long numHeaderLines;
+    
+    /**
+     * The number of comment lines in the header
+     */
+    private long numHeaderCommentLines;
+    
+    /**
+     * The number of bytes that have been passed to 
+     * {@link #parse(ByteBuffer)}
+     */
+    private long numBytes;
+    
+    /**
+     * The number of elements that have been passed to the callback
+     */
+    private long numEntries;
+    
+    /**
+     * Creates a new parser that passes the elements to the given callback
+     * 
+     * @param callback The {@link BatchCallback}. This may be 
+     * <code>null</code> if the parser is only used for 
+     * {@link #parseHeader(ByteBuffer)}.
+     */
+    MatrixMarketParser(BatchCallback callback)
+    {
+        this.callback = callback;
+        this.matrixDescription = new MatrixDescription();
+        this.tokenizer = new Tokenizer();
+    }
+    
+    /**
+     * Creates a new parser for a part of the body of a MatrixMarket file,
+     * with the given {@link MatrixDescription}. The parser will assume 
+     * that the header and the size have already been read. It will not 
+     * notify the callback about the start or the end of the matrix.
+     * 
+     * @param callback The {@link BatchCallback}
+     * @param matrixDescription The {@link MatrixDescription}
+     * @param offset The offset of the part in the file, which will be
+     * used for error messages
+     */
+    MatrixMarketParser(BatchCallback callback, 
+        MatrixDescription matrixDescription, long offset)
+    {
+        this.callback = callback;
+        this.matrixDescription = matrixDescription;
+        this.tokenizer = new Tokenizer();
+        this.tokenizer.setOffset(offset);
+        this.foundHeader = true;
+        this.foundSize = true;
+        this.numRows = matrixDescription.getNumRows();
+        this.numCols = matrixDescription.getNumCols();
+        this.phaseStartNanos = System.nanoTime();
+        initBlock();
+    }
+    
+    /**
+     * Set whether the values should be parsed with single precision. 
+     * If this is <code>true</code>, then the values that are passed to 
+     * the callback will be the <code>double</code> representations of
+     * the <code>float</code> values that are closest to the values in 
+     * the input, so that they can be converted to <code>float</code>
+     * without any further rounding.
+     * 
+     * @param singlePrecision Whether single precision should be used
+     */
+    void setSinglePrecision(boolean singlePrecision)
+    {
+        this.singlePrecision = singlePrecision;
+    }
+    
+    /**
+     * Parse all data from the given {@link SegmentSource}, and finish
+     * the matrix
+     * 
+     * @param segmentSource The {@link SegmentSource}
+     * @throws IOException If an IO-error occurs, or the data is invalid
+     */
+    void parseAll(SegmentSource segmentSource) throws IOException
+    {
+        while (true)
+        {
+            ByteBuffer segment = segmentSource.nextSegment();
+            if (segment == null)
+            {
+                break;
+            }
+            parse(segment);
+        }
+        finish();
+    }
+    
+    /**
+     * Parse the given segment of the MatrixMarket file. The segment
+     * is given by the bytes between the position and the limit of
+     * the buffer, and must consist of complete lines, unless it is
+     * the last segment.
+     * 
+     * @param segment The segment
+     * @throws IOException If the data is invalid
+     */
+    void parse(ByteBuffer segment) throws IOException
+    {
+        numBytes += segment.remaining();
+        tokenizer.reset(segment, segment.position(), segment.limit());
+        if (!foundSize)
+        {
+            parseHeader();
+            if (!foundSize)
+            {
+                return;
+            }
+            initBlock();
+            if (matrixDescription.getFormat() == Format.ARRAY)
+            {
+                initArray();
+            }
+            callback.startMatrix(matrixDescription);
+        }
+        if (matrixDescription.getFormat() == Format.ARRAY)
+        {
+            processArray();
+            return;
+        }
+        switch (matrixDescription.getField())
+        {
+            case REAL:
+                processReal();
+                break;
+            case COMPLEX:
+                processComplex();
+                break;
+            case INTEGER:
+                processInteger();
+                break;
+            case PATTERN:
+                processPattern();
+                break;
+
+            default:
+                // Should never happen:
+                throw new AssertionError(
+                    "Invalid field " + matrixDescription.getField());
+        }
+    }
+    
+    /**
+     * Parse only the header and the size from the given segment of the 
+     * MatrixMarket file, without notifying the callback. If the size was
+     * found, then the position of the given buffer will afterwards be 
+     * the position where the body of the file starts.
+     * 
+     * @param segment The segment
+     * @return Whether the size was found
+     * @throws IOException If the data is invalid
+     */
+    boolean parseHeader(ByteBuffer segment) throws IOException
+    {
+        tokenizer.reset(segment, segment.position(), segment.limit());
+        parseHeader();
+        if (foundSize)
+        {
+            segment.position(tokenizer.getPosition());
+        }
+        return foundSize;
+    }
+    
+    /**
+     * Pass the elements of the current block to the callback
+     */
+    void flush()
+    {
+        if (count > 0)
+        {
+            callback.setMatrixElements(
+                rowIndices, columnIndices, values, count);
+            numEntries += count;
+            count = 0;
+        }
+    }
+    
+    /**
+     * Finish parsing the matrix, and notify the callback
+     * 
+     * @throws IOException If the header or the size of the matrix have 
+     * not been found
+     */
+    void finish() throws IOException
+    {
+        if (!foundSize)
+        {
+            throw new IOException(
+                "Unexpected end of input: No matrix size found");
+        }
+        if (matrixDescription.getFormat() == Format.ARRAY && 
+            arrayColumn < numCols)
+        {
+            throw new IOException(
+                "Unexpected end of input: Expected more values for the "
+                + numRows + "x" + numCols + " matrix, missing the value "
+                + "at row " + (arrayRow + 1) + ", column " 
+                + (arrayColumn + 1));
+        }
+        flush();
+        ReadInstrumentation.phaseFinished(ReadPhase.BODY, 
+            numBytes - numHeaderBytes, getNumLines(), getNumCommentLines(), 
+            numEntries, phaseStartNanos);
+        callback.finishMatrix();
+    }
+    
+    /**
+     * Returns the number of lines of the body that have been parsed
+     * 
+     * @return The number of lines
+     */
+    long getNumLines()
+    {
+        return tokenizer.getLineNumber() - 1 - numHeaderLines;
+    }
+    
+    /**
+     * Returns the number of comment lines of the body that have been 
+     * parsed
+     * 
+     * @return The number of comment lines
+     */
+    long getNumCommentLines()
+    {
+        return tokenizer.getNumCommentLines() - numHeaderCommentLines;
+    }
+    
+    /**
+     * Returns the number of elements that have been passed to the 
+     * callback
+     * 
+     * @return The number of elements
+     */
+    long getNumEntries()
+    {
+        return numEntries;
+    }
+    
+    /**
+     * Initialize the arrays for the blocks of elements
+     */
+    private void initBlock()
+    {
+        rowIndices = new int[BLOCK_SIZE];
+        columnIndices = new int[BLOCK_SIZE];
+        if (matrixDescription.getField() == Field.COMPLEX)
+        {
+            values = new double[BLOCK_SIZE * 2];
+        }
+        else
+        {
+            values = new double[BLOCK_SIZE];
+        }
+        if (matrixDescription.getField() == Field.PATTERN)
+        {
+            Arrays.fill(values, 1.0);
+        }
+        count = 0;
+    }
+    
+    /**
+     * Returns the {@link MatrixDescription}
+     * 
+     * @return The {@link MatrixDescription}
+     */
+    MatrixDescription getMatrixDescription()
+    {
+        return matrixDescription;
+    }
+    
+    /**
+     * Parse the header and the size from the current segment, as far 
+     * as possible, and report the {@link ReadPhase#HEADER} when the
+     * size was found
+     * 
+     * @throws IOException If the data is invalid
+     */
+    private void parseHeader() throws IOException
+    {
+        if (!headerStarted)
+        {
+            headerStarted = true;
+            phaseStartNanos = System.nanoTime();
+        }
+        int start = tokenizer.getPosition();
+        parseHeaderLines();
+        numHeaderBytes += tokenizer.getPosition() - start;
+        if (foundSize)
+        {
+            numHeaderLines = tokenizer.getLineNumber() - 1;
+            numHeaderCommentLines = tokenizer.getNumCommentLines();
+            ReadInstrumentation.phaseFinished(ReadPhase.HEADER, 
+                numHeaderBytes, numHeaderLines, numHeaderCommentLines, 
+                0, phaseStartNanos);
+            phaseStartNanos = System.nanoTime();
+        }
+    }
+    
+    /**
+     * Parse the lines of the header and the size from the current 
+     * segment, as far as possible
+     * 
+     * @throws IOException If the data is invalid
+     */
+    private void parseHeaderLines() throws IOException
+    {
+        if (!foundHeader)
+        {
+            if (!tokenizer.hasRemaining())
+            {
+                return;
+            }
+            String line = tokenizer.nextLine();
+            String tokens[] = line.split("\\s+");
+            if (tokens.length != 5)
+            {
+                throw new IOException(
+                    "Expected 5 tokens in the first line, but found "
+                    + tokens.length + ": " + line);
+            }
+            validateFirstToken(tokens[0]);
+            validateObject(tokens[1]);
+            matrixDescription.setFormat(parseFormat(tokens[2]));
+            matrixDescription.setField(parseField(tokens[3]));
+            matrixDescription.setSymmetry(parseSymmetry(tokens[4]));
+            foundHeader = true;
+        }
+        if (!tokenizer.skipEmptyAndCommentLines())
+        {
+            return;
+        }
+        String line = tokenizer.nextLine().trim();
+        initSize(matrixDescription, line);
+        numRows = matrixDescription.getNumRows();
+        numCols = matrixDescription.getNumCols();
+        foundSize = true;
+    }
+    
+    /**
+     * Validate the {@link MatrixDescription} for the {@link Format#ARRAY}
+     * format, and initialize the position of the first value
+     * 
+     * @throws IOException If the field is {@link Field#PATTERN}, or 
+     * the matrix is not {@link Symmetry#GENERAL} and not square
+     */
+    private void initArray() throws IOException
+    {
+        if (matrixDescription.getField() == Field.PATTERN)
+        {
+            throw new IOException(
+                "The PATTERN field is not valid for the ARRAY format");
+        }
+        if (matrixDescription.getSymmetry() != Symmetry.GENERAL &&
+            numRows != numCols)
+        {
+            throw new IOException("Matrices with symmetry " 
+                + matrixDescription.getSymmetry() + " must be square, but "
+                + "the size is " + numRows + "x" + numCols);
+        }
+        arrayColumn = 0;
+        arrayRow = getFirstArrayRow(0);
+        skipEmptyArrayColumns();
+    }
+    
+    /**
+     * Returns the first row of the given column that is stored in the
+     * {@link Format#ARRAY} format. For {@link Symmetry#GENERAL} matrices, 
+     * all rows are stored. Otherwise, only the lower triangle is stored, 
+     * excluding the diagonal for {@link Symmetry#SKEW_SYMMETRIC} 
+     * matrices.
+     * 
+     * @param column The column
+     * @return The first row
+     */
+    private int getFirstArrayRow(int column)
+    {
+        switch (matrixDescription.getSymmetry())
+        {
+            case GENERAL:
+                return 0;
+            case SKEW_SYMMETRIC:
+                return column + 1;
+            default:
+                return column;
+        }
+    }
+    
+    /**
+     * Advance the position for the next value of the {@link Format#ARRAY} 
+     * format to the next column, as long as the current column does not 
+     * contain any (more) stored values
+     */
+    private void skipEmptyArrayColumns()
+    {
+        while (arrayColumn < numCols && arrayRow >= numRows)
+        {
+            arrayColumn++;
+            arrayRow = getFirstArrayRow(arrayColumn);
+        }
+    }
+    
+    /**
+     * Process all values of a matrix in the {@link Format#ARRAY} format 
+     * from the current segment. The values are stored in column-major 
+     * order, and the indices of each value are derived from its position.
+     * 
+     * @throws IOException If the data is invalid
+     */
+    private void processArray() throws IOException
+    {
+        Field field = matrixDescription.getField();
+        String expectation = (field == Field.COMPLEX) ?
+            "matrix entry of the form \"realValue imagValue\"" :
+            "matrix entry of the form \"value\"";
+        tokenizer.setExpectation(expectation);
+        while (tokenizer.skipEmptyAndCommentLines())
+        {
+            if (arrayColumn >= numCols)
+            {
+                tokenizer.setExpectation("end of input");
+                throw tokenizer.createException();
+            }
+            if (field == Field.COMPLEX)
+            {
+                values[count + count + 0] = nextValue();
+                values[count + count + 1] = nextValue();
+            }
+            else if (field == Field.INTEGER)
+            {
+                long value = tokenizer.nextLong();
+                values[count] = singlePrecision ? (float) value : value;
+            }
+            else
+            {
+                values[count] = nextValue();
+            }
+            tokenizer.endLine();
+            rowIndices[count] = arrayRow;
+            columnIndices[count] = arrayColumn;
+            count++;
+            arrayRow++;
+            skipEmptyArrayColumns();
+            if (count == BLOCK_SIZE)
+            {
+                flush();
+            }
+        }
+    }
+    
+    /**
+     * Process all {@link Field#REAL} values from the current segment
+     * 
+     * @throws IOException If the data is invalid
+     */
+    private void processReal() throws IOException
+    {
+        tokenizer.setExpectation("matrix entry of the form "
+            + "\"rowIndex columnIndex value\"");
+        while (tokenizer.skipEmptyAndCommentLines())
+        {
+            int row = nextRowIndex();
+            int col = nextColumnIndex();
+            double value = nextValue();
+            tokenizer.endLine();
+            rowIndices[count] = row;
+            columnIndices[count] = col;
+            values[count] = value;
+            count++;
+            if (count == BLOCK_SIZE)
+            {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Process all {@link Field#COMPLEX} values from the current segment
+     * 
+     * @throws IOException If the data is invalid
+     */
+    private void processComplex() throws IOException
+    {
+        tokenizer.setExpectation("matrix entry of the form "
+            + "\"rowIndex columnIndex realValue imagValue\"");
+        while (tokenizer.skipEmptyAndCommentLines())
+        {
+            int row = nextRowIndex();
+            int col = nextColumnIndex();
+            double value0 = nextValue();
+            double value1 = nextValue();
+            tokenizer.endLine();
+            rowIndices[count] = row;
+            columnIndices[count] = col;
+            values[count + count + 0] = value0;
+            values[count + count + 1] = value1;
+            count++;
+            if (count == BLOCK_SIZE)
+            {
+                flush();
+            }
+        }
+    }
+    
+    /**
+     * Process all {@link Field#INTEGER} values from the current segment
+     * 
+     * @throws IOException If the data is invalid
+     */
+    private void processInteger() throws IOException
+    {
+        tokenizer.setExpectation("matrix entry of the form "
+            + "\"rowIndex columnIndex value\"");
+        while (tokenizer.skipEmptyAndCommentLines())
+        {
+            int row = nextRowIndex();
+            int col = nextColumnIndex();
+            long value = tokenizer.nextLong();
+            tokenizer.endLine();
+            rowIndices[count] = row;
+            columnIndices[count] = col;
+            values[count] = singlePrecision ? (float) value : value;
+            count++;
+            if (count == BLOCK_SIZE)
+            {
+                flush();
+            }
+        }
+    }
+    
+    /**
+     * Process all {@link Field#PATTERN} values from the current segment
+     * 
+     * @throws IOException If the data is invalid
+     */
+    private void processPattern() throws IOException
+    {
+        // The values of the block have been filled with 1.0 in 
+        // initBlock, so only the indices are stored here
+        tokenizer.setExpectation("matrix entry of the form "
+            + "\"rowIndex columnIndex\"");
+        while (tokenizer.skipEmptyAndCommentLines())
+        {
+            int row = nextRowIndex();
+            int col = nextColumnIndex();
+            tokenizer.endLine();
+            rowIndices[count] = row;
+            columnIndices[count] = col;
+            count++;
+            if (count == BLOCK_SIZE)
+            {
+                flush();
+            }
+        }
+    }
+    
+    /**
+     * Parse the next floating point value from the tokenizer, with the
+     * precision that was set with {@link #setSinglePrecision(boolean)}
+     * 
+     * @return The value
+     * @throws IOException If the value can not be parsed
+     */
+    private double nextValue() throws IOException
+    {
+        if (singlePrecision)
+        {
+            return tokenizer.nextFloat();
+        }
+        return tokenizer.nextDouble();
+    }
+    
+    /**
+     * Parse the next (one-based) row index from the tokenizer, and 
+     * return it as a zero-based index
+     * 
+     * @return The zero-based row index
+     * @throws IOException If the index can not be parsed or is not
+     * valid for the matrix
+     */
+    private int nextRowIndex() throws IOException
+    {
+        int row = tokenizer.nextInt();
+        if (row < 1 || row > numRows)
+        {
+            throw tokenizer.createException();
+        }
+        return row - 1;
+    }
+    
+    /**
+     * Parse the next (one-based) column index from the tokenizer, and 
+     * return it as a zero-based index
+     * 
+     * @return The zero-based column index
+     * @throws IOException If the index can not be parsed or is not
+     * valid for the matrix
+     */
+    private int nextColumnIndex() throws IOException
+    {
+        int col = tokenizer.nextInt();
+        if (col < 1 || col > numCols)
+        {
+            throw tokenizer.createException();
+        }
+        return col - 1;
+    }
+    
+    /**
+     * Initialize the size in the given {@link MatrixDescription} from
+     * the given line
+     * 
+     * @param matrixDescription The {@link MatrixDescription}
+     * @param line The line
+     * @throws IOException If an IO-error occurs
+     */
+    private static void initSize(
+        MatrixDescription matrixDescription, String line) throws IOException
+    {
+        String tokens[] = line.split("\\s+");
+        if (matrixDescription.getFormat() == Format.COORDINATE)
+        {
+            if (tokens.length != 3)
+            {
+                throw new IOException(
+                    "For COORDINATE format, size must be of the form"
+                    + "\"numRows numCols numNonZeros\", but found " + line);
+            }
+            int numRows = parseInt(tokens[0]);
+            int numCols = parseInt(tokens[1]);
+            long numNonZeros = parseLong(tokens[2]);
+            matrixDescription.setSize(numRows, numCols, numNonZeros);
+        }
+        else if (matrixDescription.getFormat() == Format.ARRAY)
+        {
+            if (tokens.length != 2)
+            {
+                throw new IOException(
+                    "For ARRAY format, size must be of the form"
+                    + "\"numRows numCols\", but found " + line);
+            }
+            int numRows = parseInt(tokens[0]);
+            int numCols = parseInt(tokens[1]);
+            long numNonZeros = (long) numRows * numCols;
+            matrixDescription.setSize(numRows, numCols, numNonZeros);
+        }
+        else
+        {
+            // May never happen
+            throw new IOException("No matrix format found");
+
+        }
+    }
+    
+    /**
+     * Parse an int from the given string and return it
+     * 
+     * @param s The string
+     * @return The result
+     * @throws IOException If the string can not be parsed
+     */
+    private static int parseInt(String s) throws IOException
+    {
+        try
+        {
+            return Integer.parseInt(s);
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IOException(e);
+        }
+    }
+    
+    /**
+     * Parse a long from the given string and return it
+     * 
+     * @param s The string
+     * @return The result
+     * @throws IOException If the string can not be parsed
+     */
+    private static long parseLong(String s) throws IOException
+    {
+        try
+        {
+            return Long.parseLong(s);
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IOException(e);
+        }
+    }
+    
+    /**
+     * Validate that the given token is "%%MatrixMarket", ignoring the case
+     * 
+     * @param firstToken The token
+     * @throws IOException If the token is not valid
+     */
+    private static void validateFirstToken(String firstToken) 
+        throws IOException
+    {
+        if (!firstToken.equalsIgnoreCase("%%MatrixMarket"))
+        {
+            throw new IOException(
+                "Expected \"%%MatrixMarket\", found " + firstToken);
+        }
+    }
+
+    /**
+     * Validate that the given string is "matrix", ignoring the case
+     * 
+     * @param objectString The token
+     * @throws IOException If the token is not valid
+     */
+    private static void validateObject(String objectString) 
+        throws IOException
+    {
+        if (!objectString.equalsIgnoreCase("matrix"))
+        {
+            throw new IOException(
+                "Expected \"matrix\", found " + objectString);
+        }
+    }
+    
+    /**
+     * Parse a {@link Format} from the given string
+     * 
+     * @param s The string
+     * @return The {@link Format}
+     * @throws IOException If the string can not be parsed
+     */
+    private static Format parseFormat(String s)
+        throws IOException
+    {
+        try
+        {
+            return Format.valueOf(s.toUpperCase());
+        }
+        catch (IllegalArgumentException e)
+        {
+
+            throw new IOException("Expected one of "
+                + Arrays.toString(Format.values()) + ", found " + s);
+        }
+    }
+    
+    /**
+     * Parse a {@link Field} from the given string
+     * 
+     * @param s The string
+     * @return The {@link Field}
+     * @throws IOException If the string can not be parsed
+     */
+    private static Field parseField(String s)
+        throws IOException
+    {
+        try
+        {
+            return Field.valueOf(s.toUpperCase());
+        }
+        catch (IllegalArgumentException e)
+        {
+
+            throw new IOException("Expected one of "
+                + Arrays.toString(Field.values()) + ", found " + s);
+        }
+    }
+
+    /**
+     * Parse a {@link Symmetry} from the given string
+     * 
+     * @param s The string
+     * @return The {@link Symmetry}
+     * @throws IOException If the string can not be parsed
+     */
+    private static Symmetry parseSymmetry(String s)
+        throws IOException
+    {
+        try
+        {
+            return Symmetry.valueOf(s.toUpperCase().replace('-', '_'));
+        }
+        catch (IllegalArgumentException e)
+        {
+
+            throw new IOException("Expected one of "
+                + Arrays.toString(Symmetry.values()) + ", found " + s);
+        }
+    }
+
+}
@@ -0,0 +1,454 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Methods to quickly obtain information about a MatrixMarket file, 
+ * without reading the whole file.<br>
+ * <br>
+ * The header and the size line are parsed to obtain the 
+ * {@link MatrixDescription}. For files in the {@link Format#COORDINATE}
+ * format, a number of evenly spaced windows of the body may be sampled 
+ * additionally, using random access to the file. The sampled elements 
+ * are used for estimating the number of diagonal elements (and thus, 
+ * the number of elements after mirroring them for matrices that are 
+ * not {@link Symmetry#GENERAL}), and for checking whether the elements 
+ * are sorted. The results are summarized in a {@link ProbeResult}.
+ */
+public class MatrixMarketProbe
+{
+    /**
+     * The default number of windows that are sampled from the body
+     */
+    private static final int DEFAULT_NUM_SAMPLES = 16;
+    
+    /**
+     * The size of each window that is sampled from the body
+     */
+    private static final int SAMPLE_SIZE = 1 << 16;
+    
+    /**
+     * The size of the buffer that is used for reading the header
+     */
+    private static final int HEADER_BUFFER_SIZE = 1 << 12;
+    
+    /**
+     * Probe the MatrixMarket file with the given path, sampling a 
+     * default number of windows from the body.
+     * 
+     * @param path The path of the file
+     * @return The {@link ProbeResult}
+     * @throws IOException If an IO-error occurs, or the header or the 
+     * sampled elements are invalid
+     */
+    public static ProbeResult probe(Path path) throws IOException
+    {
+        return probe(path, DEFAULT_NUM_SAMPLES);
+    }
+    
+    /**
+     * Probe the MatrixMarket file with the given path.<br>
+     * <br>
+     * The given number of windows of 64 KiB each will be read from 
+     * evenly spaced positions in the body of the file. If the body is 
+     * not larger than all windows together, then the whole body will be
+     * examined, and the estimates are exact. If the number of samples 
+     * is 0, or the file is gzip-compressed, then only the header will 
+     * be read.
+     * 
+     * @param path The path of the file
+     * @param numSamples The number of windows to sample
+     * @return The {@link ProbeResult}
+     * @throws IOException If an IO-error occurs, or the header or the 
+     * sampled elements are invalid
+     * @throws IllegalArgumentException If the number of samples is 
+     * negative
+     */
+    public static ProbeResult probe(Path path, int numSamples) 
+        throws IOException
+    {
+        if (numSamples < 0)
+        {
+            throw new IllegalArgumentException(
+                "The number of samples may not be negative, but is " 
+                + numSamples);
+        }
+        try (FileChannel fileChannel = 
+            FileChannel.open(path, StandardOpenOption.READ))
+        {
+            ProbeResult result = new ProbeResult();
+            InputStream inputStream = Channels.newInputStream(fileChannel);
+            if (GzipInputStreams.isGzip(fileChannel))
+            {
+                readHeader(
+                    GzipInputStreams.decompressIfNecessary(inputStream), 
+                    result);
+                estimate(result, null);
+                return result;
+            }
+            long bodyStart = readHeader(inputStream, result);
+            SampleCallback samples = null;
+            MatrixDescription matrixDescription = result.matrixDescription;
+            if (numSamples > 0 && 
+                matrixDescription.getFormat() == Format.COORDINATE)
+            {
+                samples = new SampleCallback();
+                sample(fileChannel, matrixDescription, bodyStart, 
+                    numSamples, samples);
+            }
+            estimate(result, samples);
+            return result;
+        }
+    }
+    
+    /**
+     * Probe the MatrixMarket data from the given input stream. Only the
+     * header and the size line will be read, and the estimates will only
+     * be based on the {@link MatrixDescription}. If the input starts 
+     * with the gzip magic bytes, it will be decompressed. The stream 
+     * will not be closed.
+     * 
+     * @param inputStream The input stream
+     * @return The {@link ProbeResult}
+     * @throws IOException If an IO-error occurs, or the header is invalid
+     */
+    public static ProbeResult probe(InputStream inputStream) 
+        throws IOException
+    {
+        ProbeResult result = new ProbeResult();
+        readHeader(
+            GzipInputStreams.decompressIfNecessary(inputStream), result);
+        estimate(result, null);
+        return result;
+    }
+    
+    /**
+     * Read the header and the size line from the given input stream, 
+     * and store the resulting {@link MatrixDescription} in the given
+     * {@link ProbeResult}
+     * 
+     * @param inputStream The input stream
+     * @param result The {@link ProbeResult}
+     * @return The offset of the body in the input
+     * @throws IOException If an IO-error occurs, or the header is invalid
+     */
+    private static long readHeader(InputStream inputStream, 
+        ProbeResult result) throws IOException
+    {
+        SegmentSource segmentSource = 
+            new StreamSegmentSource(inputStream, HEADER_BUFFER_SIZE);
+        MatrixMarketParser parser = new MatrixMarketParser(null);
+        long offset = 0;
+        while (true)
+        {
+            ByteBuffer segment = segmentSource.nextSegment();
+            if (segment == null)
+            {
+                throw new IOException(
+                    "Unexpected end of input: No matrix size found");
+            }
+            if (parser.parseHeader(segment))
+            {
+                result.matrixDescription = parser.getMatrixDescription();
+                return offset + segment.position();
+            }
+            offset += segment.limit();
+        }
+    }
+    
+    /**
+     * Pass the elements from the given number of evenly spaced windows
+     * of the body of the given file to the given callback. If the body
+     * is not larger than all windows together, then all elements of 
+     * the body will be passed to the callback.
+     * 
+     * @param fileChannel The file channel
+     * @param matrixDescription The {@link MatrixDescription}
+     * @param bodyStart The offset of the body in the file
+     * @param numSamples The number of windows
+     * @param callback The callback
+     * @throws IOException If an IO-error occurs, or the data is invalid
+     */
+    private static void sample(FileChannel fileChannel, 
+        MatrixDescription matrixDescription, long bodyStart, 
+        int numSamples, SampleCallback callback) throws IOException
+    {
+        long size = fileChannel.size();
+        long bodySize = size - bodyStart;
+        if (bodySize <= (long) numSamples * SAMPLE_SIZE)
+        {
+            fileChannel.position(bodyStart);
+            SegmentSource segmentSource = new StreamSegmentSource(
+                Channels.newInputStream(fileChannel), SAMPLE_SIZE);
+            MatrixMarketParser parser = new MatrixMarketParser(
+                callback, matrixDescription, bodyStart);
+            while (true)
+            {
+                ByteBuffer segment = segmentSource.nextSegment();
+                if (segment == null)
+                {
+                    break;
+                }
+                parser.parse(segment);
+            }
+            parser.flush();
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(SAMPLE_SIZE);
+        long range = bodySize - SAMPLE_SIZE;
+        for (int i = 0; i < numSamples; i++)
+        {
+            long start = bodyStart;
+            if (numSamples > 1)
+            {
+                start += range * i / (numSamples - 1);
+            }
+            sampleWindow(fileChannel, matrixDescription, start, 
+                start > bodyStart, buffer, callback);
+        }
+    }
+    
+    /**
+     * Pass the elements from the complete lines in the window of the 
+     * given file that starts at the given position to the given callback
+     * 
+     * @param fileChannel The file channel
+     * @param matrixDescription The {@link MatrixDescription}
+     * @param start The start of the window
+     * @param skipFirstLine Whether the window may start within a line, 
+     * so that the first (partial) line has to be skipped
+     * @param buffer The buffer for the window
+     * @param callback The callback
+     * @throws IOException If an IO-error occurs, or the data is invalid
+     */
+    private static void sampleWindow(FileChannel fileChannel, 
+        MatrixDescription matrixDescription, long start, 
+        boolean skipFirstLine, ByteBuffer buffer, SampleCallback callback) 
+        throws IOException
+    {
+        buffer.clear();
+        while (buffer.hasRemaining())
+        {
+            int read = fileChannel.read(buffer, start + buffer.position());
+            if (read < 0)
+            {
+                break;
+            }
+        }
+        int length = buffer.position();
+        int first = 0;
+        if (skipFirstLine)
+        {
+            while (first < length && 
+                buffer.get(first) != '\n' && buffer.get(first) != '\r')
+            {
+                first++;
+            }
+            if (first + 1 < length && buffer.get(first) == '\r' && 
+                buffer.get(first + 1) == '\n')
+            {
+                first++;
+            }
+            first++;
+        }
+        int last = length;
+        if (start + length < fileChannel.size())
+        {
+            last = Tokenizer.findLastLineEnd(buffer, first, length);
+        }
+        if (last <= first)
+        {
+            return;
+        }
+        buffer.limit(last).position(first);
+        MatrixMarketParser parser = new MatrixMarketParser(
+            callback, matrixDescription, start + first);
+        parser.parse(buffer);
+        parser.flush();
+    }
+    
+    /**
+     * Compute the estimates for the {@link MatrixDescription} of the 
+     * given {@link ProbeResult}, and store them in the result
+     * 
+     * @param result The {@link ProbeResult}
+     * @param samples The sampled elements, or <code>null</code> if no 
+     * elements have been sampled
+     */
+    private static void estimate(ProbeResult result, SampleCallback samples)
+    {
+        MatrixDescription matrixDescription = result.matrixDescription;
+        Symmetry symmetry = matrixDescription.getSymmetry();
+        long numRows = matrixDescription.getNumRows();
+        long numCols = matrixDescription.getNumCols();
+        
+        // The number of stored elements, and of the stored diagonal
+        // elements, which are not mirrored
+        long numStored = matrixDescription.getNumNonZerosLong();
+        long numDiagonal = 0;
+        if (matrixDescription.getFormat() == Format.ARRAY)
+        {
+            if (symmetry == Symmetry.SKEW_SYMMETRIC)
+            {
+                numStored = numRows * (numRows - 1) / 2;
+            }
+            else if (symmetry != Symmetry.GENERAL)
+            {
+                numStored = numRows * (numRows + 1) / 2;
+                numDiagonal = numRows;
+            }
+            result.sortedByColumns = true;
+        }
+        else if (samples != null && samples.numElements > 0)
+        {
+            double diagonalRatio = 
+                (double) samples.numDiagonalElements / samples.numElements;
+            numDiagonal = Math.round(diagonalRatio * numStored);
+            result.numSampledElements = samples.numElements;
+            result.sortedByRows = samples.sortedByRows;
+            result.sortedByColumns = samples.sortedByColumns;
+        }
+        else if (symmetry != Symmetry.SKEW_SYMMETRIC)
+        {
+            // Without samples, assume that the diagonal is stored
+            numDiagonal = Math.min(Math.min(numRows, numCols), numStored);
+        }
+        long numElements = numStored;
+        if (symmetry != Symmetry.GENERAL)
+        {
+            numElements = numStored + numStored - numDiagonal;
+        }
+        result.estimatedNumElements = numElements;
+        
+        int valuesPerElement = 1;
+        if (matrixDescription.getField() == Field.COMPLEX)
+        {
+            valuesPerElement = 2;
+        }
+        else if (matrixDescription.getField() == Field.PATTERN)
+        {
+            valuesPerElement = 0;
+        }
+        long rowPointerBytes = 4L * (numRows + 1);
+        result.estimatedCSRBytes = rowPointerBytes + 
+            numElements * (4L + 8L * valuesPerElement);
+        result.estimatedFloatCSRBytes = rowPointerBytes + 
+            numElements * (4L + 4L * valuesPerElement);
+        result.estimatedTriangularCSRBytes = rowPointerBytes + 
+            numStored * (4L + 8L * valuesPerElement);
+        result.estimatedCOOBytes = 
+            numElements * (8L + 8L * valuesPerElement);
+        result.estimatedDenseBytes = 
+            numRows * numCols * 8L * Math.max(1, valuesPerElement);
+    }
+    
+    /**
+     * Implementation of a {@link BatchCallback} that collects statistics
+     * about the elements that it receives
+     */
+    private static class SampleCallback implements BatchCallback
+    {
+        /**
+         * The number of elements
+         */
+        long numElements;
+        
+        /**
+         * The number of elements on the diagonal
+         */
+        long numDiagonalElements;
+        
+        /**
+         * Whether all elements appeared in ascending order of rows
+         */
+        boolean sortedByRows = true;
+        
+        /**
+         * Whether all elements appeared in ascending order of columns
+         */
+        boolean sortedByColumns = true;
+        
+        /**
+         * The row index of the previous element
+         */
+        private int previousRow = -1;
+        
+        /**
+         * The column index of the previous element
+         */
+        private int previousColumn = -1;
+        
+        @Override
+        public void startMatrix(MatrixDescription matrixDescription)
+        {
+            // Nothing to do here
+        }
+        
+        @Override
+        public void setMatrixElements(
+            int rowIndicesZeroBased[], int columnIndicesZeroBased[], 
+            double values[], int count)
+        {
+            for (int i = 0; i < count; i++)
+            {
+                int r = rowIndicesZeroBased[i];
+                int c = columnIndicesZeroBased[i];
+                if (r == c)
+                {
+                    numDiagonalElements++;
+                }
+                sortedByRows &= r >= previousRow;
+                sortedByColumns &= c >= previousColumn;
+                previousRow = r;
+                previousColumn = c;
+            }
+            numElements += count;
+        }
+        
+        @Override
+        public void finishMatrix()
+        {
+            // Nothing to do here
+        }
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private MatrixMarketProbe()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -0,0 +1,619 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Methods to write {@link CSR}, {@link COO} and {@link Dense} data as
+ * MatrixMarket output.<br>
+ * <br>
+ * Sparse matrices are written in the coordinate format, and dense 
+ * matrices in the array format. The output is {@link Symmetry#GENERAL},
+ * unless a {@link CSR} only contains one triangle of a matrix, in which
+ * case the output has the {@link CSR#symmetry} of the {@link CSR}. 
+ * The field is {@link Field#PATTERN} if the values are <code>null</code>, 
+ * {@link Field#COMPLEX} if there are twice as many values as elements, 
+ * and {@link Field#REAL} otherwise.<br>
+ * <br>
+ * The values are written with the shortest decimal representation that
+ * is read back as the same <code>double</code> value. The elements are
+ * formatted in parallel, in the common <code>ForkJoinPool</code>, and 
+ * written in their original order.
+ */
+public class MatrixMarketWriter
+{
+    /**
+     * The number of elements that are formatted in a single task
+     */
+    private static final int ELEMENTS_PER_TASK = 1 << 15;
+    
+    /**
+     * The number of tasks that may be pending, per thread
+     */
+    private static final int TASKS_PER_THREAD = 4;
+    
+    /**
+     * The maximum number of bytes that are written for an index
+     */
+    private static final int MAX_INDEX_LENGTH = 10;
+    
+    /**
+     * Interface for classes that can format a range of elements of a
+     * matrix into a buffer
+     */
+    private interface ElementFormatter
+    {
+        /**
+         * Format the specified range of elements into the given buffer
+         * 
+         * @param start The start index, inclusive
+         * @param end The end index, exclusive
+         * @param buffer The buffer, which has room for the specified
+         * lines
+         * @return The number of bytes that have been written
+         */
+        int format(int start, int end, byte buffer[]);
+    }
+    
+    /**
+     * Write the given {@link CSR} to the given output stream, in the 
+     * MatrixMarket coordinate format. The stream will not be closed.
+     * 
+     * @param csr The {@link CSR}
+     * @param outputStream The output stream
+     * @throws IOException If an IO-error occurs
+     * @throws IllegalArgumentException If the number of values does not
+     * match the number of elements
+     */
+    public static void writeCSR(CSR csr, OutputStream outputStream) 
+        throws IOException
+    {
+        writeCSR(csr, outputStream, false);
+    }
+    
+    /**
+     * Write the given {@link CSR} to the specified file, in the 
+     * MatrixMarket coordinate format. If the file name ends with 
+     * <code>".gz"</code>, the output will be compressed with gzip.
+     * 
+     * @param csr The {@link CSR}
+     * @param path The path of the file
+     * @throws IOException If an IO-error occurs
+     * @throws IllegalArgumentException If the number of values does not
+     * match the number of elements
+     */
+    public static void writeCSR(CSR csr, Path path) throws IOException
+    {
+        try (OutputStream outputStream = Files.newOutputStream(path))
+        {
+            writeCSR(csr, outputStream, isGzip(path));
+        }
+    }
+    
+    /**
+     * Write the given {@link CSR} to the given output stream
+     * 
+     * @param csr The {@link CSR}
+     * @param outputStream The output stream
+     * @param compress Whether the output should be compressed
+     * @throws IOException If an IO-error occurs
+     */
+    private static void writeCSR(CSR csr, OutputStream outputStream, 
+        boolean compress) throws IOException
+    {
+        int rowPointers[] = csr.rowPointers;
+        int columnIndices[] = csr.columnIndices;
+        double values[] = csr.values;
+        int numElements = rowPointers[csr.numRows];
+        MatrixDescription matrixDescription = describe(Format.COORDINATE, 
+            csr.numRows, csr.numCols, numElements, values);
+        if (csr.symmetry != null)
+        {
+            matrixDescription.setSymmetry(csr.symmetry);
+        }
+        boolean complex = matrixDescription.getField() == Field.COMPLEX;
+        ElementFormatter formatter = (start, end, buffer) -> 
+        {
+            int row = findRow(rowPointers, csr.numRows, start);
+            int p = 0;
+            for (int i = start; i < end; i++)
+            {
+                while (rowPointers[row + 1] <= i)
+                {
+                    row++;
+                }
+                p = formatIndex(row, buffer, p);
+                buffer[p++] = ' ';
+                p = formatIndex(columnIndices[i], buffer, p);
+                p = formatValues(values, i, complex, buffer, p);
+                buffer[p++] = '\n';
+            }
+            return p;
+        };
+        write(matrixDescription, formatter, outputStream, compress);
+    }
+    
+    /**
+     * Write the given {@link COO} to the given output stream, in the 
+     * MatrixMarket coordinate format. The stream will not be closed.
+     * 
+     * @param coo The {@link COO}
+     * @param outputStream The output stream
+     * @throws IOException If an IO-error occurs
+     * @throws IllegalArgumentException If the number of values does not
+     * match the number of elements
+     */
+    public static void writeCOO(COO coo, OutputStream outputStream) 
+        throws IOException
+    {
+        writeCOO(coo, outputStream, false);
+    }
+    
+    /**
+     * Write the given {@link COO} to the specified file, in the 
+     * MatrixMarket coordinate format. If the file name ends with 
+     * <code>".gz"</code>, the output will be compressed with gzip.
+     * 
+     * @param coo The {@link COO}
+     * @param path The path of the file
+     * @throws IOException If an IO-error occurs
+     * @throws IllegalArgumentException If the number of values does not
+     * match the number of elements
+     */
+    public static void writeCOO(COO coo, Path path) throws IOException
+    {
+        try (OutputStream outputStream = Files.newOutputStream(path))
+        {
+            writeCOO(coo, outputStream, isGzip(path));
+        }
+    }
+    
+    /**
+     * Write the given {@link COO} to the given output stream
+     * 
+     * @param coo The {@link COO}
+     * @param outputStream The output stream
+     * @param compress Whether the output should be compressed
+     * @throws IOException If an IO-error occurs
+     */
+    private static void writeCOO(COO coo, OutputStream outputStream, 
+        boolean compress) throws IOException
+    {
+        int rowIndices[] = coo.rowIndices;
+        int columnIndices[] = coo.columnIndices;
+        double values[] = coo.values;
+        MatrixDescription matrixDescription = describe(Format.COORDINATE, 
+            coo.numRows, coo.numCols, rowIndices.length, values);
+        boolean complex = matrixDescription.getField() == Field.COMPLEX;
+        ElementFormatter formatter = (start, end, buffer) -> 
+        {
+            int p = 0;
+            for (int i = start; i < end; i++)
+            {
+                p = formatIndex(rowIndices[i], buffer, p);
+                buffer[p++] = ' ';
+                p = formatIndex(columnIndices[i], buffer, p);
+                p = formatValues(values, i, complex, buffer, p);
+                buffer[p++] = '\n';
+            }
+            return p;
+        };
+        write(matrixDescription, formatter, outputStream, compress);
+    }
+    
+    /**
+     * Write the given {@link Dense} matrix to the given output stream, in 
+     * the MatrixMarket array format. The stream will not be closed.
+     * 
+     * @param dense The {@link Dense} matrix
+     * @param outputStream The output stream
+     * @throws IOException If an IO-error occurs
+     * @throws IllegalArgumentException If the number of values does not
+     * match the size of the matrix
+     */
+    public static void writeDense(Dense dense, OutputStream outputStream) 
+        throws IOException
+    {
+        writeDense(dense, outputStream, false);
+    }
+    
+    /**
+     * Write the given {@link Dense} matrix to the specified file, in the 
+     * MatrixMarket array format. If the file name ends with 
+     * <code>".gz"</code>, the output will be compressed with gzip.
+     * 
+     * @param dense The {@link Dense} matrix
+     * @param path The path of the file
+     * @throws IOException If an IO-error occurs
+     * @throws IllegalArgumentException If the number of values does not
+     * match the size of the matrix
+     */
+    public static void writeDense(Dense dense, Path path) throws IOException
+    {
+        try (OutputStream outputStream = Files.newOutputStream(path))
+        {
+            writeDense(dense, outputStream, isGzip(path));
+        }
+    }
+    
+    /**
+     * Write the given {@link Dense} matrix to the given output stream
+     * 
+     * @param dense The {@link Dense} matrix
+     * @param outputStream The output stream
+     * @param compress Whether the output should be compressed
+     * @throws IOException If an IO-error occurs
+     */
+    private static void writeDense(Dense dense, OutputStream outputStream, 
+        boolean compress) throws IOException
+    {
+        double values[] = dense.values;
+        long numElements = (long) dense.numRows * dense.numCols;
+        if (values == null || numElements > values.length)
+        {
+            throw new IllegalArgumentException(
+                "Expected " + numElements + " values for a matrix of size " 
+                + dense.numRows + "x" + dense.numCols);
+        }
+        MatrixDescription matrixDescription = describe(Format.ARRAY, 
+            dense.numRows, dense.numCols, (int) numElements, values);
+        boolean complex = matrixDescription.getField() == Field.COMPLEX;
+        ElementFormatter formatter = (start, end, buffer) -> 
+        {
+            int p = 0;
+            for (int i = start; i < end; i++)
+            {
+                if (complex)
+                {
+                    p = DoubleFormatter.format(values[i + i], buffer, p);
+                    buffer[p++] = ' ';
+                    p = DoubleFormatter.format(values[i + i + 1], buffer, p);
+                }
+                else
+                {
+                    p = DoubleFormatter.format(values[i], buffer, p);
+                }
+                buffer[p++] = '\n';
+            }
+            return p;
+        };
+        write(matrixDescription, formatter, outputStream, compress);
+    }
+    
+    /**
+     * Create the {@link MatrixDescription} for a matrix with the given 
+     * properties. The {@link Field} will be derived from the given 
+     * values.
+     * 
+     * @param format The {@link Format}
+     * @param numRows The number of rows
+     * @param numCols The number of columns
+     * @param numElements The number of elements
+     * @param values The values, or <code>null</code> for a 
+     * {@link Field#PATTERN} matrix
+     * @return The {@link MatrixDescription}
+     * @throws IllegalArgumentException If the number of values does not
+     * match the number of elements
+     */
+    private static MatrixDescription describe(Format format, 
+        int numRows, int numCols, int numElements, double values[])
+    {
+        Field field;
+        if (values == null)
+        {
+            field = Field.PATTERN;
+        }
+        else if (values.length == numElements)
+        {
+            field = Field.REAL;
+        }
+        else if (values.length == 2L * numElements)
+        {
+            field = Field.COMPLEX;
+        }
+        else
+        {
+            throw new IllegalArgumentException(
+                "Expected " + numElements + " or " + (2L * numElements) 
+                + " values, but found " + values.length);
+        }
+        MatrixDescription matrixDescription = new MatrixDescription();
+        matrixDescription.setFormat(format);
+        matrixDescription.setField(field);
+        matrixDescription.setSymmetry(Symmetry.GENERAL);
+        matrixDescription.setSize(numRows, numCols, numElements);
+        return matrixDescription;
+    }
+    
+    /**
+     * Create the header for the given {@link MatrixDescription}, 
+     * consisting of the banner and the size line
+     * 
+     * @param matrixDescription The {@link MatrixDescription}
+     * @return The header
+     */
+    private static byte[] createHeader(MatrixDescription matrixDescription)
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("%%MatrixMarket matrix ");
+        sb.append(toKeyword(matrixDescription.getFormat())).append(" ");
+        sb.append(toKeyword(matrixDescription.getField())).append(" ");
+        sb.append(toKeyword(matrixDescription.getSymmetry())).append("\n");
+        sb.append(matrixDescription.getNumRows()).append(" ");
+        sb.append(matrixDescription.getNumCols());
+        if (matrixDescription.getFormat() == Format.COORDINATE)
+        {
+            sb.append(" ").append(matrixDescription.getNumNonZerosLong());
+        }
+        sb.append("\n");
+        return sb.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+    
+    /**
+     * Returns the keyword that is used for the given value in the 
+     * header of a MatrixMarket file
+     * 
+     * @param value The value
+     * @return The keyword
+     */
+    private static String toKeyword(Enum<?> value)
+    {
+        return value.name().toLowerCase(Locale.ENGLISH).replace('_', '-');
+    }
+    
+    /**
+     * Write the header for the given {@link MatrixDescription} and all
+     * elements to the given output stream.<br>
+     * <br>
+     * The elements are formatted in tasks in the common 
+     * <code>ForkJoinPool</code>, and the results of the tasks are 
+     * written in their original order. Each task formats its elements 
+     * into a new buffer that has room for the longest possible lines, 
+     * and which is written without copying it.
+     * 
+     * @param matrixDescription The {@link MatrixDescription}
+     * @param formatter The {@link ElementFormatter}
+     * @param outputStream The output stream
+     * @param compress Whether the output should be compressed
+     * @throws IOException If an IO-error occurs
+     */
+    private static void write(MatrixDescription matrixDescription, 
+        ElementFormatter formatter, OutputStream outputStream, 
+        boolean compress) throws IOException
+    {
+        byte header[] = createHeader(matrixDescription);
+        if (compress)
+        {
+            header = GzipBlocks.compress(header, 0, header.length);
+        }
+        outputStream.write(header);
+        
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int maxPending = Math.max(TASKS_PER_THREAD, 
+            pool.getParallelism() * TASKS_PER_THREAD);
+        int maxLineLength = computeMaxLineLength(matrixDescription);
+        Deque<ForkJoinTask<ByteBuffer>> pending = 
+            new ArrayDeque<ForkJoinTask<ByteBuffer>>();
+        int numElements = (int) matrixDescription.getNumNonZerosLong();
+        int numTasks = (int) 
+            (((long) numElements + ELEMENTS_PER_TASK - 1) / ELEMENTS_PER_TASK);
+        try
+        {
+            for (int t = 0; t < numTasks; t++)
+            {
+                int taskStart = t * ELEMENTS_PER_TASK;
+                int taskEnd = taskStart + 
+                    Math.min(numElements - taskStart, ELEMENTS_PER_TASK);
+                if (pending.size() >= maxPending)
+                {
+                    write(pending.poll().join(), outputStream);
+                }
+                pending.add(pool.submit(() -> 
+                {
+                    byte buffer[] = 
+                        new byte[(taskEnd - taskStart) * maxLineLength];
+                    int n = formatter.format(taskStart, taskEnd, buffer);
+                    if (compress)
+                    {
+                        return ByteBuffer.wrap(
+                            GzipBlocks.compress(buffer, 0, n));
+                    }
+                    return ByteBuffer.wrap(buffer, 0, n);
+                }));
+            }
+            while (!pending.isEmpty())
+            {
+                write(pending.poll().join(), outputStream);
+            }
+        }
+        finally
+        {
+            for (ForkJoinTask<ByteBuffer> task : pending)
+            {
+                task.cancel(true);
+            }
+        }
+        if (compress)
+        {
+            outputStream.write(GzipBlocks.endOfFile());
+        }
+        outputStream.flush();
+    }
+    
+    /**
+     * Write the remaining bytes of the given buffer, which must be backed
+     * by an array, to the given output stream
+     * 
+     * @param buffer The buffer
+     * @param outputStream The output stream
+     * @throws IOException If an IO-error occurs
+     */
+    private static void write(ByteBuffer buffer, OutputStream outputStream) 
+        throws IOException
+    {
+        outputStream.write(buffer.array(), 
+            buffer.arrayOffset() + buffer.position(), buffer.remaining());
+    }
+    
+    /**
+     * Returns the maximum number of bytes that are written for a single
+     * line of a matrix with the given {@link MatrixDescription}
+     * 
+     * @param matrixDescription The {@link MatrixDescription}
+     * @return The maximum line length
+     */
+    private static int computeMaxLineLength(
+        MatrixDescription matrixDescription)
+    {
+        int numIndices = 0;
+        if (matrixDescription.getFormat() == Format.COORDINATE)
+        {
+            numIndices = 2;
+        }
+        int numValues = 1;
+        if (matrixDescription.getField() == Field.PATTERN)
+        {
+            numValues = 0;
+        }
+        else if (matrixDescription.getField() == Field.COMPLEX)
+        {
+            numValues = 2;
+        }
+        // Each index and value is followed by a space or the newline
+        return numIndices * (MAX_INDEX_LENGTH + 1) 
+            + numValues * (DoubleFormatter.MAX_LENGTH + 1);
+    }
+    
+    /**
+     * Returns the row that contains the element at the given index
+     * 
+     * @param rowPointers The row pointers
+     * @param numRows The number of rows
+     * @param index The index of the element
+     * @return The row
+     */
+    private static int findRow(int rowPointers[], int numRows, int index)
+    {
+        int low = 0;
+        int high = numRows - 1;
+        while (low < high)
+        {
+            int mid = (low + high + 1) >>> 1;
+            if (rowPointers[mid] <= index)
+            {
+                low = mid;
+            }
+            else
+            {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+    
+    /**
+     * Write the given zero-based index as a one-based index into the 
+     * given buffer
+     * 
+     * @param index The index
+     * @param buffer The buffer
+     * @param offset The offset
+     * @return The offset after the last byte that was written
+     */
+    private static int formatIndex(int index, byte buffer[], int offset)
+    {
+        long value = index + 1L;
+        return DoubleFormatter.writeDigits(
+            value, DoubleFormatter.numDigits(value), buffer, offset);
+    }
+    
+    /**
+     * Write the value(s) of the specified element into the given 
+     * buffer, each preceded by a space. If the given values are 
+     * <code>null</code>, then nothing is written.
+     * 
+     * @param values The values
+     * @param index The index of the element
+     * @param complex Whether the values are complex
+     * @param buffer The buffer
+     * @param offset The offset
+     * @return The offset after the last byte that was written
+     */
+    private static int formatValues(double values[], int index, 
+        boolean complex, byte buffer[], int offset)
+    {
+        if (values == null)
+        {
+            return offset;
+        }
+        int p = offset;
+        buffer[p++] = ' ';
+        if (complex)
+        {
+            p = DoubleFormatter.format(values[index + index], buffer, p);
+            buffer[p++] = ' ';
+            p = DoubleFormatter.format(values[index + index + 1], buffer, p);
+        }
+        else
+        {
+            p = DoubleFormatter.format(values[index], buffer, p);
+        }
+        return p;
+    }
+    
+    /**
+     * Returns whether the given path should be written with gzip 
+     * compression, based on its file name
+     * 
+     * @param path The path
+     * @return Whether the path denotes a gzip file
+     */
+    private static boolean isGzip(Path path)
+    {
+        Path fileName = path.getFileName();
+        return fileName != null && fileName.toString().endsWith(".gz");
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private MatrixMarketWriter()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -0,0 +1,331 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+/**
+ * A class for reading the body of a {@link Format#COORDINATE} MatrixMarket
+ * file in parallel. After the header and the size have been read, the body 
+ * is split into chunks at line boundaries. Each chunk is mapped into memory
+ * and parsed into its own {@link BatchCallback} in a 
+ * <code>ForkJoinPool</code>.
+ */
+final class ParallelCoordinateReader
+{
+    /**
+     * The minimum size of a chunk
+     */
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+    
+    /**
+     * The maximum size of a chunk
+     */
+    private static final long MAX_CHUNK_SIZE = 1 << 28;
+    
+    /**
+     * The number of chunks per thread, for load balancing
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+    
+    /**
+     * The size of the buffer that is used for finding line boundaries
+     */
+    private static final int BOUNDARY_BUFFER_SIZE = 1 << 12;
+    
+    /**
+     * The file channel
+     */
+    private final FileChannel fileChannel;
+    
+    /**
+     * The pool that the chunks are parsed in
+     */
+    private final ForkJoinPool pool;
+    
+    /**
+     * The {@link MatrixDescription}, after the header was read
+     */
+    private MatrixDescription matrixDescription;
+    
+    /**
+     * The offset of the body in the file, after the header was read
+     */
+    private long bodyStart;
+    
+    /**
+     * The number of lines that have been parsed in all chunks
+     */
+    private final LongAdder numLines = new LongAdder();
+    
+    /**
+     * The number of comment lines that have been parsed in all chunks
+     */
+    private final LongAdder numCommentLines = new LongAdder();
+    
+    /**
+     * The number of elements that have been parsed in all chunks
+     */
+    private final LongAdder numEntries = new LongAdder();
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param fileChannel The file channel
+     * @param pool The pool that the chunks are parsed in
+     */
+    ParallelCoordinateReader(FileChannel fileChannel, ForkJoinPool pool)
+    {
+        this.fileChannel = fileChannel;
+        this.pool = pool;
+    }
+    
+    /**
+     * Read the header and the size of the matrix, and return the
+     * resulting {@link MatrixDescription}
+     * 
+     * @return The {@link MatrixDescription}
+     * @throws IOException If an IO-error occurs, the header is invalid, 
+     * or the file does not contain a matrix in {@link Format#COORDINATE}
+     * format
+     */
+    MatrixDescription readHeader() throws IOException
+    {
+        long size = fileChannel.size();
+        long headerWindowSize = 
+            Math.min(size, MappedSegmentSource.DEFAULT_WINDOW_SIZE);
+        MappedByteBuffer buffer = fileChannel.map(
+            MapMode.READ_ONLY, 0, headerWindowSize);
+        MatrixMarketParser parser = new MatrixMarketParser(null);
+        if (!parser.parseHeader(buffer))
+        {
+            throw new IOException(
+                "No matrix size found in the first " 
+                + headerWindowSize + " bytes");
+        }
+        matrixDescription = parser.getMatrixDescription();
+        if (matrixDescription.getFormat() != Format.COORDINATE)
+        {
+            throw new IOException(
+                "Only COORDINATE format is supported");
+        }
+        bodyStart = buffer.position();
+        return matrixDescription;
+    }
+    
+    /**
+     * Read the body of the matrix in parallel. The given function will
+     * be called with the expected number of elements of each chunk,
+     * and has to return a new {@link BatchCallback} for the elements of 
+     * the chunk. The {@link BatchCallback#startMatrix(MatrixDescription)} 
+     * method will be called on each of these callbacks, but not the
+     * {@link BatchCallback#finishMatrix()} method.
+     * 
+     * @param <T> The type of the callbacks
+     * @param callbackFactory The factory for the callbacks
+     * @return The callbacks of all chunks, in the order of the chunks
+     * @throws IOException If an IO-error occurs, or the data is invalid
+     */
+    <T extends BatchCallback> List<T> readBody(
+        LongFunction<? extends T> callbackFactory) throws IOException
+    {
+        long startNanos = System.nanoTime();
+        long size = fileChannel.size();
+        long bodySize = size - bodyStart;
+        int numThreads = pool.getParallelism();
+        long chunkSize = bodySize / ((long) numThreads * CHUNKS_PER_THREAD);
+        chunkSize = Math.max(MIN_CHUNK_SIZE, 
+            Math.min(MAX_CHUNK_SIZE, chunkSize));
+        
+        List<Long> boundaries = new ArrayList<Long>();
+        boundaries.add(bodyStart);
+        long nominal = bodyStart + chunkSize;
+        while (nominal < size)
+        {
+            long boundary = findLineStart(nominal);
+            if (boundary >= size)
+            {
+                break;
+            }
+            boundaries.add(boundary);
+            nominal = boundary + chunkSize;
+        }
+        boundaries.add(size);
+        
+        long numNonZeros = matrixDescription.getNumNonZerosLong();
+        List<ForkJoinTask<T>> tasks = new ArrayList<ForkJoinTask<T>>();
+        for (int i = 0; i < boundaries.size() - 1; i++)
+        {
+            long start = boundaries.get(i);
+            long end = boundaries.get(i + 1);
+            long expectedNumElements = 16 + (long) 
+                (1.05 * numNonZeros * ((double) (end - start) / bodySize));
+            T callback = callbackFactory.apply(expectedNumElements);
+            tasks.add(pool.submit(() -> 
+            {
+                readChunk(start, end, callback);
+                return callback;
+            }));
+        }
+        
+        List<T> callbacks = new ArrayList<T>();
+        try
+        {
+            for (ForkJoinTask<T> task : tasks)
+            {
+                callbacks.add(task.get());
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading", e);
+        }
+        catch (ExecutionException e)
+        {
+            // The pool may wrap the IOException from the chunk into
+            // one or more RuntimeExceptions
+            Throwable cause = e.getCause();
+            while (cause != null)
+            {
+                if (cause instanceof IOException)
+                {
+                    throw new IOException(cause.getMessage(), cause);
+                }
+                cause = cause.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+        finally
+        {
+            for (ForkJoinTask<T> task : tasks)
+            {
+                task.cancel(true);
+            }
+        }
+        ReadInstrumentation.phaseFinished(ReadPhase.BODY, bodySize, 
+            numLines.sum(), numCommentLines.sum(), numEntries.sum(), 
+            startNanos);
+        return callbacks;
+    }
+    
+    /**
+     * Read the chunk with the given range of the file, and pass the 
+     * elements to the given callback
+     * 
+     * @param start The start of the chunk, inclusive
+     * @param end The end of the chunk, exclusive
+     * @param callback The {@link BatchCallback}
+     * @throws IOException If an IO-error occurs, or the data is invalid
+     */
+    private void readChunk(long start, long end, BatchCallback callback) 
+        throws IOException
+    {
+        callback.startMatrix(matrixDescription);
+        MappedByteBuffer buffer = 
+            fileChannel.map(MapMode.READ_ONLY, start, end - start);
+        MatrixMarketParser parser = 
+            new MatrixMarketParser(callback, matrixDescription, start);
+        parser.parse(buffer);
+        parser.flush();
+        numLines.add(parser.getNumLines());
+        numCommentLines.add(parser.getNumCommentLines());
+        numEntries.add(parser.getNumEntries());
+    }
+    
+    /**
+     * Returns the offset of the start of the first line that starts at
+     * or after the given offset. A <code>"\r\n"</code> is treated as a
+     * single line terminator.
+     * 
+     * @param offset The offset
+     * @return The start of the line, or the size of the file if there
+     * is no further line
+     * @throws IOException If an IO-error occurs
+     */
+    private long findLineStart(long offset) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(BOUNDARY_BUFFER_SIZE);
+        long position = offset - 1;
+        while (true)
+        {
+            buffer.clear();
+            int read = fileChannel.read(buffer, position);
+            if (read <= 0)
+            {
+                return fileChannel.size();
+            }
+            for (int i = 0; i < read; i++)
+            {
+                byte b = buffer.get(i);
+                if (b == '\n')
+                {
+                    return position + i + 1;
+                }
+                if (b == '\r')
+                {
+                    long lineStart = position + i + 1;
+                    if (isLineFeed(lineStart))
+                    {
+                        return lineStart + 1;
+                    }
+                    return lineStart;
+                }
+            }
+            position += read;
+        }
+    }
+    
+    /**
+     * Returns whether the byte at the given offset of the file is a 
+     * <code>'\n'</code>
+     * 
+     * @param offset The offset
+     * @return Whether the byte is a line feed
+     * @throws IOException If an IO-error occurs
+     */
+    private boolean isLineFeed(long offset) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(1);
+        if (fileChannel.read(buffer, offset) <= 0)
+        {
+            return false;
+        }
+        return buffer.get(0) == '\n';
+    }
+}
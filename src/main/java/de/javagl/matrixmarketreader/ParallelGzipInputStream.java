@@ -0,0 +1,404 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * An input stream that decompresses blocked gzip data, where each member 
+ * contains its total size in the extra field of its header (as in the 
+ * BGZF format). The members are read sequentially from the underlying 
+ * stream, and inflated in parallel in a <code>ForkJoinPool</code>. The
+ * decompressed data of the members is provided in the original order.
+ */
+final class ParallelGzipInputStream extends InputStream
+{
+    /**
+     * The number of members that may be inflated concurrently, per thread
+     */
+    private static final int MEMBERS_PER_THREAD = 4;
+    
+    /**
+     * The inflater for each thread
+     */
+    private static final ThreadLocal<Inflater> INFLATERS = 
+        ThreadLocal.withInitial(() -> new Inflater(true));
+    
+    /**
+     * The underlying input stream
+     */
+    private final InputStream inputStream;
+    
+    /**
+     * The pool that the members are inflated in
+     */
+    private final ForkJoinPool pool;
+    
+    /**
+     * The maximum number of pending tasks
+     */
+    private final int maxPending;
+    
+    /**
+     * The tasks that inflate the members, in the order of the members
+     */
+    private final Deque<ForkJoinTask<byte[]>> pending;
+    
+    /**
+     * The decompressed data of the current member
+     */
+    private byte current[];
+    
+    /**
+     * The position in the current member
+     */
+    private int position;
+    
+    /**
+     * Whether the end of the underlying stream was reached
+     */
+    private boolean endOfInput;
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param inputStream The underlying input stream, which must start 
+     * with a blocked gzip member
+     * @param pool The pool that the members are inflated in
+     */
+    ParallelGzipInputStream(InputStream inputStream, ForkJoinPool pool)
+    {
+        this.inputStream = inputStream;
+        this.pool = pool;
+        this.maxPending = 
+            Math.max(MEMBERS_PER_THREAD, 
+                pool.getParallelism() * MEMBERS_PER_THREAD);
+        this.pending = new ArrayDeque<ForkJoinTask<byte[]>>();
+        this.current = new byte[0];
+        this.position = 0;
+    }
+    
+    @Override
+    public int read() throws IOException
+    {
+        if (!ensureAvailable())
+        {
+            return -1;
+        }
+        return current[position++] & 0xFF;
+    }
+    
+    @Override
+    public int read(byte b[], int off, int len) throws IOException
+    {
+        if (len == 0)
+        {
+            return 0;
+        }
+        if (!ensureAvailable())
+        {
+            return -1;
+        }
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, n);
+        position += n;
+        return n;
+    }
+    
+    @Override
+    public int available()
+    {
+        return current.length - position;
+    }
+    
+    @Override
+    public void close() throws IOException
+    {
+        for (ForkJoinTask<byte[]> task : pending)
+        {
+            task.cancel(true);
+        }
+        pending.clear();
+        inputStream.close();
+    }
+    
+    /**
+     * Make sure that the current member contains data that was not
+     * read yet, inflating the next members if necessary
+     * 
+     * @return Whether data is available, or <code>false</code> if the 
+     * end of the data was reached
+     * @throws IOException If an IO-error occurs, or the data is invalid
+     */
+    private boolean ensureAvailable() throws IOException
+    {
+        while (position >= current.length)
+        {
+            submitMembers();
+            ForkJoinTask<byte[]> task = pending.poll();
+            if (task == null)
+            {
+                return false;
+            }
+            current = join(task);
+            position = 0;
+        }
+        return true;
+    }
+    
+    /**
+     * Read members from the underlying stream, and submit the tasks for
+     * inflating them, until the maximum number of pending tasks is 
+     * reached, or the end of the input is reached
+     * 
+     * @throws IOException If an IO-error occurs, or the data is invalid
+     */
+    private void submitMembers() throws IOException
+    {
+        while (!endOfInput && pending.size() < maxPending)
+        {
+            byte member[] = readMember();
+            if (member == null)
+            {
+                endOfInput = true;
+                break;
+            }
+            pending.add(pool.submit(() -> inflateMember(member)));
+        }
+    }
+    
+    /**
+     * Read the next complete member from the underlying stream
+     * 
+     * @return The member, or <code>null</code> if the end of the 
+     * stream was reached
+     * @throws IOException If an IO-error occurs, or the member is not
+     * a valid blocked gzip member
+     */
+    private byte[] readMember() throws IOException
+    {
+        int headerLength = GzipInputStreams.HEADER_LENGTH;
+        byte header[] = new byte[headerLength];
+        int n = GzipInputStreams.readFully(
+            inputStream, header, 0, headerLength);
+        if (n == 0)
+        {
+            return null;
+        }
+        if (n < headerLength || 
+            !GzipInputStreams.isMagic(header[0], header[1]) ||
+            (header[3] & GzipInputStreams.FEXTRA) == 0)
+        {
+            throw new IOException("Invalid blocked gzip member header");
+        }
+        int extraLength = GzipInputStreams.readUnsignedShort(header, 10);
+        byte extra[] = new byte[extraLength];
+        if (GzipInputStreams.readFully(
+            inputStream, extra, 0, extraLength) < extraLength)
+        {
+            throw new IOException("Unexpected end of gzip data");
+        }
+        int blockSize = 
+            GzipInputStreams.findBlockSize(extra, 0, extraLength);
+        int memberLength = blockSize + 1;
+        if (blockSize < 0 || memberLength < headerLength + extraLength + 8)
+        {
+            throw new IOException(
+                "Invalid blocked gzip member: No valid block size found");
+        }
+        byte member[] = new byte[memberLength];
+        System.arraycopy(header, 0, member, 0, headerLength);
+        System.arraycopy(extra, 0, member, headerLength, extraLength);
+        int offset = headerLength + extraLength;
+        if (GzipInputStreams.readFully(inputStream, 
+            member, offset, memberLength - offset) < memberLength - offset)
+        {
+            throw new IOException("Unexpected end of gzip data");
+        }
+        return member;
+    }
+    
+    /**
+     * Inflate the given gzip member, and return the decompressed data
+     * 
+     * @param member The member
+     * @return The decompressed data
+     * @throws IOException If the member is not valid
+     */
+    private static byte[] inflateMember(byte member[]) throws IOException
+    {
+        int flags = member[3];
+        if ((member[2] & 0xFF) != GzipInputStreams.CM_DEFLATE)
+        {
+            throw new IOException("Invalid gzip compression method");
+        }
+        int offset = GzipInputStreams.HEADER_LENGTH + 
+            GzipInputStreams.readUnsignedShort(member, 10);
+        if ((flags & GzipInputStreams.FNAME) != 0)
+        {
+            offset = skipZeroTerminated(member, offset);
+        }
+        if ((flags & GzipInputStreams.FCOMMENT) != 0)
+        {
+            offset = skipZeroTerminated(member, offset);
+        }
+        if ((flags & GzipInputStreams.FHCRC) != 0)
+        {
+            offset += 2;
+        }
+        int trailer = member.length - 8;
+        if (offset > trailer)
+        {
+            throw new IOException("Invalid gzip member header");
+        }
+        long expectedCrc = GzipInputStreams.readUnsignedInt(member, trailer);
+        long size = GzipInputStreams.readUnsignedInt(member, trailer + 4);
+        if (size > Integer.MAX_VALUE - 8)
+        {
+            throw new IOException("Gzip member is too large: " + size);
+        }
+        
+        byte result[] = new byte[(int) size];
+        Inflater inflater = INFLATERS.get();
+        inflater.reset();
+        inflater.setInput(member, offset, trailer - offset);
+        try
+        {
+            // When the result is full, inflate into a spare array, to 
+            // make sure that the end of the deflate stream is reached
+            // and that it does not contain more data than expected
+            byte spare[] = new byte[1];
+            int n = 0;
+            while (!inflater.finished())
+            {
+                int k;
+                if (n < result.length)
+                {
+                    k = inflater.inflate(result, n, result.length - n);
+                }
+                else
+                {
+                    k = inflater.inflate(spare);
+                    if (k > 0)
+                    {
+                        throw new IOException("Corrupt gzip member");
+                    }
+                }
+                n += k;
+                if (k == 0 && (inflater.needsInput() || 
+                    inflater.needsDictionary()))
+                {
+                    break;
+                }
+            }
+            if (n != result.length || !inflater.finished())
+            {
+                throw new IOException("Corrupt gzip member");
+            }
+        }
+        catch (DataFormatException e)
+        {
+            throw new IOException("Corrupt gzip member", e);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(result, 0, result.length);
+        if (crc.getValue() != expectedCrc)
+        {
+            throw new IOException("CRC mismatch in gzip member");
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the position after the zero byte that follows the given
+     * position in the given array
+     * 
+     * @param array The array
+     * @param position The position
+     * @return The position after the zero byte
+     * @throws IOException If there is no zero byte
+     */
+    private static int skipZeroTerminated(byte array[], int position) 
+        throws IOException
+    {
+        int p = position;
+        while (p < array.length)
+        {
+            if (array[p] == 0)
+            {
+                return p + 1;
+            }
+            p++;
+        }
+        throw new IOException("Invalid gzip member header");
+    }
+    
+    /**
+     * Wait for the given task to complete, and return its result
+     * 
+     * @param task The task
+     * @return The result
+     * @throws IOException If the task caused an IOException, or waiting 
+     * for the task was interrupted
+     */
+    private static byte[] join(ForkJoinTask<byte[]> task) throws IOException
+    {
+        try
+        {
+            return task.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while decompressing", e);
+        }
+        catch (ExecutionException e)
+        {
+            // The pool may wrap the IOException from the task into
+            // one or more RuntimeExceptions
+            Throwable cause = e.getCause();
+            while (cause != null)
+            {
+                if (cause instanceof IOException)
+                {
+                    throw new IOException(cause.getMessage(), cause);
+                }
+                cause = cause.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntConsumer;
+
+/**
+ * Methods for processing a number of parts in parallel, in the common
+ * <code>ForkJoinPool</code>
+ */
+final class ParallelParts
+{
+    /**
+     * Execute the given consumer for each part index, in parallel, in 
+     * the common <code>ForkJoinPool</code>, and wait for all of them 
+     * to complete. If there is only a single part, then it is processed
+     * in the calling thread.
+     * 
+     * @param numParts The number of parts
+     * @param consumer The consumer
+     */
+    static void forEach(int numParts, IntConsumer consumer)
+    {
+        if (numParts == 1)
+        {
+            consumer.accept(0);
+            return;
+        }
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+        for (int p = 0; p < numParts; p++)
+        {
+            int part = p;
+            tasks.add(pool.submit(() -> consumer.accept(part)));
+        }
+        for (ForkJoinTask<?> task : tasks)
+        {
+            task.join();
+        }
+    }
+    
+    /**
+     * Execute the given consumer for each part index, in parallel, like
+     * {@link #forEach(int, IntConsumer)}. If the consumer throws an 
+     * <code>UncheckedIOException</code>, then its cause is thrown.
+     * 
+     * @param numParts The number of parts
+     * @param consumer The consumer
+     * @throws IOException If the consumer caused an IOException
+     */
+    static void forEachChecked(int numParts, IntConsumer consumer) 
+        throws IOException
+    {
+        try
+        {
+            forEach(numParts, consumer);
+        }
+        catch (RuntimeException e)
+        {
+            // The pool may wrap the exception from the task into
+            // another RuntimeException
+            Throwable cause = e;
+            while (cause != null)
+            {
+                if (cause instanceof UncheckedIOException)
+                {
+                    throw ((UncheckedIOException) cause).getCause();
+                }
+                cause = cause.getCause();
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private ParallelParts()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -0,0 +1,495 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+/**
+ * A class for reading the body of a {@link Format#COORDINATE} MatrixMarket
+ * file from an input stream, overlapping the reading and the parsing. The
+ * calling thread reads the stream into a ring of large buffers. Whenever
+ * a buffer is full, the part that consists of complete lines is parsed
+ * into its own {@link BatchCallback} in a <code>ForkJoinPool</code>, 
+ * while the calling thread continues to read into the next buffer. The
+ * buffers are returned to the ring when they have been parsed, so that 
+ * the number of buffers is bounded, and no new buffers are allocated 
+ * once the ring is full.
+ */
+final class PipelinedCoordinateReader
+{
+    /**
+     * The default size of the buffers
+     */
+    static final int DEFAULT_BUFFER_SIZE = 1 << 22;
+    
+    /**
+     * The number of buffers in the ring, in addition to one buffer for
+     * each thread of the pool
+     */
+    private static final int ADDITIONAL_BUFFERS = 2;
+    
+    /**
+     * The input stream
+     */
+    private final InputStream inputStream;
+    
+    /**
+     * The pool that the segments are parsed in
+     */
+    private final ForkJoinPool pool;
+    
+    /**
+     * The size of the buffers
+     */
+    private final int bufferSize;
+    
+    /**
+     * The maximum number of buffers in the ring
+     */
+    private final int maxNumBuffers;
+    
+    /**
+     * The buffers that are currently not used
+     */
+    private final BlockingQueue<ByteBuffer> freeBuffers;
+    
+    /**
+     * The number of buffers that have been allocated
+     */
+    private int numBuffers;
+    
+    /**
+     * The number of parsing tasks that have been joined while waiting
+     * for a buffer
+     */
+    private int numJoinedTasks;
+    
+    /**
+     * The buffer that is currently filled
+     */
+    private ByteBuffer buffer;
+    
+    /**
+     * The number of bytes in the current buffer
+     */
+    private int length;
+    
+    /**
+     * The start of the bytes in the current buffer that have not been 
+     * processed yet
+     */
+    private int start;
+    
+    /**
+     * The offset of the start of the current buffer in the stream
+     */
+    private long offset;
+    
+    /**
+     * Whether the end of the input stream was reached
+     */
+    private boolean endOfStream;
+    
+    /**
+     * The {@link MatrixDescription}, after the header was read
+     */
+    private MatrixDescription matrixDescription;
+    
+    /**
+     * The number of bytes that have been parsed in all segments
+     */
+    private final LongAdder numBytes = new LongAdder();
+    
+    /**
+     * The number of lines that have been parsed in all segments
+     */
+    private final LongAdder numLines = new LongAdder();
+    
+    /**
+     * The number of comment lines that have been parsed in all segments
+     */
+    private final LongAdder numCommentLines = new LongAdder();
+    
+    /**
+     * The number of elements that have been parsed in all segments
+     */
+    private final LongAdder numEntries = new LongAdder();
+    
+    /**
+     * Whether parsing one of the segments failed
+     */
+    private volatile boolean failed;
+    
+    /**
+     * Creates a new instance with a default buffer size
+     * 
+     * @param inputStream The input stream
+     * @param pool The pool that the segments are parsed in
+     */
+    PipelinedCoordinateReader(InputStream inputStream, ForkJoinPool pool)
+    {
+        this(inputStream, pool, DEFAULT_BUFFER_SIZE);
+    }
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param inputStream The input stream
+     * @param pool The pool that the segments are parsed in
+     * @param bufferSize The initial size of the buffers. A buffer will 
+     * grow if a single line does not fit into the buffer.
+     */
+    PipelinedCoordinateReader(
+        InputStream inputStream, ForkJoinPool pool, int bufferSize)
+    {
+        this.inputStream = inputStream;
+        this.pool = pool;
+        this.bufferSize = bufferSize;
+        this.maxNumBuffers = pool.getParallelism() + ADDITIONAL_BUFFERS;
+        this.freeBuffers = new ArrayBlockingQueue<ByteBuffer>(maxNumBuffers);
+    }
+    
+    /**
+     * Read the header and the size of the matrix, and return the
+     * resulting {@link MatrixDescription}
+     * 
+     * @return The {@link MatrixDescription}
+     * @throws IOException If an IO-error occurs, the header is invalid, 
+     * or the input does not contain a matrix in {@link Format#COORDINATE}
+     * format
+     */
+    MatrixDescription readHeader() throws IOException
+    {
+        MatrixMarketParser parser = new MatrixMarketParser(null);
+        buffer = takeBuffer(Collections.<ForkJoinTask<?>>emptyList());
+        while (true)
+        {
+            int end = fill();
+            if (end == -1)
+            {
+                continue;
+            }
+            buffer.limit(end).position(start);
+            if (parser.parseHeader(buffer))
+            {
+                start = buffer.position();
+                break;
+            }
+            if (endOfStream)
+            {
+                throw new IOException(
+                    "Unexpected end of input: No matrix size found");
+            }
+            start = end;
+        }
+        matrixDescription = parser.getMatrixDescription();
+        if (matrixDescription.getFormat() != Format.COORDINATE)
+        {
+            throw new IOException(
+                "Only COORDINATE format is supported");
+        }
+        return matrixDescription;
+    }
+    
+    /**
+     * Read the body of the matrix, parsing the segments in parallel. The 
+     * given function will be called with the expected number of elements 
+     * of each segment, and has to return a new {@link BatchCallback} for 
+     * the elements of the segment. The 
+     * {@link BatchCallback#startMatrix(MatrixDescription)} method will be 
+     * called on each of these callbacks, but not the
+     * {@link BatchCallback#finishMatrix()} method.
+     * 
+     * @param <T> The type of the callbacks
+     * @param callbackFactory The factory for the callbacks
+     * @return The callbacks of all segments, in the order of the segments
+     * @throws IOException If an IO-error occurs, or the data is invalid
+     */
+    <T extends BatchCallback> List<T> readBody(
+        LongFunction<? extends T> callbackFactory) throws IOException
+    {
+        long startNanos = System.nanoTime();
+        List<ForkJoinTask<T>> tasks = new ArrayList<ForkJoinTask<T>>();
+        List<T> callbacks = new ArrayList<T>();
+        try
+        {
+            while (!failed)
+            {
+                int end = fill();
+                if (end == -1)
+                {
+                    continue;
+                }
+                ByteBuffer segment = buffer;
+                long segmentOffset = offset + start;
+                int segmentStart = start;
+                if (endOfStream)
+                {
+                    buffer = null;
+                }
+                else
+                {
+                    // Carry the incomplete line over into the next buffer
+                    buffer = takeBuffer(tasks);
+                    length = length - end;
+                    if (buffer.capacity() < length)
+                    {
+                        // The current buffer was enlarged for a long line
+                        buffer = ByteBuffer.wrap(
+                            new byte[segment.capacity()]);
+                    }
+                    System.arraycopy(segment.array(), end, 
+                        buffer.array(), 0, length);
+                    offset += end;
+                    start = 0;
+                }
+                if (end == segmentStart)
+                {
+                    freeBuffers.add(segment);
+                }
+                else
+                {
+                    segment.limit(end).position(segmentStart);
+                    T callback = callbackFactory.apply(
+                        estimateNumElements(end - segmentStart));
+                    tasks.add(pool.submit(() -> 
+                    {
+                        parseSegment(segment, segmentOffset, callback);
+                        return callback;
+                    }));
+                }
+                if (endOfStream)
+                {
+                    break;
+                }
+            }
+            for (ForkJoinTask<T> task : tasks)
+            {
+                callbacks.add(task.get());
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading", e);
+        }
+        catch (ExecutionException e)
+        {
+            // The pool may wrap the IOException from the segment into
+            // one or more RuntimeExceptions
+            Throwable cause = e.getCause();
+            while (cause != null)
+            {
+                if (cause instanceof IOException)
+                {
+                    throw new IOException(cause.getMessage(), cause);
+                }
+                cause = cause.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+        finally
+        {
+            for (ForkJoinTask<T> task : tasks)
+            {
+                task.cancel(true);
+            }
+        }
+        ReadInstrumentation.phaseFinished(ReadPhase.BODY, numBytes.sum(), 
+            numLines.sum(), numCommentLines.sum(), numEntries.sum(), 
+            startNanos);
+        return callbacks;
+    }
+    
+    /**
+     * Parse the given segment, and pass the elements to the given 
+     * callback. The segment will be returned to the ring afterwards.
+     * 
+     * @param segment The segment
+     * @param segmentOffset The offset of the segment in the stream
+     * @param callback The {@link BatchCallback}
+     * @throws IOException If the data is invalid
+     */
+    private void parseSegment(ByteBuffer segment, long segmentOffset, 
+        BatchCallback callback) throws IOException
+    {
+        try
+        {
+            callback.startMatrix(matrixDescription);
+            MatrixMarketParser parser = new MatrixMarketParser(
+                callback, matrixDescription, segmentOffset);
+            parser.parse(segment);
+            parser.flush();
+            numBytes.add(segment.limit() - segment.position());
+            numLines.add(parser.getNumLines());
+            numCommentLines.add(parser.getNumCommentLines());
+            numEntries.add(parser.getNumEntries());
+        }
+        catch (IOException | RuntimeException e)
+        {
+            failed = true;
+            throw e;
+        }
+        finally
+        {
+            segment.clear();
+            freeBuffers.add(segment);
+        }
+    }
+    
+    /**
+     * Returns the expected number of elements in a segment with the 
+     * given size, based on the segments that have been parsed until 
+     * now. If no segments have been parsed yet, then it is assumed 
+     * that each line contains at least 8 bytes.
+     * 
+     * @param segmentSize The size of the segment
+     * @return The expected number of elements
+     */
+    private long estimateNumElements(int segmentSize)
+    {
+        long parsedBytes = numBytes.sum();
+        long parsedEntries = numEntries.sum();
+        if (parsedBytes == 0 || parsedEntries == 0)
+        {
+            return 16 + segmentSize / 8;
+        }
+        return 16 + (long) (1.05 * segmentSize * parsedEntries / parsedBytes);
+    }
+    
+    /**
+     * Fill the remaining part of the current buffer from the input 
+     * stream, and return the position after the last line terminator 
+     * in the unprocessed part of the buffer, or the end of the data 
+     * if the end of the stream was reached.<br>
+     * <br>
+     * If the unprocessed part of a full buffer does not contain a line 
+     * terminator, then it is moved to the start of the buffer, or the 
+     * buffer is enlarged, and -1 is returned.
+     * 
+     * @return The end of the complete lines, or -1
+     * @throws IOException If an IO-error occurs
+     */
+    private int fill() throws IOException
+    {
+        byte array[] = buffer.array();
+        while (length < array.length && !endOfStream)
+        {
+            int read = inputStream.read(array, length, array.length - length);
+            if (read < 0)
+            {
+                endOfStream = true;
+                break;
+            }
+            length += read;
+        }
+        if (endOfStream)
+        {
+            return length;
+        }
+        buffer.clear();
+        int end = Tokenizer.findLastLineEnd(buffer, start, length);
+        if (end != -1)
+        {
+            return end;
+        }
+        if (start > 0)
+        {
+            System.arraycopy(array, start, array, 0, length - start);
+            length -= start;
+            offset += start;
+            start = 0;
+        }
+        else
+        {
+            // The buffer does not contain a single complete line
+            byte newArray[] = new byte[array.length * 2];
+            System.arraycopy(array, 0, newArray, 0, length);
+            buffer = ByteBuffer.wrap(newArray);
+        }
+        return -1;
+    }
+    
+    /**
+     * Take a buffer from the ring, allocating a new buffer if the ring
+     * is not full yet, or waiting until a buffer is returned.<br>
+     * <br>
+     * The waiting is done by joining the oldest parsing task that has 
+     * not been joined yet. Each task returns its buffer before it 
+     * completes. Joining the task helps to execute the pending tasks 
+     * when the calling thread is a worker of the pool, so that the 
+     * reading does not block a thread that the parsing depends on.
+     * 
+     * @param tasks The parsing tasks that have been submitted
+     * @return The buffer
+     * @throws IOException If the thread is interrupted while waiting
+     */
+    private ByteBuffer takeBuffer(List<? extends ForkJoinTask<?>> tasks) 
+        throws IOException
+    {
+        while (true)
+        {
+            ByteBuffer free = freeBuffers.poll();
+            if (free != null)
+            {
+                return free;
+            }
+            if (numBuffers < maxNumBuffers)
+            {
+                numBuffers++;
+                return ByteBuffer.wrap(new byte[bufferSize]);
+            }
+            if (numJoinedTasks >= tasks.size())
+            {
+                break;
+            }
+            tasks.get(numJoinedTasks).quietlyJoin();
+            numJoinedTasks++;
+        }
+        try
+        {
+            return freeBuffers.take();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading", e);
+        }
+    }
+}
@@ -1,71 +1,71 @@
-/*
- * MatrixMarketReader - a simple reader for MatrixMarket files
- *
- * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
- *
- * Permission is hereby granted, free of charge, to any person
- * obtaining a copy of this software and associated documentation
- * files (the "Software"), to deal in the Software without
- * restriction, including without limitation the rights to use,
- * copy, modify, merge, publish, distribute, sublicense, and/or sell
- * copies of the Software, and to permit persons to whom the
- * Software is furnished to do so, subject to the following
- * conditions:
- *
- * The above copyright notice and this permission notice shall be
- * included in all copies or substantial portions of the Software.
- *
- * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
- * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
- * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
- * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
- * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
- * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
- * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
- * OTHER DEALINGS IN THE SOFTWARE.
- */
-package de.javagl.matrixmarketreader;
-
-/**
- * Implementation of a {@link Callback} that prints the read elements
- */
-public final class PrintingCallback implements Callback
-{
-    /**
-     * The {@link MatrixDescription}
-     */
-    private MatrixDescription matrixDescription;
-    
-    @Override
-    public void startMatrix(MatrixDescription matrixDescription)
-    {
-        System.out.println("startMatrix " + matrixDescription);
-        this.matrixDescription = matrixDescription;
-    }
-
-    @Override
-    public void setMatrixElement(
-        int rowIndexZeroBased,
-        int columnIndexZeroBased, 
-        double value0, double value1)
-    {
-        System.out.println("setMatrixElement " 
-            + rowIndexZeroBased + ", "
-            + columnIndexZeroBased + " : " 
-            + value0 + ", " + value1);
-    }
-
-    @Override
-    public void finishMatrix()
-    {
-        System.out.println("finishMatrix");
-    }
-    
-    @Override
-    public MatrixDescription getMatrixDescription()
-    {
-        return matrixDescription;
-    }
-    
-    
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+/**
+ * Implementation of a {@link Callback} that prints the read elements
+ */
+public final class PrintingCallback implements Callback
+{
+    /**
+     * The {@link MatrixDescription}
+     */
+    private MatrixDescription matrixDescription;
+    
+    @Override
+    public void startMatrix(MatrixDescription matrixDescription)
+    {
+        System.out.println("startMatrix " + matrixDescription);
+        this.matrixDescription = matrixDescription;
+    }
+
+    @Override
+    public void setMatrixElement(
+        int rowIndexZeroBased,
+        int columnIndexZeroBased, 
+        double value0, double value1)
+    {
+        System.out.println("setMatrixElement " 
+            + rowIndexZeroBased + ", "
+            + columnIndexZeroBased + " : " 
+            + value0 + ", " + value1);
+    }
+
+    @Override
+    public void finishMatrix()
+    {
+        System.out.println("finishMatrix");
+    }
+    
+    @Override
+    public MatrixDescription getMatrixDescription()
+    {
+        return matrixDescription;
+    }
+    
+    
 }
\ No newline at end of file
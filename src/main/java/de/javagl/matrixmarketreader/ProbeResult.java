@@ -0,0 +1,110 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+/**
+ * Simple representation of the result of probing a MatrixMarket file 
+ * with {@link MatrixMarketProbe}. This contains the 
+ * {@link MatrixDescription} from the header, and estimates that have
+ * been derived from it and from samples of the body of the file. This
+ * class does not offer any form of encapsulation.<br>
+ * <br>
+ * The memory estimates are the sizes of the arrays of the respective
+ * classes, in bytes, without the overhead of the objects. While reading
+ * a sparse matrix, the elements are first collected in coordinate 
+ * arrays, so the peak memory consumption of reading a {@link CSR} is 
+ * the sum of the {@link #estimatedCOOBytes} and the 
+ * {@link #estimatedCSRBytes}.
+ */
+public class ProbeResult
+{
+    /**
+     * The {@link MatrixDescription} from the header of the file
+     */
+    public MatrixDescription matrixDescription;
+    
+    /**
+     * The number of elements that have been sampled from the body of 
+     * the file. If this is equal to the number of non-zero elements of 
+     * the {@link #matrixDescription}, then all elements have been 
+     * examined, and the estimates are exact. If this is 0, then the
+     * estimates are only based on the header.
+     */
+    public long numSampledElements;
+    
+    /**
+     * The estimated number of elements after the elements of matrices 
+     * that are not {@link Symmetry#GENERAL} have been mirrored. This is 
+     * the number of elements of a {@link CSR} that is read with
+     * {@link MatrixMarketCSR#readCSR(java.nio.file.Path)}.
+     */
+    public long estimatedNumElements;
+    
+    /**
+     * The estimated size of a {@link CSR}, in bytes
+     */
+    public long estimatedCSRBytes;
+    
+    /**
+     * The estimated size of a {@link FloatCSR}, in bytes
+     */
+    public long estimatedFloatCSRBytes;
+    
+    /**
+     * The estimated size of a {@link CSR} that only contains the stored 
+     * elements, as read with 
+     * {@link MatrixMarketCSR#readTriangularCSR(java.nio.file.Path)}, 
+     * in bytes
+     */
+    public long estimatedTriangularCSRBytes;
+    
+    /**
+     * The estimated size of a {@link COO}, in bytes
+     */
+    public long estimatedCOOBytes;
+    
+    /**
+     * The size of a {@link Dense} matrix, in bytes
+     */
+    public long estimatedDenseBytes;
+    
+    /**
+     * Whether the sampled elements appeared in ascending order of their
+     * rows. This is a prerequisite for reading the file with
+     * {@link MatrixMarketCSR#readRowBlocks(java.nio.file.Path, int)}.
+     * This is <code>false</code> if no elements have been sampled.
+     */
+    public boolean sortedByRows;
+    
+    /**
+     * Whether the sampled elements appeared in ascending order of their
+     * columns. This is always <code>true</code> for the 
+     * {@link Format#ARRAY} format. Otherwise, it is <code>false</code> 
+     * if no elements have been sampled.
+     */
+    public boolean sortedByColumns;
+}
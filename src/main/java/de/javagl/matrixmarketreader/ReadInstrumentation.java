@@ -0,0 +1,152 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Methods for reporting the phases of reading a matrix to the registered
+ * {@link ReadListener} instances.<br>
+ * <br>
+ * If the JDK Flight Recorder is available, then the phases are also 
+ * emitted as JFR events, which are recorded when a recording is active
+ * and the events are enabled in it. The events are implemented in a 
+ * separate class that is only loaded via reflection, so that this 
+ * library can still be used on Java versions that do not support JFR,
+ * and be compiled without this class.
+ */
+final class ReadInstrumentation
+{
+    /**
+     * The name of the class of the listener that emits JFR events
+     */
+    private static final String JFR_LISTENER_CLASS_NAME = 
+        "de.javagl.matrixmarketreader.JfrReadListener";
+    
+    /**
+     * The listener that emits JFR events, or <code>null</code> if JFR is
+     * not available
+     */
+    private static final ReadListener JFR_LISTENER = createJfrListener();
+    
+    /**
+     * The registered listeners
+     */
+    private static final List<ReadListener> LISTENERS = 
+        new CopyOnWriteArrayList<ReadListener>();
+    
+    /**
+     * Add the given listener
+     * 
+     * @param listener The listener
+     */
+    static void addListener(ReadListener listener)
+    {
+        LISTENERS.add(listener);
+    }
+    
+    /**
+     * Remove the given listener
+     * 
+     * @param listener The listener
+     */
+    static void removeListener(ReadListener listener)
+    {
+        LISTENERS.remove(listener);
+    }
+    
+    /**
+     * Report the given phase to all listeners
+     * 
+     * @param phase The {@link ReadPhase}
+     * @param bytes The number of bytes
+     * @param lines The number of lines
+     * @param commentLines The number of comment lines
+     * @param entries The number of entries
+     * @param startNanos The value of <code>System.nanoTime()</code> when
+     * the phase started
+     */
+    static void phaseFinished(ReadPhase phase, long bytes, long lines, 
+        long commentLines, long entries, long startNanos)
+    {
+        long durationNanos = System.nanoTime() - startNanos;
+        report(phase, bytes, lines, commentLines, entries, durationNanos);
+    }
+    
+    /**
+     * Report the given phase with the given duration to all listeners
+     * 
+     * @param phase The {@link ReadPhase}
+     * @param bytes The number of bytes
+     * @param lines The number of lines
+     * @param commentLines The number of comment lines
+     * @param entries The number of entries
+     * @param durationNanos The duration, in nanoseconds
+     */
+    static void report(ReadPhase phase, long bytes, long lines, 
+        long commentLines, long entries, long durationNanos)
+    {
+        if (JFR_LISTENER != null)
+        {
+            JFR_LISTENER.phaseFinished(phase, bytes, lines, 
+                commentLines, entries, durationNanos);
+        }
+        for (ReadListener listener : LISTENERS)
+        {
+            listener.phaseFinished(phase, bytes, lines, 
+                commentLines, entries, durationNanos);
+        }
+    }
+    
+    /**
+     * Create the listener that emits JFR events, if JFR is available
+     * 
+     * @return The listener, or <code>null</code>
+     */
+    private static ReadListener createJfrListener()
+    {
+        try
+        {
+            Class.forName("jdk.jfr.Event");
+            Class<?> c = Class.forName(JFR_LISTENER_CLASS_NAME);
+            return (ReadListener) c.getDeclaredConstructor().newInstance();
+        }
+        catch (ReflectiveOperationException | LinkageError e)
+        {
+            return null;
+        }
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private ReadInstrumentation()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+/**
+ * Interface for classes that want to be informed about the phases of
+ * reading matrices. Listeners can be added with
+ * {@link MatrixMarketReader#addReadListener(ReadListener)}.<br>
+ * <br>
+ * The listener is called on the thread that finished the phase, which
+ * may be a thread of a <code>ForkJoinPool</code>, and may be called by
+ * multiple threads concurrently. Implementations should return quickly, 
+ * and may not throw exceptions. {@link ReadMetrics} is an implementation
+ * that accumulates the values.
+ */
+public interface ReadListener
+{
+    /**
+     * Will be called when the given {@link ReadPhase} was finished. 
+     * Values that do not apply to the phase are 0.
+     * 
+     * @param phase The {@link ReadPhase}
+     * @param bytes The number of bytes that have been processed
+     * @param lines The number of lines that have been processed
+     * @param commentLines The number of comment lines among these lines
+     * @param entries The number of entries that have been processed
+     * @param durationNanos The duration of the phase, in nanoseconds
+     */
+    void phaseFinished(ReadPhase phase, long bytes, long lines, 
+        long commentLines, long entries, long durationNanos);
+}
@@ -0,0 +1,255 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Implementation of a {@link ReadListener} that accumulates the values
+ * of all phases, for each {@link ReadPhase}. The counters may be queried 
+ * while matrices are read, for example, to periodically export them to 
+ * a monitoring system:
+ * <pre><code>
+ * ReadMetrics metrics = new ReadMetrics();
+ * MatrixMarketReader.addReadListener(metrics);
+ * ...
+ * double rate = metrics.getBytesPerSecond(ReadPhase.BODY);
+ * </code></pre>
+ */
+public final class ReadMetrics implements ReadListener
+{
+    /**
+     * The counters for each {@link ReadPhase}
+     */
+    private final Map<ReadPhase, Counters> counters;
+    
+    /**
+     * Creates a new instance with all counters being 0
+     */
+    public ReadMetrics()
+    {
+        counters = new EnumMap<ReadPhase, Counters>(ReadPhase.class);
+        for (ReadPhase phase : ReadPhase.values())
+        {
+            counters.put(phase, new Counters());
+        }
+    }
+    
+    @Override
+    public void phaseFinished(ReadPhase phase, long bytes, long lines, 
+        long commentLines, long entries, long durationNanos)
+    {
+        Counters c = counters.get(phase);
+        c.count.increment();
+        c.bytes.add(bytes);
+        c.lines.add(lines);
+        c.commentLines.add(commentLines);
+        c.entries.add(entries);
+        c.durationNanos.add(durationNanos);
+    }
+    
+    /**
+     * Returns how often the given phase was finished
+     * 
+     * @param phase The {@link ReadPhase}
+     * @return The count
+     */
+    public long getCount(ReadPhase phase)
+    {
+        return counters.get(phase).count.sum();
+    }
+    
+    /**
+     * Returns the total number of bytes of the given phase
+     * 
+     * @param phase The {@link ReadPhase}
+     * @return The number of bytes
+     */
+    public long getBytes(ReadPhase phase)
+    {
+        return counters.get(phase).bytes.sum();
+    }
+    
+    /**
+     * Returns the total number of lines of the given phase
+     * 
+     * @param phase The {@link ReadPhase}
+     * @return The number of lines
+     */
+    public long getLines(ReadPhase phase)
+    {
+        return counters.get(phase).lines.sum();
+    }
+    
+    /**
+     * Returns the total number of comment lines of the given phase
+     * 
+     * @param phase The {@link ReadPhase}
+     * @return The number of comment lines
+     */
+    public long getCommentLines(ReadPhase phase)
+    {
+        return counters.get(phase).commentLines.sum();
+    }
+    
+    /**
+     * Returns the total number of entries of the given phase
+     * 
+     * @param phase The {@link ReadPhase}
+     * @return The number of entries
+     */
+    public long getEntries(ReadPhase phase)
+    {
+        return counters.get(phase).entries.sum();
+    }
+    
+    /**
+     * Returns the total duration of the given phase, in nanoseconds
+     * 
+     * @param phase The {@link ReadPhase}
+     * @return The duration
+     */
+    public long getDurationNanos(ReadPhase phase)
+    {
+        return counters.get(phase).durationNanos.sum();
+    }
+    
+    /**
+     * Returns the average number of bytes per second of the given phase,
+     * or 0 if the phase did not take any time yet
+     * 
+     * @param phase The {@link ReadPhase}
+     * @return The throughput
+     */
+    public double getBytesPerSecond(ReadPhase phase)
+    {
+        return perSecond(getBytes(phase), getDurationNanos(phase));
+    }
+    
+    /**
+     * Returns the average number of entries per second of the given 
+     * phase, or 0 if the phase did not take any time yet
+     * 
+     * @param phase The {@link ReadPhase}
+     * @return The throughput
+     */
+    public double getEntriesPerSecond(ReadPhase phase)
+    {
+        return perSecond(getEntries(phase), getDurationNanos(phase));
+    }
+    
+    /**
+     * Reset all counters to 0. If phases are finished concurrently, 
+     * then their values may be partially retained.
+     */
+    public void reset()
+    {
+        for (Counters c : counters.values())
+        {
+            c.count.reset();
+            c.bytes.reset();
+            c.lines.reset();
+            c.commentLines.reset();
+            c.entries.reset();
+            c.durationNanos.reset();
+        }
+    }
+    
+    /**
+     * Returns the given amount per second
+     * 
+     * @param amount The amount
+     * @param durationNanos The duration, in nanoseconds
+     * @return The amount per second
+     */
+    private static double perSecond(long amount, long durationNanos)
+    {
+        if (durationNanos <= 0)
+        {
+            return 0.0;
+        }
+        return amount * 1e9 / durationNanos;
+    }
+    
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder("ReadMetrics[");
+        for (ReadPhase phase : ReadPhase.values())
+        {
+            if (phase.ordinal() > 0)
+            {
+                sb.append(", ");
+            }
+            sb.append(String.format(Locale.ENGLISH, 
+                "%s: count=%d, bytes=%d, entries=%d, ms=%.3f", 
+                phase, getCount(phase), getBytes(phase), getEntries(phase),
+                getDurationNanos(phase) / 1e6));
+        }
+        sb.append("]");
+        return sb.toString();
+    }
+    
+    /**
+     * The counters for a single {@link ReadPhase}
+     */
+    private static class Counters
+    {
+        /**
+         * The number of times that the phase was finished
+         */
+        final LongAdder count = new LongAdder();
+        
+        /**
+         * The number of bytes
+         */
+        final LongAdder bytes = new LongAdder();
+        
+        /**
+         * The number of lines
+         */
+        final LongAdder lines = new LongAdder();
+        
+        /**
+         * The number of comment lines
+         */
+        final LongAdder commentLines = new LongAdder();
+        
+        /**
+         * The number of entries
+         */
+        final LongAdder entries = new LongAdder();
+        
+        /**
+         * The duration, in nanoseconds
+         */
+        final LongAdder durationNanos = new LongAdder();
+    }
+}
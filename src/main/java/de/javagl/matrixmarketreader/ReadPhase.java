@@ -0,0 +1,58 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+/**
+ * Enumeration of the phases of reading a matrix that are reported to 
+ * a {@link ReadListener}
+ */
+public enum ReadPhase
+{
+    /**
+     * Parsing the header and the size line
+     */
+    HEADER,
+    
+    /**
+     * Parsing the body, including the time that is spent in the 
+     * callback that receives the elements
+     */
+    BODY,
+    
+    /**
+     * Mirroring the elements of a matrix that is not 
+     * {@link Symmetry#GENERAL}. When this is done while the body is
+     * parsed, then the time is also contained in the {@link #BODY}
+     * phase.
+     */
+    SYMMETRY_EXPANSION,
+    
+    /**
+     * Building a {@link CSR} or {@link FloatCSR} from the elements
+     */
+    CSR_BUILD
+}
@@ -0,0 +1,78 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+/**
+ * Simple representation of a block of consecutive rows of a matrix, in 
+ * CSR format. This is only intended as the element type of a 
+ * {@link RowBlockIterator}, and thus, does not offer any form of 
+ * encapsulation.<br>
+ * <br>
+ * The arrays of a block are reused for the following blocks, and may be
+ * larger than required for the current block. Only the first 
+ * <code>numRows+1</code> row pointers and the first 
+ * <code>numEntries</code> column indices and values are valid.
+ */
+public class RowBlock
+{
+    /**
+     * The (zero-based) index of the first row of the block in the matrix
+     */
+    public int firstRow;
+    
+    /**
+     * The number of rows of the block
+     */
+    public int numRows;
+    
+    /**
+     * The number of columns of the matrix
+     */
+    public int numCols;
+    
+    /**
+     * The number of entries in the block
+     */
+    public int numEntries;
+    
+    /**
+     * The values. For {@link Field#COMPLEX} matrices, these are the 
+     * interleaved real and imaginary parts. This is <code>null</code> 
+     * for {@link Field#PATTERN} matrices.
+     */
+    public double values[];
+    
+    /**
+     * The column indices
+     */
+    public int columnIndices[];
+    
+    /**
+     * The row pointer indices, relative to the start of the block
+     */
+    public int rowPointers[];
+}
@@ -0,0 +1,509 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An iterator over the {@link RowBlock}s of a MatrixMarket file, where 
+ * the entries are sorted by row.<br>
+ * <br>
+ * The input is parsed incrementally, in small segments, while the 
+ * blocks are requested. Each block contains complete rows, and at most 
+ * the maximum number of entries that was given at construction time. 
+ * Only if a single row contains more entries than this, then the block
+ * will consist only of this row. The number of rows of each block is 
+ * limited by the maximum number of entries as well. So the memory 
+ * requirements do not depend on the size of the matrix, and the 
+ * {@link RowBlock} (including its arrays) is reused for all blocks.<br>
+ * <br>
+ * The blocks cover all rows of the matrix, in ascending order, including
+ * empty rows. If the input contains a row that is smaller than the row 
+ * of a previous entry, or the matrix is not a {@link Symmetry#GENERAL} 
+ * matrix in the {@link Format#COORDINATE} format, then an 
+ * <code>UncheckedIOException</code> is thrown. 
+ */
+public final class RowBlockIterator implements Iterator<RowBlock>, Closeable
+{
+    /**
+     * The size of the segments that the input is read in
+     */
+    private static final int SEGMENT_SIZE = 1 << 16;
+    
+    /**
+     * The input stream
+     */
+    private final InputStream inputStream;
+    
+    /**
+     * The source for the segments of the input
+     */
+    private final SegmentSource segmentSource;
+    
+    /**
+     * The parser
+     */
+    private final MatrixMarketParser parser;
+    
+    /**
+     * The entries that have been parsed, but not yet been put into a 
+     * block
+     */
+    private final PendingEntries pending;
+    
+    /**
+     * The {@link MatrixDescription}
+     */
+    private final MatrixDescription matrixDescription;
+    
+    /**
+     * Whether the matrix is complex
+     */
+    private final boolean complex;
+    
+    /**
+     * The maximum number of entries and rows in a block, unless a 
+     * single row contains more entries
+     */
+    private final int maxNumEntries;
+    
+    /**
+     * The block that is filled and returned
+     */
+    private final RowBlock block;
+    
+    /**
+     * The row that the next block starts with
+     */
+    private int nextRow;
+    
+    /**
+     * The row that the entries are currently added to
+     */
+    private int row;
+    
+    /**
+     * The start of the entries at the end of the current block that 
+     * belong to an incomplete row, and have to be carried over into
+     * the next block
+     */
+    private int carryStart;
+    
+    /**
+     * The end of the entries that have to be carried over into the
+     * next block
+     */
+    private int carryEnd;
+    
+    /**
+     * Whether the end of the input was reached
+     */
+    private boolean endOfInput;
+    
+    /**
+     * Creates a new instance. The header of the input will be read 
+     * immediately.
+     * 
+     * @param inputStream The input stream, which will be closed when 
+     * this iterator is closed
+     * @param maxNumEntries The maximum number of entries in a block
+     * @throws IOException If an IO-error occurs, or the matrix can not
+     * be read in blocks of rows
+     * @throws IllegalArgumentException If the maximum number of entries
+     * is not positive
+     */
+    RowBlockIterator(InputStream inputStream, int maxNumEntries) 
+        throws IOException
+    {
+        if (maxNumEntries <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The maximum number of entries must be positive, but is "
+                + maxNumEntries);
+        }
+        this.inputStream = inputStream;
+        this.segmentSource = new StreamSegmentSource(
+            GzipInputStreams.decompressIfNecessary(inputStream), 
+            SEGMENT_SIZE);
+        this.pending = new PendingEntries();
+        this.parser = new MatrixMarketParser(pending);
+        this.maxNumEntries = maxNumEntries;
+        while (pending.matrixDescription == null)
+        {
+            parseNextSegment();
+        }
+        this.matrixDescription = pending.matrixDescription;
+        if (matrixDescription.getFormat() != Format.COORDINATE ||
+            matrixDescription.getSymmetry() != Symmetry.GENERAL)
+        {
+            throw new IOException(
+                "Only general matrices in coordinate format can be read "
+                + "in blocks of rows, but found " + matrixDescription);
+        }
+        this.complex = matrixDescription.getField() == Field.COMPLEX;
+        
+        int numRows = matrixDescription.getNumRows();
+        long numNonZeros = matrixDescription.getNumNonZerosLong();
+        int capacity = (int) Math.max(1, Math.min(numNonZeros, maxNumEntries));
+        block = new RowBlock();
+        block.numCols = matrixDescription.getNumCols();
+        block.rowPointers = new int[Math.min(numRows, maxNumEntries) + 1];
+        block.columnIndices = new int[capacity];
+        if (matrixDescription.getField() != Field.PATTERN)
+        {
+            block.values = new double[complex ? capacity * 2 : capacity];
+        }
+    }
+    
+    /**
+     * Returns the {@link MatrixDescription} of the matrix
+     * 
+     * @return The {@link MatrixDescription}
+     */
+    public MatrixDescription getMatrixDescription()
+    {
+        return matrixDescription;
+    }
+    
+    @Override
+    public boolean hasNext()
+    {
+        return nextRow < matrixDescription.getNumRows();
+    }
+    
+    /**
+     * Returns the next block. The returned {@link RowBlock} is the same 
+     * for all calls, and its contents are only valid until the next 
+     * call to this method.
+     * 
+     * @return The next block
+     * @throws NoSuchElementException If there are no more blocks
+     * @throws UncheckedIOException If an IO-error occurs, or the entries
+     * are not sorted by row
+     */
+    @Override
+    public RowBlock next()
+    {
+        if (!hasNext())
+        {
+            throw new NoSuchElementException("No more blocks");
+        }
+        try
+        {
+            fillBlock();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        return block;
+    }
+    
+    /**
+     * Fill the block with the next rows
+     * 
+     * @throws IOException If an IO-error occurs, or the entries are not
+     * sorted by row
+     */
+    private void fillBlock() throws IOException
+    {
+        int firstRow = nextRow;
+        int count = carryEnd - carryStart;
+        moveEntries(carryStart, carryEnd, 0);
+        carryStart = 0;
+        carryEnd = 0;
+        block.firstRow = firstRow;
+        block.rowPointers[0] = 0;
+        row = firstRow;
+        while (true)
+        {
+            if (pending.position == pending.count)
+            {
+                if (endOfInput)
+                {
+                    int endRow = (int) Math.min(
+                        matrixDescription.getNumRows(), 
+                        (long) firstRow + maxNumEntries);
+                    finishBlock(endRow, count);
+                    return;
+                }
+                parseNextSegment();
+                continue;
+            }
+            int p = pending.position;
+            int r = pending.rowIndices[p];
+            if (r < row)
+            {
+                throw new IOException(
+                    "The entries are not sorted by row: Found row " 
+                    + (r + 1) + " after row " + (row + 1));
+            }
+            while (r > row)
+            {
+                if (row + 1 - firstRow == maxNumEntries)
+                {
+                    finishBlock(row + 1, count);
+                    return;
+                }
+                row++;
+                block.rowPointers[row - firstRow] = count;
+            }
+            if (count >= maxNumEntries)
+            {
+                int rowStart = block.rowPointers[row - firstRow];
+                if (rowStart > 0)
+                {
+                    // Carry the entries of the current row over into 
+                    // the next block
+                    carryStart = rowStart;
+                    carryEnd = count;
+                    finishBlock(row, rowStart);
+                    return;
+                }
+            }
+            if (count == block.columnIndices.length)
+            {
+                // The row alone contains more entries than the maximum
+                enlarge();
+            }
+            block.columnIndices[count] = pending.columnIndices[p];
+            if (complex)
+            {
+                block.values[count + count + 0] = pending.values[p + p + 0];
+                block.values[count + count + 1] = pending.values[p + p + 1];
+            }
+            else if (block.values != null)
+            {
+                block.values[count] = pending.values[p];
+            }
+            count++;
+            pending.position++;
+        }
+    }
+    
+    /**
+     * Finish the current block, so that it ends before the given row.
+     * The row pointers of all rows after the current row will be set
+     * to the given count.
+     * 
+     * @param endRow The end row, exclusive
+     * @param count The number of entries in the block
+     */
+    private void finishBlock(int endRow, int count)
+    {
+        int firstRow = block.firstRow;
+        for (int r = row + 1; r <= endRow; r++)
+        {
+            block.rowPointers[r - firstRow] = count;
+        }
+        block.numRows = endRow - firstRow;
+        block.numEntries = count;
+        nextRow = endRow;
+    }
+    
+    /**
+     * Move the specified entries of the block to the given position
+     * 
+     * @param start The start index, inclusive
+     * @param end The end index, exclusive
+     * @param target The target index
+     */
+    private void moveEntries(int start, int end, int target)
+    {
+        int n = end - start;
+        System.arraycopy(
+            block.columnIndices, start, block.columnIndices, target, n);
+        if (complex)
+        {
+            System.arraycopy(block.values, start + start, 
+                block.values, target + target, n + n);
+        }
+        else if (block.values != null)
+        {
+            System.arraycopy(block.values, start, block.values, target, n);
+        }
+    }
+    
+    /**
+     * Double the capacity of the arrays of the block
+     */
+    private void enlarge()
+    {
+        int capacity = block.columnIndices.length;
+        if (capacity > Integer.MAX_VALUE / 4)
+        {
+            throw new IllegalArgumentException(
+                "A single row has too many entries: " + capacity);
+        }
+        int newCapacity = capacity * 2;
+        block.columnIndices = Arrays.copyOf(block.columnIndices, newCapacity);
+        if (block.values != null)
+        {
+            block.values = Arrays.copyOf(block.values, 
+                complex ? newCapacity * 2 : newCapacity);
+        }
+    }
+    
+    /**
+     * Parse the next segment of the input, to obtain more pending 
+     * entries. If the end of the input is reached, then the parser
+     * will be finished.
+     * 
+     * @throws IOException If an IO-error occurs, or the input is invalid
+     */
+    private void parseNextSegment() throws IOException
+    {
+        pending.compact();
+        ByteBuffer segment = segmentSource.nextSegment();
+        if (segment == null)
+        {
+            endOfInput = true;
+            parser.finish();
+            return;
+        }
+        parser.parse(segment);
+        parser.flush();
+    }
+    
+    @Override
+    public void close() throws IOException
+    {
+        inputStream.close();
+    }
+    
+    /**
+     * Implementation of a {@link BatchCallback} that stores the entries
+     * that have been parsed, until they are put into a block
+     */
+    private static class PendingEntries implements BatchCallback
+    {
+        /**
+         * The {@link MatrixDescription}, which is <code>null</code> until
+         * the header was parsed
+         */
+        private MatrixDescription matrixDescription;
+        
+        /**
+         * The number of values for each entry: 2 for complex matrices,
+         * 0 for pattern matrices, and 1 otherwise
+         */
+        private int valuesPerEntry;
+        
+        /**
+         * The row indices
+         */
+        private int rowIndices[] = new int[0];
+        
+        /**
+         * The column indices
+         */
+        private int columnIndices[] = new int[0];
+        
+        /**
+         * The values
+         */
+        private double values[] = new double[0];
+        
+        /**
+         * The number of entries
+         */
+        private int count;
+        
+        /**
+         * The index of the next entry that has to be put into a block
+         */
+        private int position;
+        
+        @Override
+        public void startMatrix(MatrixDescription matrixDescription)
+        {
+            this.matrixDescription = matrixDescription;
+            Field field = matrixDescription.getField();
+            if (field == Field.COMPLEX)
+            {
+                valuesPerEntry = 2;
+            }
+            else if (field == Field.PATTERN)
+            {
+                valuesPerEntry = 0;
+            }
+            else
+            {
+                valuesPerEntry = 1;
+            }
+        }
+
+        @Override
+        public void setMatrixElements(int rowIndicesZeroBased[],
+            int columnIndicesZeroBased[], double values[], int count)
+        {
+            int newCount = this.count + count;
+            if (newCount > rowIndices.length)
+            {
+                int newLength = Math.max(newCount, rowIndices.length * 2);
+                rowIndices = Arrays.copyOf(rowIndices, newLength);
+                columnIndices = Arrays.copyOf(columnIndices, newLength);
+                this.values = Arrays.copyOf(
+                    this.values, newLength * valuesPerEntry);
+            }
+            System.arraycopy(rowIndicesZeroBased, 0, 
+                rowIndices, this.count, count);
+            System.arraycopy(columnIndicesZeroBased, 0, 
+                columnIndices, this.count, count);
+            System.arraycopy(values, 0, this.values, 
+                this.count * valuesPerEntry, count * valuesPerEntry);
+            this.count = newCount;
+        }
+        
+        /**
+         * Remove the entries that already have been put into a block
+         */
+        void compact()
+        {
+            int n = count - position;
+            System.arraycopy(rowIndices, position, rowIndices, 0, n);
+            System.arraycopy(columnIndices, position, columnIndices, 0, n);
+            System.arraycopy(values, position * valuesPerEntry, 
+                values, 0, n * valuesPerEntry);
+            count = n;
+            position = 0;
+        }
+
+        @Override
+        public void finishMatrix()
+        {
+            // Nothing to do here
+        }
+    }
+}
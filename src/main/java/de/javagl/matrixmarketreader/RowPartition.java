@@ -0,0 +1,164 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A partition of the rows of a matrix in CSR format into ranges of
+ * consecutive rows, for the parallel kernels in {@link SpMV}. The
+ * partition only depends on the row pointers of the matrix, and can be
+ * reused for all multiplications with the same matrix.<br>
+ * <br>
+ * The parallel methods that accumulate partial result vectors (for the
+ * transposed matrix, or for matrices that only store one triangle) 
+ * keep these vectors in the partition, so that they are only allocated
+ * once. These methods are executed one after another when they are
+ * called with the same partition from multiple threads.<br>
+ * <br>
+ * This is a simple data class, and does not offer any form of 
+ * encapsulation.
+ */
+public class RowPartition
+{
+    /**
+     * The number of parts of the default partition, per thread
+     */
+    private static final int PARTS_PER_THREAD = 2;
+    
+    /**
+     * The number of rows of the matrix
+     */
+    public int numRows;
+    
+    /**
+     * The first row of each part. The element at index <code>i</code>
+     * is the (inclusive) start of part <code>i</code>, and the element 
+     * at index <code>i+1</code> is its (exclusive) end. The last 
+     * element is the number of rows.
+     */
+    public int rowStarts[];
+    
+    /**
+     * The partial result vectors for the <code>double</code> kernels 
+     * of {@link SpMV}, or <code>null</code> if they have not been 
+     * allocated yet. The element at index 0 is always 
+     * <code>null</code>, because the first part uses the output vector.
+     */
+    double doublePartials[][];
+    
+    /**
+     * The partial result vectors for the <code>float</code> kernels 
+     * of {@link SpMV}, or <code>null</code> if they have not been 
+     * allocated yet. The element at index 0 is always 
+     * <code>null</code>, because the first part uses the output vector.
+     */
+    float floatPartials[][];
+    
+    /**
+     * Returns the number of parts
+     * 
+     * @return The number of parts
+     */
+    public int getNumParts()
+    {
+        return rowStarts.length - 1;
+    }
+    
+    /**
+     * Returns the default number of parts, which is suitable for the 
+     * common <code>ForkJoinPool</code>
+     * 
+     * @return The number of parts
+     */
+    static int getDefaultNumParts()
+    {
+        return ForkJoinPool.commonPool().getParallelism() * PARTS_PER_THREAD;
+    }
+    
+    /**
+     * Create a new partition for the given row pointers, where the cost
+     * of each part is balanced. See {@link SpMV#createPartition(CSR, int)}
+     * for details.
+     * 
+     * @param rowPointers The row pointers
+     * @param numRows The number of rows
+     * @param numParts The number of parts
+     * @return The partition
+     * @throws IllegalArgumentException If the number of parts is not 
+     * positive
+     */
+    static RowPartition create(int rowPointers[], int numRows, int numParts)
+    {
+        if (numParts <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The number of parts must be positive, but is " + numParts);
+        }
+        long totalCost = (long) rowPointers[numRows] + numRows;
+        int rowStarts[] = new int[numParts + 1];
+        int row = 0;
+        for (int p = 1; p < numParts; p++)
+        {
+            long targetCost = totalCost * p / numParts;
+            
+            // Find the first row where the cost of the preceding rows
+            // reaches the target cost, and use the previous row if 
+            // its cost is closer to the target cost
+            int low = row;
+            int high = numRows;
+            while (low < high)
+            {
+                int mid = (low + high) >>> 1;
+                if ((long) rowPointers[mid] + mid < targetCost)
+                {
+                    low = mid + 1;
+                }
+                else
+                {
+                    high = mid;
+                }
+            }
+            if (low > row)
+            {
+                long cost = (long) rowPointers[low] + low;
+                long previousCost = (long) rowPointers[low - 1] + low - 1;
+                if (targetCost - previousCost < cost - targetCost)
+                {
+                    low--;
+                }
+            }
+            row = low;
+            rowStarts[p] = row;
+        }
+        rowStarts[numParts] = numRows;
+        RowPartition partition = new RowPartition();
+        partition.numRows = numRows;
+        partition.rowStarts = rowStarts;
+        return partition;
+    }
+}
@@ -0,0 +1,868 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.util.Arrays;
+
+/**
+ * Methods for multiplying a {@link CSR} or a {@link FloatCSR} with a 
+ * vector.<br>
+ * <br>
+ * The methods compute <code>y = A * x</code> or 
+ * <code>y = A<sup>T</sup> * x</code>, where the previous contents of
+ * <code>y</code> are overwritten. {@link Field#PATTERN} matrices (where
+ * the values are <code>null</code>) are treated as if all values were 
+ * <code>1.0</code>. {@link Field#COMPLEX} matrices are not supported.<br>
+ * <br>
+ * If the {@link CSR#symmetry} of a {@link CSR} is not 
+ * {@link Symmetry#GENERAL}, then the {@link CSR} only contains one 
+ * triangle of the matrix, as returned by 
+ * {@link MatrixMarketCSR#readTriangularCSR(java.io.InputStream)}. 
+ * The methods then also apply the mirrored entries, by scattering 
+ * them into the output vector while the stored entries are 
+ * processed. In the parallel methods, this requires temporary memory 
+ * for one vector for each part except for the first one. These vectors
+ * are kept in the {@link RowPartition}, and reused for all 
+ * multiplications with the same partition.<br>
+ * <br>
+ * The parallel methods process ranges of rows that are given by a 
+ * {@link RowPartition} in the common <code>ForkJoinPool</code>. The 
+ * partition balances the number of entries (and rows) of each range, 
+ * so that the work is evenly distributed, even when some rows contain
+ * many more entries than others. A partition may be created once with 
+ * {@link #createPartition(CSR, int)}, and reused for all 
+ * multiplications with the same matrix.
+ */
+public class SpMV
+{
+    /**
+     * Create a {@link RowPartition} for the given matrix, with a number
+     * of parts that is suitable for the common <code>ForkJoinPool</code>
+     * 
+     * @param a The matrix
+     * @return The {@link RowPartition}
+     */
+    public static RowPartition createPartition(CSR a)
+    {
+        return createPartition(a, RowPartition.getDefaultNumParts());
+    }
+    
+    /**
+     * Create a {@link RowPartition} for the given matrix, consisting of
+     * the given number of parts. The cost of each part is the number of
+     * its entries plus the number of its rows, and the parts are chosen
+     * so that their costs are approximately equal.
+     * 
+     * @param a The matrix
+     * @param numParts The number of parts
+     * @return The {@link RowPartition}
+     * @throws IllegalArgumentException If the number of parts is not 
+     * positive
+     */
+    public static RowPartition createPartition(CSR a, int numParts)
+    {
+        return RowPartition.create(a.rowPointers, a.numRows, numParts);
+    }
+    
+    /**
+     * Create a {@link RowPartition} for the given matrix, with a number
+     * of parts that is suitable for the common <code>ForkJoinPool</code>
+     * 
+     * @param a The matrix
+     * @return The {@link RowPartition}
+     */
+    public static RowPartition createPartition(FloatCSR a)
+    {
+        return createPartition(a, RowPartition.getDefaultNumParts());
+    }
+    
+    /**
+     * Create a {@link RowPartition} for the given matrix, consisting of
+     * the given number of parts. See 
+     * {@link #createPartition(CSR, int)} for details.
+     * 
+     * @param a The matrix
+     * @param numParts The number of parts
+     * @return The {@link RowPartition}
+     * @throws IllegalArgumentException If the number of parts is not 
+     * positive
+     */
+    public static RowPartition createPartition(FloatCSR a, int numParts)
+    {
+        return RowPartition.create(a.rowPointers, a.numRows, numParts);
+    }
+    
+    /**
+     * Computes <code>y = A * x</code>
+     * 
+     * @param a The matrix
+     * @param x The input vector, with at least <code>numCols</code> 
+     * elements
+     * @param y The output vector, with at least <code>numRows</code> 
+     * elements
+     * @throws IllegalArgumentException If the vectors are too small, or
+     * the matrix is complex
+     */
+    public static void multiply(CSR a, double x[], double y[])
+    {
+        validate(a.rowPointers, a.numRows, valuesLength(a.values),
+            x.length, a.numCols, y.length, a.numRows);
+        if (isTriangular(a))
+        {
+            Arrays.fill(y, 0, a.numRows, 0.0);
+            multiplyRowsSymmetric(a, x, y, 0, a.numRows, 
+                1.0, mirrorSign(a.symmetry));
+            return;
+        }
+        multiplyRows(a, x, y, 0, a.numRows);
+    }
+    
+    /**
+     * Computes <code>y = A * x</code> in parallel, using a default
+     * {@link RowPartition}
+     * 
+     * @param a The matrix
+     * @param x The input vector, with at least <code>numCols</code> 
+     * elements
+     * @param y The output vector, with at least <code>numRows</code> 
+     * elements
+     * @throws IllegalArgumentException If the vectors are too small, or
+     * the matrix is complex
+     */
+    public static void multiplyParallel(CSR a, double x[], double y[])
+    {
+        multiplyParallel(a, x, y, createPartition(a));
+    }
+    
+    /**
+     * Computes <code>y = A * x</code> in parallel, using the given
+     * {@link RowPartition}
+     * 
+     * @param a The matrix
+     * @param x The input vector, with at least <code>numCols</code> 
+     * elements
+     * @param y The output vector, with at least <code>numRows</code> 
+     * elements
+     * @param partition The {@link RowPartition}
+     * @throws IllegalArgumentException If the vectors are too small, 
+     * the matrix is complex, or the partition was not created for a 
+     * matrix with the same number of rows
+     */
+    public static void multiplyParallel(
+        CSR a, double x[], double y[], RowPartition partition)
+    {
+        validate(a.rowPointers, a.numRows, valuesLength(a.values),
+            x.length, a.numCols, y.length, a.numRows);
+        validate(partition, a.numRows);
+        if (isTriangular(a))
+        {
+            multiplySymmetricParallel(a, x, y, partition, 
+                1.0, mirrorSign(a.symmetry));
+            return;
+        }
+        int rowStarts[] = partition.rowStarts;
+        ParallelParts.forEach(partition.getNumParts(), p -> 
+            multiplyRows(a, x, y, rowStarts[p], rowStarts[p + 1]));
+    }
+    
+    /**
+     * Computes <code>y = A<sup>T</sup> * x</code>
+     * 
+     * @param a The matrix
+     * @param x The input vector, with at least <code>numRows</code> 
+     * elements
+     * @param y The output vector, with at least <code>numCols</code> 
+     * elements
+     * @throws IllegalArgumentException If the vectors are too small, or
+     * the matrix is complex
+     */
+    public static void multiplyTransposed(CSR a, double x[], double y[])
+    {
+        validate(a.rowPointers, a.numRows, valuesLength(a.values),
+            x.length, a.numRows, y.length, a.numCols);
+        Arrays.fill(y, 0, a.numCols, 0.0);
+        if (isTriangular(a))
+        {
+            // The transposed matrix is the matrix itself, or its 
+            // negation for skew-symmetric matrices
+            double sign = mirrorSign(a.symmetry);
+            multiplyRowsSymmetric(a, x, y, 0, a.numRows, sign, 1.0);
+            return;
+        }
+        multiplyRowsTransposed(a, x, y, 0, a.numRows);
+    }
+    
+    /**
+     * Computes <code>y = A<sup>T</sup> * x</code> in parallel, using a 
+     * default {@link RowPartition}
+     * 
+     * @param a The matrix
+     * @param x The input vector, with at least <code>numRows</code> 
+     * elements
+     * @param y The output vector, with at least <code>numCols</code> 
+     * elements
+     * @throws IllegalArgumentException If the vectors are too small, or
+     * the matrix is complex
+     */
+    public static void multiplyTransposedParallel(
+        CSR a, double x[], double y[])
+    {
+        multiplyTransposedParallel(a, x, y, createPartition(a));
+    }
+    
+    /**
+     * Computes <code>y = A<sup>T</sup> * x</code> in parallel, using 
+     * the given {@link RowPartition}.<br>
+     * <br>
+     * Each part accumulates its contributions in a vector of its own,
+     * so this requires temporary memory for one vector with 
+     * <code>numCols</code> elements for each part except for the first 
+     * one. These vectors are summed up in parallel afterwards. They are
+     * allocated when the partition is used for the first time, and 
+     * reused for all further multiplications with the same partition.
+     * Calls with the same partition from multiple threads are executed 
+     * one after another.
+     * 
+     * @param a The matrix
+     * @param x The input vector, with at least <code>numRows</code> 
+     * elements
+     * @param y The output vector, with at least <code>numCols</code> 
+     * elements
+     * @param partition The {@link RowPartition}
+     * @throws IllegalArgumentException If the vectors are too small, 
+     * the matrix is complex, or the partition was not created for a 
+     * matrix with the same number of rows
+     */
+    public static void multiplyTransposedParallel(
+        CSR a, double x[], double y[], RowPartition partition)
+    {
+        validate(a.rowPointers, a.numRows, valuesLength(a.values),
+            x.length, a.numRows, y.length, a.numCols);
+        validate(partition, a.numRows);
+        if (isTriangular(a))
+        {
+            double sign = mirrorSign(a.symmetry);
+            multiplySymmetricParallel(a, x, y, partition, sign, 1.0);
+            return;
+        }
+        int numCols = a.numCols;
+        int numParts = partition.getNumParts();
+        int rowStarts[] = partition.rowStarts;
+        synchronized (partition)
+        {
+            double partials[][] = getDoublePartials(partition, numCols);
+            ParallelParts.forEach(numParts, p -> 
+            {
+                double partial[] = (p == 0) ? y : partials[p];
+                Arrays.fill(partial, 0, numCols, 0.0);
+                multiplyRowsTransposed(a, x, partial, 
+                    rowStarts[p], rowStarts[p + 1]);
+            });
+            sumPartials(y, partials, numCols);
+        }
+    }
+    
+    /**
+     * Computes <code>y = A * x</code> in parallel, for a {@link CSR} 
+     * that only contains one triangle of the matrix, using the given
+     * {@link RowPartition}. Each part accumulates its contributions in
+     * a vector of its own, and these vectors are summed up in parallel
+     * afterwards.
+     * 
+     * @param a The matrix
+     * @param x The input vector
+     * @param y The output vector
+     * @param partition The {@link RowPartition}
+     * @param directSign The factor for the stored entries
+     * @param mirrorSign The factor for the mirrored entries
+     */
+    private static void multiplySymmetricParallel(CSR a, double x[], 
+        double y[], RowPartition partition, 
+        double directSign, double mirrorSign)
+    {
+        int numRows = a.numRows;
+        int numParts = partition.getNumParts();
+        int rowStarts[] = partition.rowStarts;
+        synchronized (partition)
+        {
+            double partials[][] = getDoublePartials(partition, numRows);
+            ParallelParts.forEach(numParts, p -> 
+            {
+                double partial[] = (p == 0) ? y : partials[p];
+                Arrays.fill(partial, 0, numRows, 0.0);
+                multiplyRowsSymmetric(a, x, partial, rowStarts[p], 
+                    rowStarts[p + 1], directSign, mirrorSign);
+            });
+            sumPartials(y, partials, numRows);
+        }
+    }
+    
+    /**
+     * Returns the partial result vectors of the given partition for the
+     * <code>double</code> kernels, allocating them if they do not exist
+     * yet, or if they have less than the given number of elements. The 
+     * caller must hold the lock of the partition.
+     * 
+     * @param partition The {@link RowPartition}
+     * @param n The required number of elements of each vector
+     * @return The partial vectors
+     */
+    private static double[][] getDoublePartials(
+        RowPartition partition, int n)
+    {
+        int numParts = partition.getNumParts();
+        double partials[][] = partition.doublePartials;
+        if (partials == null || partials.length != numParts || 
+            (numParts > 1 && partials[1].length < n))
+        {
+            partials = new double[numParts][];
+            for (int p = 1; p < numParts; p++)
+            {
+                partials[p] = new double[n];
+            }
+            partition.doublePartials = partials;
+        }
+        return partials;
+    }
+    
+    /**
+     * Returns the partial result vectors of the given partition for the
+     * <code>float</code> kernels, allocating them if they do not exist
+     * yet, or if they have less than the given number of elements. The 
+     * caller must hold the lock of the partition.
+     * 
+     * @param partition The {@link RowPartition}
+     * @param n The required number of elements of each vector
+     * @return The partial vectors
+     */
+    private static float[][] getFloatPartials(
+        RowPartition partition, int n)
+    {
+        int numParts = partition.getNumParts();
+        float partials[][] = partition.floatPartials;
+        if (partials == null || partials.length != numParts || 
+            (numParts > 1 && partials[1].length < n))
+        {
+            partials = new float[numParts][];
+            for (int p = 1; p < numParts; p++)
+            {
+                partials[p] = new float[n];
+            }
+            partition.floatPartials = partials;
+        }
+        return partials;
+    }
+    
+    /**
+     * Adds the first <code>n</code> elements of all given partial 
+     * vectors, except for the first one, to the given vector, in 
+     * parallel. The first partial vector is the given vector itself.
+     * 
+     * @param y The vector
+     * @param partials The partial vectors
+     * @param n The number of elements
+     */
+    private static void sumPartials(double y[], double partials[][], int n)
+    {
+        int numParts = partials.length;
+        ParallelParts.forEach(numParts, p -> 
+        {
+            int start = (int) ((long) n * p / numParts);
+            int end = (int) ((long) n * (p + 1) / numParts);
+            for (int i = 1; i < numParts; i++)
+            {
+                double partial[] = partials[i];
+                for (int c = start; c < end; c++)
+                {
+                    y[c] += partial[c];
+                }
+            }
+        });
+    }
+    
+    /**
+     * Computes <code>y = A * x</code>. The sum for each row is 
+     * accumulated with <code>double</code> precision.
+     * 
+     * @param a The matrix
+     * @param x The input vector, with at least <code>numCols</code> 
+     * elements
+     * @param y The output vector, with at least <code>numRows</code> 
+     * elements
+     * @throws IllegalArgumentException If the vectors are too small, or
+     * the matrix is complex
+     */
+    public static void multiply(FloatCSR a, float x[], float y[])
+    {
+        validate(a.rowPointers, a.numRows, valuesLength(a.values),
+            x.length, a.numCols, y.length, a.numRows);
+        multiplyRows(a, x, y, 0, a.numRows);
+    }
+    
+    /**
+     * Computes <code>y = A * x</code> in parallel, using a default
+     * {@link RowPartition}
+     * 
+     * @param a The matrix
+     * @param x The input vector, with at least <code>numCols</code> 
+     * elements
+     * @param y The output vector, with at least <code>numRows</code> 
+     * elements
+     * @throws IllegalArgumentException If the vectors are too small, or
+     * the matrix is complex
+     */
+    public static void multiplyParallel(FloatCSR a, float x[], float y[])
+    {
+        multiplyParallel(a, x, y, createPartition(a));
+    }
+    
+    /**
+     * Computes <code>y = A * x</code> in parallel, using the given
+     * {@link RowPartition}
+     * 
+     * @param a The matrix
+     * @param x The input vector, with at least <code>numCols</code> 
+     * elements
+     * @param y The output vector, with at least <code>numRows</code> 
+     * elements
+     * @param partition The {@link RowPartition}
+     * @throws IllegalArgumentException If the vectors are too small, 
+     * the matrix is complex, or the partition was not created for a 
+     * matrix with the same number of rows
+     */
+    public static void multiplyParallel(
+        FloatCSR a, float x[], float y[], RowPartition partition)
+    {
+        validate(a.rowPointers, a.numRows, valuesLength(a.values),
+            x.length, a.numCols, y.length, a.numRows);
+        validate(partition, a.numRows);
+        int rowStarts[] = partition.rowStarts;
+        ParallelParts.forEach(partition.getNumParts(), p -> 
+            multiplyRows(a, x, y, rowStarts[p], rowStarts[p + 1]));
+    }
+    
+    /**
+     * Computes <code>y = A<sup>T</sup> * x</code>
+     * 
+     * @param a The matrix
+     * @param x The input vector, with at least <code>numRows</code> 
+     * elements
+     * @param y The output vector, with at least <code>numCols</code> 
+     * elements
+     * @throws IllegalArgumentException If the vectors are too small, or
+     * the matrix is complex
+     */
+    public static void multiplyTransposed(FloatCSR a, float x[], float y[])
+    {
+        validate(a.rowPointers, a.numRows, valuesLength(a.values),
+            x.length, a.numRows, y.length, a.numCols);
+        Arrays.fill(y, 0, a.numCols, 0.0f);
+        multiplyRowsTransposed(a, x, y, 0, a.numRows);
+    }
+    
+    /**
+     * Computes <code>y = A<sup>T</sup> * x</code> in parallel, using a 
+     * default {@link RowPartition}
+     * 
+     * @param a The matrix
+     * @param x The input vector, with at least <code>numRows</code> 
+     * elements
+     * @param y The output vector, with at least <code>numCols</code> 
+     * elements
+     * @throws IllegalArgumentException If the vectors are too small, or
+     * the matrix is complex
+     */
+    public static void multiplyTransposedParallel(
+        FloatCSR a, float x[], float y[])
+    {
+        multiplyTransposedParallel(a, x, y, createPartition(a));
+    }
+    
+    /**
+     * Computes <code>y = A<sup>T</sup> * x</code> in parallel, using 
+     * the given {@link RowPartition}. See 
+     * {@link #multiplyTransposedParallel(CSR, double[], double[], 
+     * RowPartition)} for details.
+     * 
+     * @param a The matrix
+     * @param x The input vector, with at least <code>numRows</code> 
+     * elements
+     * @param y The output vector, with at least <code>numCols</code> 
+     * elements
+     * @param partition The {@link RowPartition}
+     * @throws IllegalArgumentException If the vectors are too small, 
+     * the matrix is complex, or the partition was not created for a 
+     * matrix with the same number of rows
+     */
+    public static void multiplyTransposedParallel(
+        FloatCSR a, float x[], float y[], RowPartition partition)
+    {
+        validate(a.rowPointers, a.numRows, valuesLength(a.values),
+            x.length, a.numRows, y.length, a.numCols);
+        validate(partition, a.numRows);
+        int numCols = a.numCols;
+        int numParts = partition.getNumParts();
+        int rowStarts[] = partition.rowStarts;
+        synchronized (partition)
+        {
+            float partials[][] = getFloatPartials(partition, numCols);
+            ParallelParts.forEach(numParts, p -> 
+            {
+                float partial[] = (p == 0) ? y : partials[p];
+                Arrays.fill(partial, 0, numCols, 0.0f);
+                multiplyRowsTransposed(a, x, partial, 
+                    rowStarts[p], rowStarts[p + 1]);
+            });
+            ParallelParts.forEach(numParts, p -> 
+            {
+                int start = (int) ((long) numCols * p / numParts);
+                int end = (int) ((long) numCols * (p + 1) / numParts);
+                for (int i = 1; i < numParts; i++)
+                {
+                    float partial[] = partials[i];
+                    for (int c = start; c < end; c++)
+                    {
+                        y[c] += partial[c];
+                    }
+                }
+            });
+        }
+    }
+    
+    /**
+     * Computes <code>y = A * x</code> for the specified rows
+     * 
+     * @param a The matrix
+     * @param x The input vector
+     * @param y The output vector
+     * @param rowStart The start row, inclusive
+     * @param rowEnd The end row, exclusive
+     */
+    private static void multiplyRows(CSR a, double x[], double y[], 
+        int rowStart, int rowEnd)
+    {
+        int rowPointers[] = a.rowPointers;
+        int columnIndices[] = a.columnIndices;
+        double values[] = a.values;
+        if (values == null)
+        {
+            for (int r = rowStart; r < rowEnd; r++)
+            {
+                double sum = 0.0;
+                int end = rowPointers[r + 1];
+                for (int j = rowPointers[r]; j < end; j++)
+                {
+                    sum += x[columnIndices[j]];
+                }
+                y[r] = sum;
+            }
+            return;
+        }
+        for (int r = rowStart; r < rowEnd; r++)
+        {
+            double sum = 0.0;
+            int end = rowPointers[r + 1];
+            for (int j = rowPointers[r]; j < end; j++)
+            {
+                sum += values[j] * x[columnIndices[j]];
+            }
+            y[r] = sum;
+        }
+    }
+    
+    /**
+     * Adds <code>A<sup>T</sup> * x</code> for the specified rows to 
+     * <code>y</code>
+     * 
+     * @param a The matrix
+     * @param x The input vector
+     * @param y The output vector
+     * @param rowStart The start row, inclusive
+     * @param rowEnd The end row, exclusive
+     */
+    private static void multiplyRowsTransposed(CSR a, double x[], 
+        double y[], int rowStart, int rowEnd)
+    {
+        int rowPointers[] = a.rowPointers;
+        int columnIndices[] = a.columnIndices;
+        double values[] = a.values;
+        if (values == null)
+        {
+            for (int r = rowStart; r < rowEnd; r++)
+            {
+                double xr = x[r];
+                int end = rowPointers[r + 1];
+                for (int j = rowPointers[r]; j < end; j++)
+                {
+                    y[columnIndices[j]] += xr;
+                }
+            }
+            return;
+        }
+        for (int r = rowStart; r < rowEnd; r++)
+        {
+            double xr = x[r];
+            int end = rowPointers[r + 1];
+            for (int j = rowPointers[r]; j < end; j++)
+            {
+                y[columnIndices[j]] += values[j] * xr;
+            }
+        }
+    }
+    
+    /**
+     * Adds the contributions of the specified rows of a {@link CSR} that
+     * only contains one triangle of the matrix to <code>y</code>. Each
+     * stored entry <code>(r, c, v)</code> adds 
+     * <code>directSign * v * x[c]</code> to <code>y[r]</code>, and, if 
+     * it is not on the diagonal, <code>mirrorSign * v * x[r]</code> to 
+     * <code>y[c]</code>.
+     * 
+     * @param a The matrix
+     * @param x The input vector
+     * @param y The output vector
+     * @param rowStart The start row, inclusive
+     * @param rowEnd The end row, exclusive
+     * @param directSign The factor for the stored entries
+     * @param mirrorSign The factor for the mirrored entries
+     */
+    private static void multiplyRowsSymmetric(CSR a, double x[], 
+        double y[], int rowStart, int rowEnd, 
+        double directSign, double mirrorSign)
+    {
+        int rowPointers[] = a.rowPointers;
+        int columnIndices[] = a.columnIndices;
+        double values[] = a.values;
+        for (int r = rowStart; r < rowEnd; r++)
+        {
+            double xr = mirrorSign * x[r];
+            double sum = 0.0;
+            int end = rowPointers[r + 1];
+            for (int j = rowPointers[r]; j < end; j++)
+            {
+                int c = columnIndices[j];
+                double v = (values == null) ? 1.0 : values[j];
+                sum += v * x[c];
+                if (c != r)
+                {
+                    y[c] += v * xr;
+                }
+            }
+            y[r] += directSign * sum;
+        }
+    }
+    
+    /**
+     * Computes <code>y = A * x</code> for the specified rows
+     * 
+     * @param a The matrix
+     * @param x The input vector
+     * @param y The output vector
+     * @param rowStart The start row, inclusive
+     * @param rowEnd The end row, exclusive
+     */
+    private static void multiplyRows(FloatCSR a, float x[], float y[], 
+        int rowStart, int rowEnd)
+    {
+        int rowPointers[] = a.rowPointers;
+        int columnIndices[] = a.columnIndices;
+        float values[] = a.values;
+        if (values == null)
+        {
+            for (int r = rowStart; r < rowEnd; r++)
+            {
+                double sum = 0.0;
+                int end = rowPointers[r + 1];
+                for (int j = rowPointers[r]; j < end; j++)
+                {
+                    sum += x[columnIndices[j]];
+                }
+                y[r] = (float) sum;
+            }
+            return;
+        }
+        for (int r = rowStart; r < rowEnd; r++)
+        {
+            double sum = 0.0;
+            int end = rowPointers[r + 1];
+            for (int j = rowPointers[r]; j < end; j++)
+            {
+                sum += values[j] * x[columnIndices[j]];
+            }
+            y[r] = (float) sum;
+        }
+    }
+    
+    /**
+     * Adds <code>A<sup>T</sup> * x</code> for the specified rows to 
+     * <code>y</code>
+     * 
+     * @param a The matrix
+     * @param x The input vector
+     * @param y The output vector
+     * @param rowStart The start row, inclusive
+     * @param rowEnd The end row, exclusive
+     */
+    private static void multiplyRowsTransposed(FloatCSR a, float x[], 
+        float y[], int rowStart, int rowEnd)
+    {
+        int rowPointers[] = a.rowPointers;
+        int columnIndices[] = a.columnIndices;
+        float values[] = a.values;
+        if (values == null)
+        {
+            for (int r = rowStart; r < rowEnd; r++)
+            {
+                float xr = x[r];
+                int end = rowPointers[r + 1];
+                for (int j = rowPointers[r]; j < end; j++)
+                {
+                    y[columnIndices[j]] += xr;
+                }
+            }
+            return;
+        }
+        for (int r = rowStart; r < rowEnd; r++)
+        {
+            float xr = x[r];
+            int end = rowPointers[r + 1];
+            for (int j = rowPointers[r]; j < end; j++)
+            {
+                y[columnIndices[j]] += values[j] * xr;
+            }
+        }
+    }
+    
+    /**
+     * Returns whether the given {@link CSR} only contains one triangle
+     * of the matrix
+     * 
+     * @param a The matrix
+     * @return Whether the matrix is stored as a triangle
+     */
+    private static boolean isTriangular(CSR a)
+    {
+        return a.symmetry != null && a.symmetry != Symmetry.GENERAL;
+    }
+    
+    /**
+     * Returns the factor for the mirrored entries of a real matrix with
+     * the given {@link Symmetry}
+     * 
+     * @param symmetry The {@link Symmetry}
+     * @return The factor
+     */
+    private static double mirrorSign(Symmetry symmetry)
+    {
+        return (symmetry == Symmetry.SKEW_SYMMETRIC) ? -1.0 : 1.0;
+    }
+    
+    /**
+     * Returns the length of the given array, or -1 if it is 
+     * <code>null</code>
+     * 
+     * @param values The values
+     * @return The length
+     */
+    private static int valuesLength(double values[])
+    {
+        return values == null ? -1 : values.length;
+    }
+    
+    /**
+     * Returns the length of the given array, or -1 if it is 
+     * <code>null</code>
+     * 
+     * @param values The values
+     * @return The length
+     */
+    private static int valuesLength(float values[])
+    {
+        return values == null ? -1 : values.length;
+    }
+    
+    /**
+     * Validate the given matrix and vector sizes
+     * 
+     * @param rowPointers The row pointers of the matrix
+     * @param numRows The number of rows of the matrix
+     * @param numValues The number of values, or -1 for pattern matrices
+     * @param xLength The length of the input vector
+     * @param xRequired The required length of the input vector
+     * @param yLength The length of the output vector
+     * @param yRequired The required length of the output vector
+     * @throws IllegalArgumentException If the sizes are not valid
+     */
+    private static void validate(int rowPointers[], int numRows, 
+        int numValues, int xLength, int xRequired, 
+        int yLength, int yRequired)
+    {
+        if (numValues > rowPointers[numRows])
+        {
+            throw new IllegalArgumentException(
+                "Complex matrices are not supported");
+        }
+        if (xLength < xRequired)
+        {
+            throw new IllegalArgumentException(
+                "The input vector must have at least " + xRequired 
+                + " elements, but has " + xLength);
+        }
+        if (yLength < yRequired)
+        {
+            throw new IllegalArgumentException(
+                "The output vector must have at least " + yRequired 
+                + " elements, but has " + yLength);
+        }
+    }
+    
+    /**
+     * Validate that the given {@link RowPartition} was created for a
+     * matrix with the given number of rows
+     * 
+     * @param partition The {@link RowPartition}
+     * @param numRows The number of rows
+     * @throws IllegalArgumentException If the partition is not valid
+     */
+    private static void validate(RowPartition partition, int numRows)
+    {
+        if (partition.numRows != numRows)
+        {
+            throw new IllegalArgumentException(
+                "The partition was created for " + partition.numRows 
+                + " rows, but the matrix has " + numRows + " rows");
+        }
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private SpMV()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Implementation of a {@link SegmentSource} that reads the data from
+ * an input stream into a reusable byte array. The bytes of an incomplete 
+ * line at the end of the array are carried over into the next segment.
+ */
+final class StreamSegmentSource implements SegmentSource
+{
+    /**
+     * The default size of the buffer
+     */
+    static final int DEFAULT_BUFFER_SIZE = 1 << 18;
+    
+    /**
+     * The input stream
+     */
+    private final InputStream inputStream;
+    
+    /**
+     * The array that the data is read into
+     */
+    private byte array[];
+    
+    /**
+     * The buffer that wraps the array
+     */
+    private ByteBuffer buffer;
+    
+    /**
+     * The start of the bytes in the array that have to be carried 
+     * over into the next segment
+     */
+    private int carryStart;
+    
+    /**
+     * The end of the bytes in the array that have to be carried 
+     * over into the next segment
+     */
+    private int carryEnd;
+    
+    /**
+     * Whether the end of the input stream was reached
+     */
+    private boolean endOfStream;
+    
+    /**
+     * Creates a new instance with a default buffer size
+     * 
+     * @param inputStream The input stream
+     */
+    StreamSegmentSource(InputStream inputStream)
+    {
+        this(inputStream, DEFAULT_BUFFER_SIZE);
+    }
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param inputStream The input stream
+     * @param bufferSize The initial buffer size. The buffer will grow
+     * if a single line does not fit into the buffer.
+     */
+    StreamSegmentSource(InputStream inputStream, int bufferSize)
+    {
+        this.inputStream = inputStream;
+        this.array = new byte[bufferSize];
+        this.buffer = ByteBuffer.wrap(array);
+    }
+
+    @Override
+    public ByteBuffer nextSegment() throws IOException
+    {
+        int length = carryEnd - carryStart;
+        System.arraycopy(array, carryStart, array, 0, length);
+        carryStart = 0;
+        carryEnd = 0;
+        if (endOfStream)
+        {
+            return null;
+        }
+        int scanStart = length;
+        buffer.clear();
+        while (true)
+        {
+            while (length < array.length)
+            {
+                int read = inputStream.read(array, length, 
+                    array.length - length);
+                if (read < 0)
+                {
+                    endOfStream = true;
+                    break;
+                }
+                length += read;
+            }
+            if (endOfStream)
+            {
+                if (length == 0)
+                {
+                    return null;
+                }
+                buffer.limit(length).position(0);
+                return buffer;
+            }
+            int segmentEnd = Tokenizer.findLastLineEnd(
+                buffer, scanStart, length);
+            if (segmentEnd != -1)
+            {
+                carryStart = segmentEnd;
+                carryEnd = length;
+                buffer.limit(segmentEnd).position(0);
+                return buffer;
+            }
+            
+            // The buffer does not contain a single complete line
+            scanStart = length;
+            array = Arrays.copyOf(array, array.length * 2);
+            buffer = ByteBuffer.wrap(array);
+        }
+    }
+}
@@ -0,0 +1,728 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A tokenizer that operates on the ASCII bytes of a segment of a 
+ * MatrixMarket file. It parses integers and floating point values 
+ * directly from the bytes of the buffer, without creating intermediate
+ * strings or arrays.<br>
+ * <br>
+ * Lines may be terminated with <code>"\n"</code>, <code>"\r\n"</code>
+ * or <code>"\r"</code>. Tokens are separated by spaces or tabs. 
+ */
+final class Tokenizer
+{
+    /**
+     * The buffer containing the current segment
+     */
+    private ByteBuffer buffer;
+    
+    /**
+     * The current position in the buffer
+     */
+    private int position;
+    
+    /**
+     * The end of the current segment in the buffer
+     */
+    private int end;
+    
+    /**
+     * The position where the current line started
+     */
+    private int lineStart;
+    
+    /**
+     * The number of the current line, one-based
+     */
+    private long lineNumber;
+    
+    /**
+     * The number of comment lines that have been skipped
+     */
+    private long numCommentLines;
+    
+    /**
+     * The offset of the current segment in the file, if the line numbers
+     * are not known, or a negative value otherwise
+     */
+    private long offset;
+    
+    /**
+     * The position where the current segment started
+     */
+    private int segmentStart;
+    
+    /**
+     * A description of the contents that are expected in the current
+     * line, used for error messages
+     */
+    private String expectation;
+    
+    /**
+     * A buffer for the bytes of tokens that have to be converted into
+     * strings in order to be parsed
+     */
+    private byte scratch[];
+    
+    /**
+     * Creates a new tokenizer
+     */
+    Tokenizer()
+    {
+        this.lineNumber = 1;
+        this.offset = -1;
+        this.expectation = "a valid line";
+        this.scratch = new byte[64];
+    }
+    
+    /**
+     * Reset this tokenizer to operate on the given segment of the
+     * given buffer. The line number will be retained.
+     * 
+     * @param buffer The buffer
+     * @param position The start position
+     * @param end The end position
+     */
+    void reset(ByteBuffer buffer, int position, int end)
+    {
+        this.buffer = buffer;
+        this.position = position;
+        this.end = end;
+        this.lineStart = position;
+        this.segmentStart = position;
+    }
+    
+    /**
+     * Returns the current position of this tokenizer
+     * 
+     * @return The position
+     */
+    int getPosition()
+    {
+        return position;
+    }
+    
+    /**
+     * Returns the number of the current line, one-based
+     * 
+     * @return The line number
+     */
+    long getLineNumber()
+    {
+        return lineNumber;
+    }
+    
+    /**
+     * Returns the number of comment lines that have been skipped
+     * 
+     * @return The number of comment lines
+     */
+    long getNumCommentLines()
+    {
+        return numCommentLines;
+    }
+    
+    /**
+     * Set the offset of the current segment in the file. This is used for
+     * tokenizers that operate on a single segment in the middle of a 
+     * file, where the line numbers are not known. The error messages will
+     * then refer to the byte offsets of the lines, instead of the line
+     * numbers.
+     * 
+     * @param offset The offset
+     */
+    void setOffset(long offset)
+    {
+        this.offset = offset;
+    }
+    
+    /**
+     * Set a description of what is expected in the lines, which will 
+     * be used in error messages
+     * 
+     * @param expectation The expectation
+     */
+    void setExpectation(String expectation)
+    {
+        this.expectation = expectation;
+    }
+    
+    /**
+     * Returns whether there are remaining bytes in the current segment
+     * 
+     * @return Whether there are remaining bytes
+     */
+    boolean hasRemaining()
+    {
+        return position < end;
+    }
+    
+    /**
+     * Skip all empty lines and comment lines (i.e. lines whose first
+     * non-whitespace character is <code>'%'</code>), as well as leading
+     * whitespace of the next line.
+     * 
+     * @return Whether there is content in the current line, and
+     * <code>false</code> if the end of the segment was reached
+     */
+    boolean skipEmptyAndCommentLines()
+    {
+        while (position < end)
+        {
+            byte b = buffer.get(position);
+            if (b == ' ' || b == '\t')
+            {
+                position++;
+            }
+            else if (b == '\n' || b == '\r')
+            {
+                skipLineTerminator(b);
+            }
+            else if (b == '%')
+            {
+                numCommentLines++;
+                skipLine();
+            }
+            else
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Skip the remaining bytes of the current line, including the 
+     * line terminator
+     */
+    void skipLine()
+    {
+        while (position < end)
+        {
+            byte b = buffer.get(position);
+            if (b == '\n' || b == '\r')
+            {
+                skipLineTerminator(b);
+                return;
+            }
+            position++;
+        }
+    }
+    
+    /**
+     * Skip the line terminator that starts with the given byte at 
+     * the current position
+     * 
+     * @param b The byte at the current position
+     */
+    private void skipLineTerminator(byte b)
+    {
+        position++;
+        if (b == '\r' && position < end && buffer.get(position) == '\n')
+        {
+            position++;
+        }
+        lineNumber++;
+        lineStart = position;
+    }
+    
+    /**
+     * Returns the remaining bytes of the current line as a string,
+     * and move to the start of the next line
+     * 
+     * @return The line
+     */
+    String nextLine()
+    {
+        int start = position;
+        int lineEnd = findLineEnd(start);
+        String line = createString(start, lineEnd);
+        position = lineEnd;
+        skipLine();
+        return line;
+    }
+    
+    /**
+     * Skip the whitespace that follows the last token of a line, and the
+     * line terminator.
+     * 
+     * @throws IOException If the line contains further tokens
+     */
+    void endLine() throws IOException
+    {
+        while (position < end)
+        {
+            byte b = buffer.get(position);
+            if (b == ' ' || b == '\t')
+            {
+                position++;
+            }
+            else if (b == '\n' || b == '\r')
+            {
+                skipLineTerminator(b);
+                return;
+            }
+            else
+            {
+                throw createException();
+            }
+        }
+    }
+    
+    /**
+     * Skip spaces and tabs, and make sure that the current position 
+     * is at the start of a token
+     * 
+     * @throws IOException If the end of the line was reached
+     */
+    private void skipToToken() throws IOException
+    {
+        while (position < end)
+        {
+            byte b = buffer.get(position);
+            if (b == ' ' || b == '\t')
+            {
+                position++;
+            }
+            else if (b == '\n' || b == '\r')
+            {
+                throw createException();
+            }
+            else
+            {
+                return;
+            }
+        }
+        throw createException();
+    }
+    
+    /**
+     * Returns whether the given byte terminates a token
+     * 
+     * @param b The byte
+     * @return Whether the byte is a delimiter
+     */
+    private static boolean isDelimiter(byte b)
+    {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+    
+    /**
+     * Parse the next token as an <code>int</code>
+     * 
+     * @return The value
+     * @throws IOException If there is no next token in the current line,
+     * or it can not be parsed
+     */
+    int nextInt() throws IOException
+    {
+        long value = nextLong();
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+        {
+            throw createException();
+        }
+        return (int) value;
+    }
+    
+    /**
+     * Parse the next token as a <code>long</code>
+     * 
+     * @return The value
+     * @throws IOException If there is no next token in the current line,
+     * or it can not be parsed
+     */
+    long nextLong() throws IOException
+    {
+        skipToToken();
+        boolean negative = false;
+        byte b = buffer.get(position);
+        if (b == '-' || b == '+')
+        {
+            negative = (b == '-');
+            position++;
+        }
+        int digitsStart = position;
+        long value = 0;
+        while (position < end)
+        {
+            int digit = buffer.get(position) - '0';
+            if (digit < 0 || digit > 9)
+            {
+                break;
+            }
+            if (value > (Long.MAX_VALUE - digit) / 10)
+            {
+                throw createException();
+            }
+            value = value * 10 + digit;
+            position++;
+        }
+        if (position == digitsStart || 
+            (position < end && !isDelimiter(buffer.get(position))))
+        {
+            throw createException();
+        }
+        return negative ? -value : value;
+    }
+    
+    /**
+     * Parse the next token as a <code>double</code>
+     * 
+     * @return The value
+     * @throws IOException If there is no next token in the current line,
+     * or it can not be parsed
+     */
+    double nextDouble() throws IOException
+    {
+        skipToToken();
+        int start = position;
+        boolean negative = false;
+        byte b = buffer.get(position);
+        if (b == '-' || b == '+')
+        {
+            negative = (b == '-');
+            position++;
+        }
+        
+        // Collect up to 19 significant digits in the mantissa, 
+        // and keep track of the decimal exponent
+        long mantissa = 0;
+        int numDigits = 0;
+        int numSignificantDigits = 0;
+        int exponent = 0;
+        boolean truncated = false;
+        boolean fraction = false;
+        while (position < end)
+        {
+            b = buffer.get(position);
+            int digit = b - '0';
+            if (digit >= 0 && digit <= 9)
+            {
+                numDigits++;
+                if (numSignificantDigits < 19)
+                {
+                    if (mantissa != 0 || digit != 0)
+                    {
+                        mantissa = mantissa * 10 + digit;
+                        numSignificantDigits++;
+                    }
+                    if (fraction)
+                    {
+                        exponent--;
+                    }
+                }
+                else
+                {
+                    if (!fraction)
+                    {
+                        exponent++;
+                    }
+                    truncated |= (digit != 0);
+                }
+            }
+            else if (b == '.' && !fraction)
+            {
+                fraction = true;
+            }
+            else
+            {
+                break;
+            }
+            position++;
+        }
+        if (numDigits > 0 && position < end && (b == 'e' || b == 'E'))
+        {
+            position++;
+            boolean negativeExponent = false;
+            if (position < end)
+            {
+                b = buffer.get(position);
+                if (b == '-' || b == '+')
+                {
+                    negativeExponent = (b == '-');
+                    position++;
+                }
+            }
+            int exponentStart = position;
+            int exponentValue = 0;
+            while (position < end)
+            {
+                int digit = buffer.get(position) - '0';
+                if (digit < 0 || digit > 9)
+                {
+                    break;
+                }
+                if (exponentValue < 100000)
+                {
+                    exponentValue = exponentValue * 10 + digit;
+                }
+                position++;
+            }
+            if (position == exponentStart)
+            {
+                return parseDoubleFallback(start);
+            }
+            exponent += negativeExponent ? -exponentValue : exponentValue;
+        }
+        if (numDigits == 0 || 
+            (position < end && !isDelimiter(buffer.get(position))))
+        {
+            return parseDoubleFallback(start);
+        }
+        
+        double value = DoubleConversion.toDouble(negative, mantissa, exponent);
+        if (truncated && !Double.isNaN(value))
+        {
+            // The exact value is between mantissa and mantissa+1. If
+            // both of them are rounded to the same value, this is
+            // the correct result.
+            double upper = 
+                DoubleConversion.toDouble(negative, mantissa + 1, exponent);
+            if (upper != value)
+            {
+                value = Double.NaN;
+            }
+        }
+        if (Double.isNaN(value))
+        {
+            return parseDoubleFallback(start);
+        }
+        return value;
+    }
+    
+    /**
+     * Parse the next token as a <code>float</code> value.<br>
+     * <br>
+     * The token is parsed into the nearest <code>double</code> value,
+     * which is then rounded to <code>float</code>. This yields the 
+     * correctly rounded result, unless the <code>double</code> value is
+     * exactly halfway between two <code>float</code> values. In this
+     * case, the token is parsed with <code>Float.parseFloat</code>.
+     * 
+     * @return The value
+     * @throws IOException If the token can not be parsed
+     */
+    float nextFloat() throws IOException
+    {
+        skipToToken();
+        int start = position;
+        double value = nextDouble();
+        float result = (float) value;
+        if (isFloatMidpoint(value, result))
+        {
+            return parseFloatFallback(start);
+        }
+        return result;
+    }
+    
+    /**
+     * Returns whether the given <code>double</code> value is exactly 
+     * halfway between the given <code>float</code> value (which is
+     * the value rounded to <code>float</code>) and its neighbor 
+     * 
+     * @param value The <code>double</code> value
+     * @param result The <code>float</code> value
+     * @return Whether the value is a midpoint
+     */
+    private static boolean isFloatMidpoint(double value, float result)
+    {
+        if (Double.isInfinite(value) || Double.isNaN(value))
+        {
+            return false;
+        }
+        double a = Math.abs(value);
+        float f = Math.abs(result);
+        
+        // A value that was rounded to infinity is compared to the 
+        // first value that is outside of the float range
+        double d = Float.isInfinite(f) ? 0x1p128 : f;
+        if (a == d)
+        {
+            return false;
+        }
+        double neighbor;
+        if (a > d)
+        {
+            neighbor = (f == Float.MAX_VALUE) ? 0x1p128 : Math.nextUp(f);
+        }
+        else
+        {
+            neighbor = Math.nextDown(f);
+        }
+        return (d + neighbor) * 0.5 == a;
+    }
+    
+    /**
+     * Parse the token that starts at the given position with
+     * <code>Float.parseFloat</code>
+     * 
+     * @param start The start of the token
+     * @return The value
+     * @throws IOException If the token can not be parsed
+     */
+    private float parseFloatFallback(int start) throws IOException
+    {
+        position = start;
+        while (position < end && !isDelimiter(buffer.get(position)))
+        {
+            position++;
+        }
+        String token = createString(start, position);
+        try
+        {
+            return Float.parseFloat(token);
+        }
+        catch (NumberFormatException e)
+        {
+            throw createException();
+        }
+    }
+    
+    /**
+     * Parse the token that starts at the given position with
+     * <code>Double.parseDouble</code>
+     * 
+     * @param start The start of the token
+     * @return The value
+     * @throws IOException If the token can not be parsed
+     */
+    private double parseDoubleFallback(int start) throws IOException
+    {
+        position = start;
+        while (position < end && !isDelimiter(buffer.get(position)))
+        {
+            position++;
+        }
+        String token = createString(start, position);
+        try
+        {
+            return Double.parseDouble(token);
+        }
+        catch (NumberFormatException e)
+        {
+            throw createException();
+        }
+    }
+    
+    /**
+     * Returns the position of the end of the line that contains the 
+     * given position (excluding the line terminator)
+     * 
+     * @param start The start position
+     * @return The end of the line
+     */
+    private int findLineEnd(int start)
+    {
+        int lineEnd = start;
+        while (lineEnd < end)
+        {
+            byte b = buffer.get(lineEnd);
+            if (b == '\n' || b == '\r')
+            {
+                break;
+            }
+            lineEnd++;
+        }
+        return lineEnd;
+    }
+    
+    /**
+     * Create a string from the given range of the buffer
+     * 
+     * @param start The start position, inclusive
+     * @param stop The end position, exclusive
+     * @return The string
+     */
+    private String createString(int start, int stop)
+    {
+        int length = stop - start;
+        if (scratch.length < length)
+        {
+            scratch = new byte[length];
+        }
+        for (int i = 0; i < length; i++)
+        {
+            scratch[i] = buffer.get(start + i);
+        }
+        return new String(scratch, 0, length, StandardCharsets.US_ASCII);
+    }
+    
+    /**
+     * Create an exception indicating that the current line does not
+     * contain the expected data
+     * 
+     * @return The exception
+     */
+    IOException createException()
+    {
+        String line = createString(lineStart, findLineEnd(lineStart));
+        String location;
+        if (offset < 0)
+        {
+            location = "in line " + lineNumber;
+        }
+        else
+        {
+            location = "at offset " + (offset + lineStart - segmentStart);
+        }
+        return new IOException("Expected " + expectation 
+            + ", but found " + line.trim() + " (" + location + ")");
+    }
+    
+    /**
+     * Returns the position after the last line terminator in the given 
+     * range of the given buffer, or -1 if the range does not contain 
+     * a line terminator.<br>
+     * <br>
+     * A <code>'\r'</code> at the end of the range is not considered as 
+     * a line terminator, because it may be the first part of a 
+     * <code>"\r\n"</code> that continues after the range.
+     * 
+     * @param buffer The buffer
+     * @param start The start of the range, inclusive
+     * @param end The end of the range, exclusive
+     * @return The position after the last line terminator
+     */
+    static int findLastLineEnd(ByteBuffer buffer, int start, int end)
+    {
+        for (int i = end - 1; i >= start; i--)
+        {
+            byte b = buffer.get(i);
+            if (b == '\n' || (b == '\r' && i < end - 1))
+            {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+}
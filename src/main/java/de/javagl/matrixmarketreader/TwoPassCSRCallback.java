@@ -0,0 +1,272 @@
+/*
+ * MatrixMarketReader - a simple reader for MatrixMarket files
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.matrixmarketreader;
+
+/**
+ * Abstract base class for a {@link BatchCallback} that creates a matrix
+ * in CSR format in two passes over the same input: In the first pass, 
+ * only the number of elements in each row is counted. After the first 
+ * pass, the storage for the column indices and values is allocated with 
+ * {@link #allocate(long)}, and in the second pass, the elements are 
+ * written directly into their rows. This way, no intermediate coordinate 
+ * arrays are required, and the memory requirements are the same as for 
+ * the resulting matrix.<br>
+ * <br>
+ * For matrices that are not {@link Symmetry#GENERAL}, the elements will
+ * be mirrored at the diagonal, so that the resulting matrix contains 
+ * the full matrix. 
+ */
+abstract class TwoPassCSRCallback implements BatchCallback
+{
+    /**
+     * Whether the callback is in the first pass, where the elements
+     * are only counted
+     */
+    private boolean counting = true;
+    
+    /**
+     * The {@link Symmetry} of the matrix
+     */
+    private Symmetry symmetry;
+    
+    /**
+     * Whether complex data is read
+     */
+    private boolean complex;
+    
+    /**
+     * Whether a {@link Field#PATTERN} matrix is read, which means that
+     * no values are stored
+     */
+    private boolean pattern;
+    
+    /**
+     * The number of rows
+     */
+    private int numRows;
+    
+    /**
+     * The number of columns
+     */
+    private int numCols;
+    
+    /**
+     * The row pointers. During the first pass, the element at index 
+     * <code>r+1</code> is the number of elements in row <code>r</code>.
+     */
+    private long rowPointers[];
+    
+    /**
+     * The positions where the next element of each row will be stored
+     * during the second pass
+     */
+    private long positions[];
+    
+    @Override
+    public void startMatrix(MatrixDescription matrixDescription)
+    {
+        if (counting)
+        {
+            symmetry = matrixDescription.getSymmetry();
+            complex = matrixDescription.getField() == Field.COMPLEX;
+            pattern = matrixDescription.getField() == Field.PATTERN;
+            numRows = matrixDescription.getNumRows();
+            numCols = matrixDescription.getNumCols();
+            rowPointers = new long[numRows + 1];
+        }
+        else
+        {
+            if (matrixDescription.getNumRows() != numRows ||
+                matrixDescription.getNumCols() != numCols ||
+                matrixDescription.getSymmetry() != symmetry)
+            {
+                throw new IllegalStateException(
+                    "The input changed between the passes");
+            }
+        }
+    }
+
+    @Override
+    public void setMatrixElements(
+        int rowIndicesZeroBased[], int columnIndicesZeroBased[], 
+        double values[], int count)
+    {
+        boolean mirror = symmetry != Symmetry.GENERAL;
+        if (counting)
+        {
+            for (int i = 0; i < count; i++)
+            {
+                int r = rowIndicesZeroBased[i];
+                int c = columnIndicesZeroBased[i];
+                rowPointers[r + 1]++;
+                if (mirror && r != c)
+                {
+                    rowPointers[c + 1]++;
+                }
+            }
+            return;
+        }
+        double sign0 = (symmetry == Symmetry.SKEW_SYMMETRIC) ? -1.0 : 1.0;
+        double sign1 = (symmetry == Symmetry.SYMMETRIC) ? 1.0 : -1.0;
+        for (int i = 0; i < count; i++)
+        {
+            int r = rowIndicesZeroBased[i];
+            int c = columnIndicesZeroBased[i];
+            add(r, c, values, i, 1.0, 1.0);
+            if (mirror && r != c)
+            {
+                add(c, r, values, i, sign0, sign1);
+            }
+        }
+    }
+    
+    /**
+     * Add the specified entry at the next position of its row
+     * 
+     * @param r The row
+     * @param c The column
+     * @param sourceValues The array containing the value
+     * @param sourceIndex The index of the entry in the source array
+     * @param sign0 The factor for the (real) value
+     * @param sign1 The factor for the imaginary value
+     * @throws IllegalStateException If the row contains more elements
+     * than in the first pass
+     */
+    private void add(int r, int c, 
+        double sourceValues[], int sourceIndex, double sign0, double sign1)
+    {
+        long position = positions[r];
+        if (position >= rowPointers[r + 1])
+        {
+            throw new IllegalStateException(
+                "The input changed between the passes");
+        }
+        positions[r] = position + 1;
+        setColumnIndex(position, c);
+        if (complex)
+        {
+            setValue(position + position + 0, 
+                sign0 * sourceValues[sourceIndex + sourceIndex + 0]);
+            setValue(position + position + 1, 
+                sign1 * sourceValues[sourceIndex + sourceIndex + 1]);
+        }
+        else if (!pattern)
+        {
+            setValue(position, sign0 * sourceValues[sourceIndex]);
+        }
+    }
+
+    @Override
+    public void finishMatrix()
+    {
+        if (counting)
+        {
+            for (int r = 0; r < numRows; r++)
+            {
+                rowPointers[r + 1] += rowPointers[r];
+            }
+            allocate(rowPointers[numRows]);
+            positions = new long[numRows];
+            System.arraycopy(rowPointers, 0, positions, 0, numRows);
+            counting = false;
+            return;
+        }
+        for (int r = 0; r < numRows; r++)
+        {
+            if (positions[r] != rowPointers[r + 1])
+            {
+                throw new IllegalStateException(
+                    "The input changed between the passes");
+            }
+        }
+        finish(numRows, numCols, rowPointers);
+        positions = null;
+        rowPointers = null;
+        counting = true;
+    }
+    
+    /**
+     * Returns whether the matrix is a {@link Field#COMPLEX} matrix. In 
+     * this case, {@link #allocate(long)} has to allocate storage for
+     * twice as many values as entries.
+     * 
+     * @return Whether the matrix is complex
+     */
+    protected final boolean isComplex()
+    {
+        return complex;
+    }
+    
+    /**
+     * Returns whether the matrix is a {@link Field#PATTERN} matrix. In 
+     * this case, {@link #allocate(long)} does not have to allocate 
+     * storage for the values.
+     * 
+     * @return Whether the matrix is a pattern matrix
+     */
+    protected final boolean isPattern()
+    {
+        return pattern;
+    }
+    
+    /**
+     * Allocate the storage for the given number of entries. This is
+     * called after the first pass.
+     * 
+     * @param numEntries The number of entries
+     * @throws IllegalArgumentException If the storage can not be 
+     * allocated for the given number of entries
+     */
+    protected abstract void allocate(long numEntries);
+    
+    /**
+     * Set the column index of the entry at the given position
+     * 
+     * @param position The position of the entry
+     * @param columnIndex The column index
+     */
+    protected abstract void setColumnIndex(long position, int columnIndex);
+    
+    /**
+     * Set the value at the given index. For complex matrices, the index
+     * refers to the interleaved real and imaginary parts.
+     * 
+     * @param index The index of the value
+     * @param value The value
+     */
+    protected abstract void setValue(long index, double value);
+    
+    /**
+     * Create the resulting matrix, after the second pass
+     * 
+     * @param numRows The number of rows
+     * @param numCols The number of columns
+     * @param rowPointers The row pointers
+     */
+    protected abstract void finish(
+        int numRows, int numCols, long rowPointers[]);
+}
@@ -0,0 +1,125 @@
+package de.javagl.matrixmarketreader.sample;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import de.javagl.matrixmarketreader.COO;
+import de.javagl.matrixmarketreader.CSR;
+import de.javagl.matrixmarketreader.MatrixMarketBinary;
+import de.javagl.matrixmarketreader.Symmetry;
+
+/**
+ * A basic sample/test for writing and reading binary matrix files, 
+ * including matrices without values
+ */
+@SuppressWarnings("javadoc")
+public class MatrixMarketBinarySample
+{
+    public static void main(String[] args) throws Exception
+    {
+        Path path = Files.createTempFile("MatrixMarketBinarySample", ".bin");
+        try
+        {
+            // Pattern matrices where the integer arrays do not end at a 
+            // multiple of 8 bytes
+            for (int numRows = 1; numRows <= 4; numRows++)
+            {
+                CSR csr = createCSR(numRows, 3000, false);
+                MatrixMarketBinary.writeCSR(csr, path);
+                check(csr, MatrixMarketBinary.readCSR(path));
+                
+                COO coo = createCOO(numRows, 3000 + numRows, false);
+                MatrixMarketBinary.writeCOO(coo, path);
+                check(coo, MatrixMarketBinary.readCOO(path));
+            }
+            
+            CSR csr = createCSR(3, 3000, true);
+            MatrixMarketBinary.writeCSR(csr, path);
+            check(csr, MatrixMarketBinary.readCSR(path));
+            
+            // A CSR that only stores one triangle keeps its symmetry
+            for (Symmetry symmetry : Symmetry.values())
+            {
+                CSR triangular = createCSR(3, 3, true);
+                triangular.symmetry = symmetry;
+                MatrixMarketBinary.writeCSR(triangular, path);
+                check(triangular, MatrixMarketBinary.readCSR(path));
+            }
+            
+            COO coo = createCOO(3, 3001, true);
+            MatrixMarketBinary.writeCOO(coo, path);
+            check(coo, MatrixMarketBinary.readCOO(path));
+            System.out.println("Done");
+        }
+        finally
+        {
+            Files.delete(path);
+        }
+    }
+    
+    private static CSR createCSR(int numRows, int numCols, boolean values)
+    {
+        CSR csr = new CSR();
+        csr.numRows = numRows;
+        csr.numCols = numCols;
+        csr.rowPointers = new int[numRows + 1];
+        csr.columnIndices = new int[numRows * numCols];
+        for (int r = 0; r < numRows; r++)
+        {
+            csr.rowPointers[r + 1] = (r + 1) * numCols;
+            for (int c = 0; c < numCols; c++)
+            {
+                csr.columnIndices[r * numCols + c] = c;
+            }
+        }
+        if (values)
+        {
+            csr.values = new double[csr.columnIndices.length];
+            Arrays.setAll(csr.values, i -> i * 0.5);
+        }
+        return csr;
+    }
+    
+    private static COO createCOO(int numRows, int numEntries, boolean values)
+    {
+        COO coo = new COO();
+        coo.numRows = numRows;
+        coo.numCols = numEntries;
+        coo.rowIndices = new int[numEntries];
+        coo.columnIndices = new int[numEntries];
+        Arrays.setAll(coo.rowIndices, i -> i % numRows);
+        Arrays.setAll(coo.columnIndices, i -> i);
+        if (values)
+        {
+            coo.values = new double[numEntries];
+            Arrays.setAll(coo.values, i -> i * 0.5);
+        }
+        return coo;
+    }
+    
+    private static void check(CSR expected, CSR actual)
+    {
+        if (expected.numRows != actual.numRows ||
+            expected.numCols != actual.numCols ||
+            expected.symmetry != actual.symmetry ||
+            !Arrays.equals(expected.rowPointers, actual.rowPointers) ||
+            !Arrays.equals(expected.columnIndices, actual.columnIndices) ||
+            !Arrays.equals(expected.values, actual.values))
+        {
+            throw new IllegalStateException("CSR round trip failed");
+        }
+    }
+    
+    private static void check(COO expected, COO actual)
+    {
+        if (expected.numRows != actual.numRows ||
+            expected.numCols != actual.numCols ||
+            !Arrays.equals(expected.rowIndices, actual.rowIndices) ||
+            !Arrays.equals(expected.columnIndices, actual.columnIndices) ||
+            !Arrays.equals(expected.values, actual.values))
+        {
+            throw new IllegalStateException("COO round trip failed");
+        }
+    }
+}